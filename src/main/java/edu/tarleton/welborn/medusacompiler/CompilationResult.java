@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package edu.tarleton.welborn.medusacompiler;
+
+import edu.tarleton.welborn.medusacompiler.compiler.ThreeAddressCode;
+import edu.tarleton.welborn.medusacompiler.lexical.Token;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import edu.tarleton.welborn.medusacompiler.syntax.ProgramTree;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a MedusaCompiler hands back from one compilation. Anything the compiler
+ * wasn't asked for is null.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class CompilationResult {
+    
+    private List<Token> tokens;
+    private ProgramTree programTree;
+    private Map<String, TokenType> symbolTable;
+    private List<ThreeAddressCode> code;
+    
+    // How long each phase took. Parsing includes the semantic checks.
+    private long lexNanos;
+    private long parseNanos;
+    private long generateNanos;
+
+    public List<Token> getTokens() {
+        return tokens;
+    }
+
+    void setTokens(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    public ProgramTree getProgramTree() {
+        return programTree;
+    }
+
+    void setProgramTree(ProgramTree programTree) {
+        this.programTree = programTree;
+    }
+
+    // The type of every variable declared outside of any block, by name
+    public Map<String, TokenType> getSymbolTable() {
+        return symbolTable;
+    }
+
+    void setSymbolTable(Map<String, TokenType> symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    public List<ThreeAddressCode> getCode() {
+        return code;
+    }
+
+    void setCode(List<ThreeAddressCode> code) {
+        this.code = code;
+    }
+
+    public long getLexNanos() {
+        return lexNanos;
+    }
+
+    void setLexNanos(long lexNanos) {
+        this.lexNanos = lexNanos;
+    }
+
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    void setParseNanos(long parseNanos) {
+        this.parseNanos = parseNanos;
+    }
+
+    public long getGenerateNanos() {
+        return generateNanos;
+    }
+
+    void setGenerateNanos(long generateNanos) {
+        this.generateNanos = generateNanos;
+    }
+    
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package edu.tarleton.welborn.medusacompiler;
+
+/**
+ * One error found in a program, along with the phase that found it and where in
+ * the source it is. Lexical and syntax errors point at the offending character or
+ * token, and semantic errors at the start of the statement they're in.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class Diagnostic {
+    
+    public enum Phase {
+        LEXICAL,
+        SYNTAX,
+        SEMANTIC
+    }
+    
+    private final Phase phase;
+    private final String message;
+    private final int line;
+    private final int column;
+    
+    public Diagnostic(Phase phase, String message, int line, int column) {
+        this.phase = phase;
+        this.message = message;
+        this.line = line;
+        this.column = column;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+    
+    @Override
+    public String toString() {
+        return line + ":" + column + ": " + phase + ": " + message;
+    }
+    
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package edu.tarleton.welborn.medusacompiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects every error found while compiling a program, rather than stopping at
+ * the first one. Each phase takes a Diagnostics through a setDiagnostics method;
+ * with one set, the phase reports an error here and recovers from it, and without
+ * one it throws as usual.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class Diagnostics {
+    
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    
+    public void report(Diagnostic.Phase phase, String message, int line, int column) {
+        diagnostics.add(new Diagnostic(phase,message,line,column));
+    }
+    
+    public boolean hasErrors() {
+        return !diagnostics.isEmpty();
+    }
+    
+    public int size() {
+        return diagnostics.size();
+    }
+    
+    // Every error reported so far, in the order they were found
+    public List<Diagnostic> getDiagnostics() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+    
+    public void clear() {
+        diagnostics.clear();
+    }
+    
+}
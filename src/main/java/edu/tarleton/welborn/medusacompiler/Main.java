@@ -24,44 +24,294 @@
 
 package edu.tarleton.welborn.medusacompiler;
 
-import edu.tarleton.welborn.medusacompiler.compiler.Compiler;
 import edu.tarleton.welborn.medusacompiler.compiler.ThreeAddressCode;
-import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
-import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzerException;
 import edu.tarleton.welborn.medusacompiler.lexical.Token;
-import edu.tarleton.welborn.medusacompiler.syntax.ProgramTree;
-import edu.tarleton.welborn.medusacompiler.syntax.SemanticAnalyzerException;
-import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzer;
-import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzerException;
-import java.io.BufferedReader;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
+ * The command line driver. Compiles every .med file it's given, or finds under the
+ * directories it's given, writing each one's output to standard out or to a file
+ * of its own in the output directory. Everything is written through a buffered
+ * writer, and the tokens and tree are only dumped when asked for.
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
  */
 public class Main {
-
-    public static void main(String[] args) throws LexicalAnalyzerException,SyntaxAnalyzerException,SemanticAnalyzerException {
-        try (BufferedReader reader = Files.newBufferedReader(Path.of("input.med"),Charset.forName("US-ASCII"))) {
-            List<Token> tokens = LexicalAnalyzer.parseBufferedReader(reader);
-            for(Token token : tokens) {
-                System.out.println(token + " at line " + token.getLine() + ", column " + token.getColumn());
+    
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: medusa [options] <file or directory>...",
+            "  -o, --output <directory>  write each program's output to its own file in the directory",
+            "  -f, --format <format>     tac (the default), symbols, or none to only check the programs",
+            "      --dump-tokens         also write every token",
+            "      --dump-ast            also write the syntax tree",
+            "  -O, --optimize            fold constants and propagate copies in the code",
+            "      --time                report how long each phase took",
+            "  -h, --help                show this message");
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private enum Format {
+        TAC,
+        SYMBOLS,
+        NONE
+    }
+    
+    private static class Options {
+        private final List<Path> inputs = new ArrayList<>();
+        private Path outputDirectory;
+        private Format format = Format.TAC;
+        private boolean dumpTokens;
+        private boolean dumpTree;
+        private boolean optimize;
+        private boolean time;
+        private boolean help;
+    }
+    
+    // A program to compile, and the path its output files are named after
+    private static class Input {
+        private final Path path;
+        private final Path outputName;
+        
+        private Input(Path path, Path outputName) {
+            this.path = path;
+            this.outputName = outputName;
+        }
+    }
+    
+    private static Options parseOptions(String[] args) {
+        Options options = new Options();
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "-o":
+                case "--output":
+                    options.outputDirectory = Path.of(requireValue(args,++i));
+                    break;
+                case "-f":
+                case "--format":
+                    String format = requireValue(args,++i);
+                    try {
+                        options.format = Format.valueOf(format.toUpperCase());
+                    } catch(IllegalArgumentException err) {
+                        throw new IllegalArgumentException("Unknown format " + format);
+                    }
+                    break;
+                case "--dump-tokens":
+                    options.dumpTokens = true;
+                    break;
+                case "--dump-ast":
+                    options.dumpTree = true;
+                    break;
+                case "-O":
+                case "--optimize":
+                    options.optimize = true;
+                    break;
+                case "--time":
+                    options.time = true;
+                    break;
+                case "-h":
+                case "--help":
+                    options.help = true;
+                    break;
+                default:
+                    if(args[i].startsWith("-")) {
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                    }
+                    options.inputs.add(Path.of(args[i]));
+                    break;
+            }
+        }
+        return options;
+    }
+    
+    private static String requireValue(String[] args, int i) {
+        if(i >= args.length) {
+            throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        }
+        return args[i];
+    }
+    
+    // Every file given, plus every .med file under the directories given, in order.
+    // Files found in a directory are named by their path within it, so files with
+    // the same name in different directories don't overwrite each other's output.
+    private static List<Input> findInputs(List<Path> paths) throws IOException {
+        List<Input> inputs = new ArrayList<>();
+        for(Path path : paths) {
+            if(Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    for(Path file : files.filter(file -> file.toString().endsWith(".med") && Files.isRegularFile(file)).sorted().collect(Collectors.toList())) {
+                        inputs.add(new Input(file,path.relativize(file)));
+                    }
+                }
+            } else {
+                inputs.add(new Input(path,path.getFileName()));
+            }
+        }
+        return inputs;
+    }
+    
+    private static MedusaCompiler createCompiler(Options options) {
+        List<MedusaCompiler.Output> outputs = new ArrayList<>();
+        if(options.format == Format.TAC) {
+            outputs.add(MedusaCompiler.Output.CODE);
+        } else if(options.format == Format.SYMBOLS) {
+            outputs.add(MedusaCompiler.Output.SYMBOL_TABLE);
+        }
+        if(options.dumpTokens) {
+            outputs.add(MedusaCompiler.Output.TOKENS);
+        }
+        if(options.dumpTree) {
+            outputs.add(MedusaCompiler.Output.TREE);
+        }
+        // With nothing else asked for, the symbol table is, so the programs are
+        // still parsed and checked
+        if(options.format == Format.NONE && !options.dumpTree) {
+            outputs.add(MedusaCompiler.Output.SYMBOL_TABLE);
+        }
+        Set<MedusaCompiler.Optimization> optimizations = options.optimize ? EnumSet.allOf(MedusaCompiler.Optimization.class) : EnumSet.noneOf(MedusaCompiler.Optimization.class);
+        return new MedusaCompiler(optimizations,outputs.toArray(new MedusaCompiler.Output[0]));
+    }
+    
+    private static PrintWriter openWriter(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        return new PrintWriter(Files.newBufferedWriter(path,StandardCharsets.US_ASCII));
+    }
+    
+    // The output file for an input, with its .med swapped for the extension
+    private static Path outputPath(Options options, Input input, String extension) {
+        String name = input.outputName.toString();
+        if(name.endsWith(".med")) {
+            name = name.substring(0,name.length() - ".med".length());
+        }
+        return options.outputDirectory.resolve(name + extension);
+    }
+    
+    private static void writeTokens(PrintWriter out, List<Token> tokens) {
+        for(Token token : tokens) {
+            out.println(token + " at line " + token.getLine() + ", column " + token.getColumn());
+        }
+    }
+    
+    private static void writeOutput(PrintWriter out, Format format, CompilationResult result) {
+        if(format == Format.TAC) {
+            for(ThreeAddressCode code : result.getCode()) {
+                out.println(code);
+            }
+        } else if(format == Format.SYMBOLS) {
+            for(Map.Entry<String,TokenType> symbol : new TreeMap<>(result.getSymbolTable()).entrySet()) {
+                out.println(symbol.getKey() + ": " + symbol.getValue());
             }
-            SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(tokens);
-            ProgramTree programTree = syntaxAnalyzer.getProgramTree();
-            programTree.printTree(0);
-            List<ThreeAddressCode> threeAddressCode = Compiler.generateCodeFromProgramTree(programTree);
-            for(ThreeAddressCode TAC : threeAddressCode) {
-                System.out.println(TAC);
+        }
+    }
+    
+    // Writes everything asked for about one program, either to standard out under
+    // a heading naming the file when there's more than one, or to files of its own
+    private static void write(Options options, Input input, CompilationResult result, PrintWriter out, boolean headings) throws IOException {
+        if(options.outputDirectory == null) {
+            if(headings) {
+                out.println("== " + input.path + " ==");
+            }
+            if(options.dumpTokens) {
+                writeTokens(out,result.getTokens());
+            }
+            if(options.dumpTree) {
+                result.getProgramTree().printTree(out,0);
+            }
+            writeOutput(out,options.format,result);
+            return;
+        }
+        
+        if(options.dumpTokens) {
+            try (PrintWriter tokensOut = openWriter(outputPath(options,input,".tokens"))) {
+                writeTokens(tokensOut,result.getTokens());
             }
-        } catch (IOException err) {
-            err.printStackTrace();
         }
+        if(options.dumpTree) {
+            try (PrintWriter treeOut = openWriter(outputPath(options,input,".ast"))) {
+                result.getProgramTree().printTree(treeOut,0);
+            }
+        }
+        if(options.format != Format.NONE) {
+            try (PrintWriter formatOut = openWriter(outputPath(options,input,options.format == Format.TAC ? ".tac" : ".symbols"))) {
+                writeOutput(formatOut,options.format,result);
+            }
+        }
+    }
+    
+    // Compiles everything on the command line, returning the exit status: 0 if
+    // every program compiled, 1 if any had errors, and 2 for a bad command line.
+    // A program with an error is reported and skipped, and the rest still compile.
+    public static int run(String[] args, PrintStream stdout, PrintStream stderr) {
+        Options options;
+        List<Input> inputs;
+        try {
+            options = parseOptions(args);
+            if(options.help) {
+                stdout.println(USAGE);
+                return 0;
+            }
+            if(options.inputs.isEmpty()) {
+                throw new IllegalArgumentException("No input files");
+            }
+            inputs = findInputs(options.inputs);
+        } catch(IllegalArgumentException | IOException err) {
+            stderr.println(err.getMessage());
+            stderr.println(USAGE);
+            return 2;
+        }
+        
+        MedusaCompiler compiler = createCompiler(options);
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(stdout,StandardCharsets.US_ASCII),BUFFER_SIZE));
+        int failures = 0;
+        long lexNanos = 0;
+        long parseNanos = 0;
+        long generateNanos = 0;
+        long writeNanos = 0;
+        for(Input input : inputs) {
+            try {
+                CompilationResult result = compiler.compile(input.path);
+                lexNanos += result.getLexNanos();
+                parseNanos += result.getParseNanos();
+                generateNanos += result.getGenerateNanos();
+                long start = System.nanoTime();
+                write(options,input,result,out,inputs.size() > 1 && (options.format != Format.NONE || options.dumpTokens || options.dumpTree));
+                writeNanos += System.nanoTime() - start;
+            } catch(Exception err) {
+                // Flush first, so the error lands after the output before it
+                out.flush();
+                stderr.println(input.path + ": " + err.getMessage());
+                failures++;
+            }
+        }
+        out.flush();
+        
+        if(options.time) {
+            stderr.printf("%d files, %d failed%n",inputs.size(),failures);
+            stderr.printf("lex            %10.3f ms%n",lexNanos / 1e6);
+            stderr.printf("parse & check  %10.3f ms%n",parseNanos / 1e6);
+            stderr.printf("generate       %10.3f ms%n",generateNanos / 1e6);
+            stderr.printf("write          %10.3f ms%n",writeNanos / 1e6);
+        }
+        return failures > 0 ? 1 : 0;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args,System.out,System.err));
     }
     
 }
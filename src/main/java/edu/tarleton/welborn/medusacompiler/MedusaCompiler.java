@@ -0,0 +1,198 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package edu.tarleton.welborn.medusacompiler;
+
+import edu.tarleton.welborn.medusacompiler.compiler.Compiler;
+import edu.tarleton.welborn.medusacompiler.compiler.CompilerContext;
+import edu.tarleton.welborn.medusacompiler.compiler.ConstantFolder;
+import edu.tarleton.welborn.medusacompiler.compiler.CopyPropagator;
+import edu.tarleton.welborn.medusacompiler.compiler.PackedCode;
+import edu.tarleton.welborn.medusacompiler.compiler.ThreeAddressCode;
+import edu.tarleton.welborn.medusacompiler.lexical.InternPool;
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzerException;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenBuffer;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import edu.tarleton.welborn.medusacompiler.syntax.FlatProgramTree;
+import edu.tarleton.welborn.medusacompiler.syntax.ProgramTree;
+import edu.tarleton.welborn.medusacompiler.syntax.SemanticAnalyzerException;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzer;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzerException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles Medusa programs into three address code. One compiler can be shared by
+ * any number of threads.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class MedusaCompiler {
+    
+    public enum Output {
+        TOKENS,
+        TREE,
+        SYMBOL_TABLE,
+        CODE
+    }
+    
+    // The passes that can be run over the code once it's generated
+    public enum Optimization {
+        CONSTANT_FOLDING,
+        COPY_PROPAGATION
+    }
+    
+    // Emptied and reused by every compilation on a thread. Nothing handed back
+    // points into it, so asking for the tree gives the compilation a pool of its own.
+    private static class Workspace {
+        private final InternPool internPool = new InternPool();
+        private final TokenBuffer tokens = new TokenBuffer(1024,internPool);
+        private final FlatProgramTree flatTree = new FlatProgramTree(internPool);
+        private final CompilerContext context = new CompilerContext();
+        
+        private void clear() {
+            internPool.clear();
+            tokens.clear();
+            context.clear();
+        }
+    }
+    
+    private final Set<Output> outputs;
+    private final Set<Optimization> optimizations;
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+    
+    // Just the code, unless asked for more
+    public MedusaCompiler() {
+        this(Output.CODE);
+    }
+    
+    public MedusaCompiler(Output... outputs) {
+        this(EnumSet.noneOf(Optimization.class),outputs);
+    }
+    
+    public MedusaCompiler(Set<Optimization> optimizations, Output... outputs) {
+        this.outputs = outputs.length == 0 ? EnumSet.noneOf(Output.class) : EnumSet.of(outputs[0],outputs);
+        this.optimizations = optimizations.isEmpty() ? EnumSet.noneOf(Optimization.class) : EnumSet.copyOf(optimizations);
+    }
+    
+    public Set<Output> getOutputs() {
+        return Collections.unmodifiableSet(outputs);
+    }
+    
+    public Set<Optimization> getOptimizations() {
+        return Collections.unmodifiableSet(optimizations);
+    }
+    
+    public CompilationResult compile(String source) throws LexicalAnalyzerException, SyntaxAnalyzerException, SemanticAnalyzerException {
+        return compile(ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII)));
+    }
+    
+    public CompilationResult compile(Path path) throws IOException, LexicalAnalyzerException, SyntaxAnalyzerException, SemanticAnalyzerException {
+        return compile(LexicalAnalyzer.mapFile(path));
+    }
+    
+    // Lexes the whole source, then parses and checks it only if the tree, symbol
+    // table or code were asked for. The tree comes from the ProgramTree pipeline;
+    // otherwise the flat pipeline is used, since it's faster and its tree is
+    // never handed back.
+    public CompilationResult compile(ByteBuffer source) throws LexicalAnalyzerException, SyntaxAnalyzerException, SemanticAnalyzerException {
+        Workspace workspace = workspaces.get();
+        workspace.clear();
+        CompilationResult result = new CompilationResult();
+        long start = System.nanoTime();
+        boolean wantsTree = outputs.contains(Output.TREE);
+        TokenBuffer tokens = wantsTree ? new TokenBuffer(Math.max(16,source.remaining() / 4)) : workspace.tokens;
+        LexicalAnalyzer.parseByteBufferToTokenBuffer(source,tokens);
+        if(outputs.contains(Output.TOKENS)) {
+            result.setTokens(tokens.toList());
+        }
+        long lexed = System.nanoTime();
+        result.setLexNanos(lexed - start);
+        
+        if(wantsTree) {
+            ProgramTree programTree = new SyntaxAnalyzer(tokens).getProgramTree();
+            result.setProgramTree(programTree);
+            if(outputs.contains(Output.SYMBOL_TABLE)) {
+                result.setSymbolTable(programTree.getSymbolTable());
+            }
+            long parsed = System.nanoTime();
+            result.setParseNanos(parsed - lexed);
+            if(outputs.contains(Output.CODE)) {
+                result.setCode(optimize(Compiler.generateCodeFromProgramTree(programTree,workspace.context)));
+            }
+            result.setGenerateNanos(System.nanoTime() - parsed);
+        } else if(outputs.contains(Output.SYMBOL_TABLE) || outputs.contains(Output.CODE)) {
+            FlatProgramTree flatTree = new SyntaxAnalyzer(tokens).getFlatProgramTree(workspace.flatTree);
+            if(outputs.contains(Output.SYMBOL_TABLE)) {
+                result.setSymbolTable(getSymbolTable(flatTree));
+            }
+            long parsed = System.nanoTime();
+            result.setParseNanos(parsed - lexed);
+            if(outputs.contains(Output.CODE)) {
+                result.setCode(optimize(Compiler.generateCodeFromFlatProgramTree(flatTree,workspace.context)));
+            }
+            result.setGenerateNanos(System.nanoTime() - parsed);
+        }
+        return result;
+    }
+    
+    // Runs the optimizations asked for over the code, which comes back as a list
+    // of its own rather than the workspace's
+    private List<ThreeAddressCode> optimize(List<ThreeAddressCode> code) {
+        if(optimizations.isEmpty()) {
+            return new ArrayList<>(code);
+        }
+        PackedCode packedCode = PackedCode.fromThreeAddressCode(code);
+        if(optimizations.contains(Optimization.CONSTANT_FOLDING)) {
+            ConstantFolder.foldConstants(packedCode);
+        }
+        if(optimizations.contains(Optimization.COPY_PROPAGATION)) {
+            CopyPropagator.propagateCopies(packedCode);
+        }
+        return packedCode.toThreeAddressCode();
+    }
+    
+    private static Map<String, TokenType> getSymbolTable(FlatProgramTree flatTree) {
+        TokenType[] symbolTypes = flatTree.getSymbolTypes();
+        Map<String,TokenType> symbolTable = new HashMap<>();
+        for(int identId = 0; identId < symbolTypes.length; identId++) {
+            if(symbolTypes[identId] != null) {
+                symbolTable.put(flatTree.getInternPool().getString(identId),symbolTypes[identId]);
+            }
+        }
+        return symbolTable;
+    }
+    
+}
@@ -24,6 +24,7 @@
 
 package edu.tarleton.welborn.medusacompiler.compiler;
 
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzerException;
 import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
 import edu.tarleton.welborn.medusacompiler.syntax.AddTree;
 import edu.tarleton.welborn.medusacompiler.syntax.AssignmentTree;
@@ -34,14 +35,21 @@ import edu.tarleton.welborn.medusacompiler.syntax.DeclarationTree;
 import edu.tarleton.welborn.medusacompiler.syntax.ExpTree;
 import edu.tarleton.welborn.medusacompiler.syntax.ExpressionTree;
 import edu.tarleton.welborn.medusacompiler.syntax.FactorTree;
+import edu.tarleton.welborn.medusacompiler.syntax.FlatProgramTree;
 import edu.tarleton.welborn.medusacompiler.syntax.ForLoopTree;
 import edu.tarleton.welborn.medusacompiler.syntax.IfTree;
 import edu.tarleton.welborn.medusacompiler.syntax.MultiplyTree;
 import edu.tarleton.welborn.medusacompiler.syntax.PowerTree;
 import edu.tarleton.welborn.medusacompiler.syntax.ProgramTree;
-import edu.tarleton.welborn.medusacompiler.syntax.StatementTree;
+import edu.tarleton.welborn.medusacompiler.syntax.SemanticAnalyzer;
+import edu.tarleton.welborn.medusacompiler.syntax.SemanticAnalyzerException;
+import edu.tarleton.welborn.medusacompiler.syntax.StatementVisitor;
 import edu.tarleton.welborn.medusacompiler.syntax.StatementsTree;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzer;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzerException;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxNodeKind;
 import edu.tarleton.welborn.medusacompiler.syntax.TermTree;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,7 +64,7 @@ public class Compiler {
     //    
     //}
     
-    private static String generateCodeFromConcatTreeAndReturnVariable(ConcatTree concatTree,CompilerContext context,String atomTreeIdentifier1) {
+    private static int generateCodeFromConcatTreeAndReturnVariable(ConcatTree concatTree,CompilerContext context,int atomTreeIdentifier1) {
         // My thoughts for this function:
         // Take in two character arrays as pointers, atomTreeIdentifier1 and atomTreeIdentifier2,
         // initialize a character array, then generate a for loop (either manually or by creating a
@@ -65,78 +73,60 @@ public class Compiler {
         
         // Or maybe not, I don't know.
         
-        String atomTreeIndentifier2 = generateCodeFromAtomTreeAndReturnVariable(concatTree.getAtom(),context);
-        String identifier = context.getNextTempVariable();
-        
-        ThreeAddressCodeOperator op = ThreeAddressCodeOperator.CONCAT;
-                
-        context.getTACResults().add(new ThreeAddressCode(
-                identifier,
-                op,
-                atomTreeIdentifier1,
-                atomTreeIndentifier2
-        ));
-        
-        if(concatTree.getConcat() != null) {
-            return generateCodeFromConcatTreeAndReturnVariable(concatTree.getConcat(),context,identifier);
-        } else {
-            return identifier;
+        // The chain is walked with a loop, each result feeding the next concatenation
+        int identifier = atomTreeIdentifier1;
+        for(; concatTree != null; concatTree = concatTree.getConcat()) {
+            int atomTreeIndentifier2 = generateCodeFromAtomTreeAndReturnVariable(concatTree.getAtom(),context);
+            int concatIdentifier = context.getNextTemp();
+            
+            ThreeAddressCodeOperator op = ThreeAddressCodeOperator.CONCAT;
+            
+            context.add(
+                    concatIdentifier,
+                    op,
+                    identifier,
+                    atomTreeIndentifier2
+            );
+            identifier = concatIdentifier;
         }
+        return identifier;
     }
     
-    private static String generateCodeFromAtomTreeAndReturnVariable(AtomTree atomTree,CompilerContext context) {
-        String identifier = null;
-        if(atomTree.getAtomValue().getType() == TokenType.IDENT) {
-            identifier = atomTree.getAtomValue().getStringValue();
-        } else {
-            // _t
-            identifier = context.getNextTempVariable();
-            switch(atomTree.getAtomValue().getType()) {
-                case INT_VALUE:
-                    // _t = int
-                    context.getTACResults().add(new ThreeAddressCode(
-                            identifier,
-                            ThreeAddressCodeOperator.ASSIGN,
-                            String.valueOf(atomTree.getAtomValue().getIntValue())
-                    ));
-                    break;
-                case FLOAT_VALUE:
-                    // _t = float
-                    context.getTACResults().add(new ThreeAddressCode(
-                            identifier,
-                            ThreeAddressCodeOperator.ASSIGN,
-                            String.valueOf(atomTree.getAtomValue().getFloatValue())
-                    ));
-                    break;
-                case STRING_VALUE:
-                    // _t = string
-                    context.getTACResults().add(new ThreeAddressCode(
-                            identifier,
-                            ThreeAddressCodeOperator.ASSIGN,
-                            '"'+atomTree.getAtomValue().getStringValue()+'"'
-                    ));
-                    break;
-                case LEFT_PARENTHESES:
-                    // _t = ( expr )
-                    String expressionIdentifier = generateCodeFromExpressionTreeAndReturnVariable(atomTree.getAtomValue().getExpression(),context);
-                    context.getTACResults().add(new ThreeAddressCode(
-                            identifier,
-                            ThreeAddressCodeOperator.ASSIGN,
-                            expressionIdentifier
-                    ));
-            }
+    private static int generateCodeFromAtomTreeAndReturnVariable(AtomTree atomTree,CompilerContext context) {
+        // Variables and literals are used where they are, only a parenthesized
+        // expression is given a temp
+        int identifier = PackedCode.NO_OPERAND;
+        switch(atomTree.getAtomValue().getType()) {
+            case IDENT:
+                identifier = context.getVariable(atomTree.getAtomValue().getSlot());
+                break;
+            case INT_VALUE:
+                identifier = context.getIntConstant(atomTree.getAtomValue().getIntValue());
+                break;
+            case FLOAT_VALUE:
+                identifier = context.getFloatConstant(atomTree.getAtomValue().getFloatValue());
+                break;
+            case STRING_VALUE:
+                identifier = context.getStringConstant(atomTree.getAtomValue().getInternId(),atomTree.getAtomValue().getStringValue());
+                break;
+            case LEFT_PARENTHESES:
+                // _t = ( expr )
+                identifier = context.getNextTemp();
+                int expressionIdentifier = generateCodeFromExpressionTreeAndReturnVariable(atomTree.getAtomValue().getExpression(),context);
+                context.add(
+                        identifier,
+                        ThreeAddressCodeOperator.ASSIGN,
+                        expressionIdentifier
+                );
         }
         
         // Leave all unary operations for the end of calculations
         if(atomTree.getUnaryOperator() != null) {
-            String newIdentifier = context.getNextTempVariable();
+            int newIdentifier = context.getNextTemp();
             ThreeAddressCodeOperator op = null;
             
             TokenType convertToValue = atomTree.getUnaryOperator();
-            TokenType convertFromValue = atomTree.getAtomValue().getType();
-            if(convertFromValue == TokenType.IDENT) {
-                convertFromValue = context.getSymbolTable().get(atomTree.getAtomValue().getStringValue());
-            }
+            TokenType convertFromValue = atomTree.getAtomValue().getDataType();
             
             switch(convertToValue) {
                 case UNARY_INT_CONVERSION:
@@ -168,11 +158,11 @@ public class Compiler {
                     break;
             }
             
-            context.getTACResults().add(new ThreeAddressCode(
+            context.add(
                     newIdentifier,
                     op,
                     identifier
-            ));
+            );
             
             return newIdentifier;
         } else {
@@ -180,30 +170,8 @@ public class Compiler {
         }
     }
     
-    private static String generateCodeFromPowerTreeAndReturnVariable(PowerTree powerTree,CompilerContext context) {
-        // See comment in generateCodeFromFactorTreeAndReturnVariable
-        
-        if(powerTree.getPower() == null) {
-            return generateCodeFromExpTreeAndReturnVariable(powerTree.getExp(),context);
-        } else {
-            // _t1
-            String powerTreeIdentifier = generateCodeFromPowerTreeAndReturnVariable(powerTree.getPower(),context);
-            // 3
-            String expTreeIdentifier = generateCodeFromExpTreeAndReturnVariable(powerTree.getExp(),context);
-            // 3 ^ _t1
-            String powerTreeIdentifier2 = context.getNextTempVariable();
-            context.getTACResults().add(new ThreeAddressCode(
-                    powerTreeIdentifier2,
-                    ThreeAddressCodeOperator.POW,
-                    expTreeIdentifier,
-                    powerTreeIdentifier
-            ));
-            return powerTreeIdentifier2;
-        }
-    }
-    
-    private static String generateCodeFromExpTreeAndReturnVariable(ExpTree expTree,CompilerContext context) {
-        String atomTreeIdentifier = generateCodeFromAtomTreeAndReturnVariable(expTree.getAtom(),context);
+    private static int generateCodeFromExpTreeAndReturnVariable(ExpTree expTree,CompilerContext context) {
+        int atomTreeIdentifier = generateCodeFromAtomTreeAndReturnVariable(expTree.getAtom(),context);
         if(expTree.getConcat() != null) {
             return generateCodeFromConcatTreeAndReturnVariable(expTree.getConcat(),context,atomTreeIdentifier);
         } else {
@@ -211,37 +179,37 @@ public class Compiler {
         }
     }
     
-    private static String generateCodeFromMultiplyTreeAndReturnVariable(MultiplyTree multiplyTree,CompilerContext context,String factorTreeIndentifier1) {
-        String factorTreeIndentifier2 = generateCodeFromFactorTreeAndReturnVariable(multiplyTree.getFactor(),context);
-        String identifier = context.getNextTempVariable();
-        
-        ThreeAddressCodeOperator op = null;
-        switch(multiplyTree.getOperator()) {
-            case MULTIPLY:
-                op = ThreeAddressCodeOperator.MUL;
-                break;
-            case DIVIDE:
-                op = ThreeAddressCodeOperator.DIV;
-                break;
-            case MODULO:
-                op = ThreeAddressCodeOperator.MOD;
-                break;
-        }
-                
-        context.getTACResults().add(new ThreeAddressCode(
-                identifier,
-                op,
-                factorTreeIndentifier1,
-                factorTreeIndentifier2
-        ));
-        if(multiplyTree.getMultiply() != null) {
-            return generateCodeFromMultiplyTreeAndReturnVariable(multiplyTree.getMultiply(),context,identifier);
-        } else {
-            return identifier;
+    private static int generateCodeFromMultiplyTreeAndReturnVariable(MultiplyTree multiplyTree,CompilerContext context,int factorTreeIndentifier1) {
+        int identifier = factorTreeIndentifier1;
+        for(; multiplyTree != null; multiplyTree = multiplyTree.getMultiply()) {
+            int factorTreeIndentifier2 = generateCodeFromFactorTreeAndReturnVariable(multiplyTree.getFactor(),context);
+            int multiplyIdentifier = context.getNextTemp();
+            
+            ThreeAddressCodeOperator op = null;
+            switch(multiplyTree.getOperator()) {
+                case MULTIPLY:
+                    op = ThreeAddressCodeOperator.MUL;
+                    break;
+                case DIVIDE:
+                    op = ThreeAddressCodeOperator.DIV;
+                    break;
+                case MODULO:
+                    op = ThreeAddressCodeOperator.MOD;
+                    break;
+            }
+            
+            context.add(
+                    multiplyIdentifier,
+                    op,
+                    identifier,
+                    factorTreeIndentifier2
+            );
+            identifier = multiplyIdentifier;
         }
+        return identifier;
     }
     
-    private static String generateCodeFromFactorTreeAndReturnVariable(FactorTree factorTree,CompilerContext context) {
+    private static int generateCodeFromFactorTreeAndReturnVariable(FactorTree factorTree,CompilerContext context) {
         // This is a right associative operator, so we're doing something a little different.
         // If the power tree exists, then calculate it first and get a variable result, then pass
         // that to the exponent tree. Doing so will force the compiler to evaluate the rightmost exponent first,
@@ -253,44 +221,55 @@ public class Compiler {
         // 5 has no power tree, so we evaluate it and return it as _t1
         // 3^_t1 is evaluated and returned as _t2
         // 2^_t2 is evaluated and returned as _t3
+        // Rather than recursing down the chain, the exps are gathered up first and
+        // then evaluated from the rightmost one back to the left.
         
         if(factorTree.getPower() == null) {
             return generateCodeFromExpTreeAndReturnVariable(factorTree.getExp(),context);
-        } else {
-            // _t1
-            String powerTreeIdentifier = generateCodeFromPowerTreeAndReturnVariable(factorTree.getPower(),context);
+        }
+        
+        List<ExpTree> expTrees = new ArrayList<>();
+        expTrees.add(factorTree.getExp());
+        for(PowerTree powerTree = factorTree.getPower(); powerTree != null; powerTree = powerTree.getPower()) {
+            expTrees.add(powerTree.getExp());
+        }
+        
+        // _t1
+        int powerTreeIdentifier = generateCodeFromExpTreeAndReturnVariable(expTrees.get(expTrees.size() - 1),context);
+        for(int i = expTrees.size() - 2; i >= 0; i--) {
             // 3
-            String expTreeIdentifier = generateCodeFromExpTreeAndReturnVariable(factorTree.getExp(),context);
+            int expTreeIdentifier = generateCodeFromExpTreeAndReturnVariable(expTrees.get(i),context);
             // 3 ^ _t1
-            String factorTreeIdentifier = context.getNextTempVariable();
-            context.getTACResults().add(new ThreeAddressCode(
+            int factorTreeIdentifier = context.getNextTemp();
+            context.add(
                     factorTreeIdentifier,
                     ThreeAddressCodeOperator.POW,
                     expTreeIdentifier,
                     powerTreeIdentifier
-            ));
-            return factorTreeIdentifier;
+            );
+            powerTreeIdentifier = factorTreeIdentifier;
         }
+        return powerTreeIdentifier;
     }
     
-    private static String generateCodeFromAddTreeAndReturnVariable(AddTree addTree,CompilerContext context,String termTreeIdentifier1) {
-        String termTreeIdentifier2 = generateCodeFromTermTreeAndReturnVariable(addTree.getTermTree(),context);
-        String identifier = context.getNextTempVariable();
-        context.getTACResults().add(new ThreeAddressCode(
-                identifier,
-                addTree.getOperator() == TokenType.PLUS ? ThreeAddressCodeOperator.ADD : ThreeAddressCodeOperator.SUB,
-                termTreeIdentifier1,
-                termTreeIdentifier2
-        ));
-        if(addTree.getAddTree() != null) {
-            return generateCodeFromAddTreeAndReturnVariable(addTree.getAddTree(),context,identifier);
-        } else {
-            return identifier;
+    private static int generateCodeFromAddTreeAndReturnVariable(AddTree addTree,CompilerContext context,int termTreeIdentifier1) {
+        int identifier = termTreeIdentifier1;
+        for(; addTree != null; addTree = addTree.getAddTree()) {
+            int termTreeIdentifier2 = generateCodeFromTermTreeAndReturnVariable(addTree.getTermTree(),context);
+            int addIdentifier = context.getNextTemp();
+            context.add(
+                    addIdentifier,
+                    addTree.getOperator() == TokenType.PLUS ? ThreeAddressCodeOperator.ADD : ThreeAddressCodeOperator.SUB,
+                    identifier,
+                    termTreeIdentifier2
+            );
+            identifier = addIdentifier;
         }
+        return identifier;
     }
     
-    private static String generateCodeFromTermTreeAndReturnVariable(TermTree termTree,CompilerContext context) {
-        String factorTreeIdentifier = generateCodeFromFactorTreeAndReturnVariable(termTree.getFactor(),context);
+    private static int generateCodeFromTermTreeAndReturnVariable(TermTree termTree,CompilerContext context) {
+        int factorTreeIdentifier = generateCodeFromFactorTreeAndReturnVariable(termTree.getFactor(),context);
         if(termTree.getMultiply() != null) {
             return generateCodeFromMultiplyTreeAndReturnVariable(termTree.getMultiply(),context,factorTreeIdentifier);
         } else {
@@ -298,8 +277,8 @@ public class Compiler {
         }
     }
     
-    private static String generateCodeFromExpressionTreeAndReturnVariable(ExpressionTree expressionTree,CompilerContext context) {
-        String termTreeIdentifier = generateCodeFromTermTreeAndReturnVariable(expressionTree.getTerm(),context);
+    private static int generateCodeFromExpressionTreeAndReturnVariable(ExpressionTree expressionTree,CompilerContext context) {
+        int termTreeIdentifier = generateCodeFromTermTreeAndReturnVariable(expressionTree.getTerm(),context);
         if(expressionTree.getAdd() != null) {
             return generateCodeFromAddTreeAndReturnVariable(expressionTree.getAdd(),context,termTreeIdentifier);
         } else {
@@ -307,10 +286,10 @@ public class Compiler {
         }
     }
     
-    private static String generateCodeFromConditionTreeAndReturnVariable(ConditionTree conditionTree,CompilerContext context) {
-        String expressionIdent1 = generateCodeFromExpressionTreeAndReturnVariable(conditionTree.getExpression1(),context);
-        String expressionIdent2 = generateCodeFromExpressionTreeAndReturnVariable(conditionTree.getExpression2(),context);
-        String resultIdent = context.getNextTempVariable();
+    private static int generateCodeFromConditionTreeAndReturnVariable(ConditionTree conditionTree,CompilerContext context) {
+        int expressionIdent1 = generateCodeFromExpressionTreeAndReturnVariable(conditionTree.getExpression1(),context);
+        int expressionIdent2 = generateCodeFromExpressionTreeAndReturnVariable(conditionTree.getExpression2(),context);
+        int resultIdent = context.getNextTemp();
         
         ThreeAddressCodeOperator op = null;
         switch(conditionTree.getConditionalOperator()) {
@@ -334,12 +313,12 @@ public class Compiler {
                 break;
         }
         
-        context.getTACResults().add(new ThreeAddressCode(
+        context.add(
                 resultIdent,
                 op,
                 expressionIdent1,
                 expressionIdent2
-        ));
+        );
         
         return resultIdent;
     }
@@ -347,30 +326,30 @@ public class Compiler {
     private static void generateCodeFromForLoopTree(ForLoopTree forLoopTree,CompilerContext context) {
         // If we need to do any assignment to our for loop variable, then do it now
         if(forLoopTree.getForLoopVariable().getOptionalAssignment() != null) {
-            String expressionIdent = generateCodeFromExpressionTreeAndReturnVariable(forLoopTree.getForLoopVariable().getOptionalAssignment().getExpression(),context);
+            int expressionIdent = generateCodeFromExpressionTreeAndReturnVariable(forLoopTree.getForLoopVariable().getOptionalAssignment().getExpression(),context);
             
-            context.getTACResults().add(new ThreeAddressCode(
-                    forLoopTree.getForLoopVariable().getIdent(),
+            context.add(
+                    context.getVariable(forLoopTree.getForLoopVariable().getSlot()),
                     ThreeAddressCodeOperator.ASSIGN,
                     expressionIdent
-            ));
+            );
         }
         
-        String forLoopBeginLabel = context.getNextTempVariable("label");
-        String forLoopEndLabel = context.getNextTempVariable("label");
+        int forLoopBeginLabel = context.getNextLabel();
+        int forLoopEndLabel = context.getNextLabel();
         
         // Check the condition, if it's false, skip the loop
-        String conditionIdent = generateCodeFromConditionTreeAndReturnVariable(forLoopTree.getCondition(),context);
-        context.getTACResults().add(new ThreeAddressCode(
+        int conditionIdent = generateCodeFromConditionTreeAndReturnVariable(forLoopTree.getCondition(),context);
+        context.add(
                 forLoopEndLabel,
                 ThreeAddressCodeOperator.JMP_IF_FALSE,
                 conditionIdent
-        ));
+        );
         
-        context.getTACResults().add(new ThreeAddressCode(
+        context.add(
                 forLoopBeginLabel,
                 ThreeAddressCodeOperator.LABEL
-        ));
+        );
         
         // Generate the body of the loop (if it's not epsilon)
         if(forLoopTree.getStatementBlock() != null) {
@@ -381,17 +360,17 @@ public class Compiler {
         generateCodeFromAssignmentTree(forLoopTree.getAssignment(),context);
         
         // Check the condition, if it's true, loop again
-        String conditionIdent2 = generateCodeFromConditionTreeAndReturnVariable(forLoopTree.getCondition(),context);
-        context.getTACResults().add(new ThreeAddressCode(
+        int conditionIdent2 = generateCodeFromConditionTreeAndReturnVariable(forLoopTree.getCondition(),context);
+        context.add(
                 forLoopBeginLabel,
                 ThreeAddressCodeOperator.JMP_IF_TRUE,
                 conditionIdent2
-        ));
+        );
         
-        context.getTACResults().add(new ThreeAddressCode(
+        context.add(
                 forLoopEndLabel,
                 ThreeAddressCodeOperator.LABEL
-        ));
+        );
     }
     
     private static void generateCodeFromDeclarationTree(DeclarationTree declarationTree,CompilerContext context) {
@@ -399,115 +378,435 @@ public class Compiler {
         if(declarationTree.getOptionalExpression() != null) {
             // Generate the code for the expression, get the variable pointing to it, then
             // assign that value to the identifier
-            String expressionIdent = generateCodeFromExpressionTreeAndReturnVariable(declarationTree.getOptionalExpression(),context);
+            int expressionIdent = generateCodeFromExpressionTreeAndReturnVariable(declarationTree.getOptionalExpression(),context);
             
-            context.getTACResults().add(new ThreeAddressCode(
-                    declarationTree.getIdent(),
+            context.add(
+                    context.getVariable(declarationTree.getSlot()),
                     ThreeAddressCodeOperator.ASSIGN,
                     expressionIdent
-            ));
+            );
         }
     }
     
     private static void generateCodeFromAssignmentTree(AssignmentTree assignmentTree,CompilerContext context) {
-        String expressionIdent = generateCodeFromExpressionTreeAndReturnVariable(assignmentTree.getExpression(),context);
+        int expressionIdent = generateCodeFromExpressionTreeAndReturnVariable(assignmentTree.getExpression(),context);
             
-        context.getTACResults().add(new ThreeAddressCode(
-                assignmentTree.getIdent(),
+        context.add(
+                context.getVariable(assignmentTree.getSlot()),
                 ThreeAddressCodeOperator.ASSIGN,
                 expressionIdent
-        ));
+        );
     }
     
     private static void generateCodeFromIfTree(IfTree ifTree,CompilerContext context) {
         if(ifTree.getElseStatement() != null) {
             // ifElse
-            String ifStatementElseLabel = context.getNextTempVariable("label");
-            String ifStatementEndLabel = context.getNextTempVariable("label");
+            int ifStatementElseLabel = context.getNextLabel();
+            int ifStatementEndLabel = context.getNextLabel();
         
             // Check the condition, if it's false, skip to else
-            String conditionIdent = generateCodeFromConditionTreeAndReturnVariable(ifTree.getCondition(),context);
-            context.getTACResults().add(new ThreeAddressCode(
+            int conditionIdent = generateCodeFromConditionTreeAndReturnVariable(ifTree.getCondition(),context);
+            context.add(
                     ifStatementElseLabel,
                     ThreeAddressCodeOperator.JMP_IF_FALSE,
                     conditionIdent
-            ));
+            );
 
             // Generate the body of the if statement (if it's not epsilon)
             if(ifTree.getStatements() != null) {
                 generateCodeFromStatementsTree(ifTree.getStatements(),context);
                 // Generate a jump so that we don't run the else condition statements
-                context.getTACResults().add(new ThreeAddressCode(
+                context.add(
                         ifStatementEndLabel,
                         ThreeAddressCodeOperator.JMP,
                         conditionIdent
-                ));
+                );
             }
             
             // Generate the body of the else statement (if it's not epsilon)
-            context.getTACResults().add(new ThreeAddressCode(
+            context.add(
                     ifStatementElseLabel,
                     ThreeAddressCodeOperator.LABEL
-            ));
+            );
             if(ifTree.getElseStatement().getStatementBlock() != null) {
                 generateCodeFromStatementsTree(ifTree.getElseStatement().getStatementBlock(),context);
             }
 
-            context.getTACResults().add(new ThreeAddressCode(
+            context.add(
                     ifStatementEndLabel,
                     ThreeAddressCodeOperator.LABEL
-            ));
+            );
         } else {
             // if
-            String ifStatementEndLabel = context.getNextTempVariable("label");
+            int ifStatementEndLabel = context.getNextLabel();
         
             // Check the condition, if it's false, skip the statement
-            String conditionIdent = generateCodeFromConditionTreeAndReturnVariable(ifTree.getCondition(),context);
-            context.getTACResults().add(new ThreeAddressCode(
+            int conditionIdent = generateCodeFromConditionTreeAndReturnVariable(ifTree.getCondition(),context);
+            context.add(
                     ifStatementEndLabel,
                     ThreeAddressCodeOperator.JMP_IF_FALSE,
                     conditionIdent
-            ));
+            );
 
             // Generate the body of the if statement (if it's not epsilon)
             if(ifTree.getStatements() != null) {
                 generateCodeFromStatementsTree(ifTree.getStatements(),context);
             }
 
-            context.getTACResults().add(new ThreeAddressCode(
+            context.add(
                     ifStatementEndLabel,
                     ThreeAddressCodeOperator.LABEL
-            ));
+            );
         }
     }
     
-    private static void generateCodeFromStatementTree(StatementTree statementTree,CompilerContext context) {
-        // I know, I know, this is bad software engineering. It's OKAY, maybe, I'm not sure. I'll refactor later
-        // if I have the time.
-        if(statementTree instanceof AssignmentTree) {
-            generateCodeFromAssignmentTree((AssignmentTree) statementTree,context);
-        } else if (statementTree instanceof DeclarationTree) {
-            generateCodeFromDeclarationTree((DeclarationTree) statementTree,context);
-        } else if (statementTree instanceof ForLoopTree) {
-            generateCodeFromForLoopTree((ForLoopTree) statementTree,context);
-        } else if (statementTree instanceof IfTree) {
-            generateCodeFromIfTree((IfTree) statementTree,context);
+    // Sends each kind of statement to its own generator
+    private static class StatementGenerator implements StatementVisitor<Void,RuntimeException> {
+        
+        private final CompilerContext context;
+        
+        public StatementGenerator(CompilerContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public Void visitAssignment(AssignmentTree assignment) {
+            generateCodeFromAssignmentTree(assignment,context);
+            return null;
+        }
+
+        @Override
+        public Void visitDeclaration(DeclarationTree declaration) {
+            generateCodeFromDeclarationTree(declaration,context);
+            return null;
+        }
+
+        @Override
+        public Void visitForLoop(ForLoopTree forLoop) {
+            generateCodeFromForLoopTree(forLoop,context);
+            return null;
+        }
+
+        @Override
+        public Void visitIf(IfTree ifTree) {
+            generateCodeFromIfTree(ifTree,context);
+            return null;
         }
+        
     }
     
     private static void generateCodeFromStatementsTree(StatementsTree statementsTree,CompilerContext context) {
-        generateCodeFromStatementTree(statementsTree.getStatement(),context);
-        if(statementsTree.getStatements() != null) {
-            generateCodeFromStatementsTree(statementsTree.getStatements(),context);
+        for(; statementsTree != null; statementsTree = statementsTree.getStatements()) {
+            statementsTree.getStatement().accept(context.getStatementGenerator());
         }
     }
     
     public static List<ThreeAddressCode> generateCodeFromProgramTree(ProgramTree programTree) {
-        CompilerContext context = new CompilerContext();
-        context.setSymbolTable(programTree.getSymbolTable());
+        return generateCodeFromProgramTree(programTree,new CompilerContext());
+    }
+    
+    // Generates the code into the given context, which can be a cleared one being
+    // reused between compilations
+    public static List<ThreeAddressCode> generateCodeFromProgramTree(ProgramTree programTree, CompilerContext context) {
+        if(context.getStatementGenerator() == null) {
+            context.setStatementGenerator(new StatementGenerator(context));
+        }
+        
+        if(programTree.getStatements() != null) {
+            generateCodeFromStatementsTree(programTree.getStatements(),context);
+        }
+        context.setVariableNames(programTree.getSlotNames());
+        
+        return context.getTACResults();
+    }
+    
+    // The same code generation over a FlatProgramTree. Temps and labels are taken
+    // in the same order as above, so both trees compile to the same code.
+    private static ThreeAddressCodeOperator getOperatorOfFlatNode(TokenType operator) {
+        switch(operator) {
+            case PLUS:
+                return ThreeAddressCodeOperator.ADD;
+            case MINUS:
+                return ThreeAddressCodeOperator.SUB;
+            case MULTIPLY:
+                return ThreeAddressCodeOperator.MUL;
+            case DIVIDE:
+                return ThreeAddressCodeOperator.DIV;
+            case MODULO:
+                return ThreeAddressCodeOperator.MOD;
+            case POWER:
+                return ThreeAddressCodeOperator.POW;
+            case CONCATENATE:
+                return ThreeAddressCodeOperator.CONCAT;
+            case LESS_THAN:
+                return ThreeAddressCodeOperator.IS_LESS_THAN;
+            case GREATER_THAN:
+                return ThreeAddressCodeOperator.IS_GREATER_THAN;
+            case LESS_THAN_OR_EQUAL:
+                return ThreeAddressCodeOperator.IS_LESS_THAN_OR_EQUAL;
+            case GREATER_THAN_OR_EQUAL:
+                return ThreeAddressCodeOperator.IS_GREATER_THAN_OR_EQUAL;
+            case EQUAL:
+                return ThreeAddressCodeOperator.IS_EQUAL;
+            case NOT_EQUAL:
+                return ThreeAddressCodeOperator.IS_NOT_EQUAL;
+            default:
+                return null;
+        }
+    }
+    
+    private static int generateCodeFromFlatConversionAndReturnVariable(FlatProgramTree tree,int node,CompilerContext context) {
+        int atom = tree.getFirstChild(node);
+        int identifier = generateCodeFromFlatNodeAndReturnVariable(tree,atom,context);
+        int newIdentifier = context.getNextTemp();
         
-        generateCodeFromStatementsTree(programTree.getStatements(),context);
+        TokenType convertFromValue = tree.getType(atom);
+        ThreeAddressCodeOperator op = null;
+        switch(tree.getOperator(node)) {
+            case UNARY_INT_CONVERSION:
+                if(convertFromValue == TokenType.FLOAT_VALUE) {
+                    op = ThreeAddressCodeOperator.CONVERT_FLOAT_TO_INT;
+                } else if(convertFromValue == TokenType.STRING_VALUE) {
+                    op = ThreeAddressCodeOperator.CONVERT_STRING_TO_INT;
+                }
+                break;
+            case UNARY_FLOAT_CONVERSION:
+                if(convertFromValue == TokenType.INT_VALUE) {
+                    op = ThreeAddressCodeOperator.CONVERT_INT_TO_FLOAT;
+                } else if(convertFromValue == TokenType.STRING_VALUE) {
+                    op = ThreeAddressCodeOperator.CONVERT_STRING_TO_FLOAT;
+                }
+                break;
+            case UNARY_STRING_CONVERSION:
+                if(convertFromValue == TokenType.INT_VALUE) {
+                    op = ThreeAddressCodeOperator.CONVERT_INT_TO_STRING;
+                } else if(convertFromValue == TokenType.FLOAT_VALUE) {
+                    op = ThreeAddressCodeOperator.CONVERT_FLOAT_TO_STRING;
+                }
+                break;
+        }
+        if(op == null) {
+            return identifier; // No conversion necessary
+        }
+        
+        context.add(
+                newIdentifier,
+                op,
+                identifier
+        );
+        return newIdentifier;
+    }
+    
+    private static int generateCodeFromFlatChainAndReturnVariable(FlatProgramTree tree,int node,CompilerContext context) {
+        int[] chain = tree.getChain(node);
+        int[] operands = tree.getChainOperands(chain);
+        
+        if(tree.getOperator(node) == TokenType.POWER) {
+            // Right associative, so the rightmost exp is evaluated first
+            int powerIdentifier = generateCodeFromFlatNodeAndReturnVariable(tree,operands[operands.length - 1],context);
+            for(int i = chain.length - 1; i >= 0; i--) {
+                int expIdentifier = generateCodeFromFlatNodeAndReturnVariable(tree,operands[i],context);
+                int factorIdentifier = context.getNextTemp();
+                context.add(
+                        factorIdentifier,
+                        ThreeAddressCodeOperator.POW,
+                        expIdentifier,
+                        powerIdentifier
+                );
+                powerIdentifier = factorIdentifier;
+            }
+            return powerIdentifier;
+        }
         
+        int identifier = generateCodeFromFlatNodeAndReturnVariable(tree,operands[0],context);
+        for(int i = 0; i < chain.length; i++) {
+            int identifier2 = generateCodeFromFlatNodeAndReturnVariable(tree,operands[i + 1],context);
+            int resultIdentifier = context.getNextTemp();
+            context.add(
+                    resultIdentifier,
+                    getOperatorOfFlatNode(tree.getOperator(chain[i])),
+                    identifier,
+                    identifier2
+            );
+            identifier = resultIdentifier;
+        }
+        return identifier;
+    }
+    
+    private static int generateCodeFromFlatNodeAndReturnVariable(FlatProgramTree tree,int node,CompilerContext context) {
+        int identifier;
+        switch(tree.getKind(node)) {
+            case IDENT:
+                return context.getVariable(tree.getSlot(node));
+            case INT_VALUE:
+                return context.getIntConstant(tree.getIntValue(node));
+            case FLOAT_VALUE:
+                return context.getFloatConstant(tree.getFloatValue(node));
+            case STRING_VALUE:
+                return context.getStringConstant(tree.getPayload(node),tree.getStringValue(node));
+            case PARENTHESES:
+                identifier = context.getNextTemp();
+                int expressionIdentifier = generateCodeFromFlatNodeAndReturnVariable(tree,tree.getFirstChild(node),context);
+                context.add(
+                        identifier,
+                        ThreeAddressCodeOperator.ASSIGN,
+                        expressionIdentifier
+                );
+                return identifier;
+            case CONVERSION:
+                return generateCodeFromFlatConversionAndReturnVariable(tree,node,context);
+            case BINARY:
+                return generateCodeFromFlatChainAndReturnVariable(tree,node,context);
+            case CONDITION:
+                int expressionIdent1 = generateCodeFromFlatNodeAndReturnVariable(tree,tree.getFirstChild(node),context);
+                int expressionIdent2 = generateCodeFromFlatNodeAndReturnVariable(tree,tree.getSecondChild(node),context);
+                int resultIdent = context.getNextTemp();
+                context.add(
+                        resultIdent,
+                        getOperatorOfFlatNode(tree.getOperator(node)),
+                        expressionIdent1,
+                        expressionIdent2
+                );
+                return resultIdent;
+            default:
+                return PackedCode.NO_OPERAND;
+        }
+    }
+    
+    // Assigns the expression under an assignment, declaration or for loop variable
+    // to its ident, if there is one
+    private static void generateCodeFromFlatAssignment(FlatProgramTree tree,int node,CompilerContext context) {
+        if(tree.getFirstChild(node) >= 0) {
+            int expressionIdent = generateCodeFromFlatNodeAndReturnVariable(tree,tree.getFirstChild(node),context);
+            context.add(
+                    context.getVariable(tree.getSlot(node)),
+                    ThreeAddressCodeOperator.ASSIGN,
+                    expressionIdent
+            );
+        }
+    }
+    
+    private static void generateCodeFromFlatForLoop(FlatProgramTree tree,int node,CompilerContext context) {
+        int forLoopVariable = tree.getFirstChild(node);
+        int condition = tree.getNextSibling(forLoopVariable);
+        int assignment = tree.getNextSibling(condition);
+        int block = tree.getNextSibling(assignment);
+        
+        // Only an already declared for loop variable gets its assignment
+        if(tree.getKind(forLoopVariable) == SyntaxNodeKind.FOR_VARIABLE) {
+            generateCodeFromFlatAssignment(tree,forLoopVariable,context);
+        }
+        
+        int forLoopBeginLabel = context.getNextLabel();
+        int forLoopEndLabel = context.getNextLabel();
+        
+        int conditionIdent = generateCodeFromFlatNodeAndReturnVariable(tree,condition,context);
+        context.add(
+                forLoopEndLabel,
+                ThreeAddressCodeOperator.JMP_IF_FALSE,
+                conditionIdent
+        );
+        context.add(
+                forLoopBeginLabel,
+                ThreeAddressCodeOperator.LABEL
+        );
+        
+        generateCodeFromFlatStatements(tree,tree.getFirstChild(block),context);
+        generateCodeFromFlatAssignment(tree,assignment,context);
+        
+        int conditionIdent2 = generateCodeFromFlatNodeAndReturnVariable(tree,condition,context);
+        context.add(
+                forLoopBeginLabel,
+                ThreeAddressCodeOperator.JMP_IF_TRUE,
+                conditionIdent2
+        );
+        context.add(
+                forLoopEndLabel,
+                ThreeAddressCodeOperator.LABEL
+        );
+    }
+    
+    private static void generateCodeFromFlatIf(FlatProgramTree tree,int node,CompilerContext context) {
+        int condition = tree.getFirstChild(node);
+        int block = tree.getNextSibling(condition);
+        int elseBlock = tree.getNextSibling(block);
+        
+        int ifStatementElseLabel = elseBlock >= 0 ? context.getNextLabel() : PackedCode.NO_OPERAND;
+        int ifStatementEndLabel = context.getNextLabel();
+        
+        int conditionIdent = generateCodeFromFlatNodeAndReturnVariable(tree,condition,context);
+        context.add(
+                elseBlock >= 0 ? ifStatementElseLabel : ifStatementEndLabel,
+                ThreeAddressCodeOperator.JMP_IF_FALSE,
+                conditionIdent
+        );
+        
+        generateCodeFromFlatStatements(tree,tree.getFirstChild(block),context);
+        
+        if(elseBlock >= 0) {
+            // Skip the else statements, unless the if statements were epsilon
+            if(tree.getFirstChild(block) >= 0) {
+                context.add(
+                        ifStatementEndLabel,
+                        ThreeAddressCodeOperator.JMP,
+                        conditionIdent
+                );
+            }
+            context.add(
+                    ifStatementElseLabel,
+                    ThreeAddressCodeOperator.LABEL
+            );
+            generateCodeFromFlatStatements(tree,tree.getFirstChild(elseBlock),context);
+        }
+        
+        context.add(
+                ifStatementEndLabel,
+                ThreeAddressCodeOperator.LABEL
+        );
+    }
+    
+    // Generates a statement and every statement after it
+    private static void generateCodeFromFlatStatements(FlatProgramTree tree,int statement,CompilerContext context) {
+        for(; statement >= 0; statement = tree.getNextSibling(statement)) {
+            switch(tree.getKind(statement)) {
+                case DECLARATION:
+                case ASSIGNMENT:
+                    generateCodeFromFlatAssignment(tree,statement,context);
+                    break;
+                case IF:
+                    generateCodeFromFlatIf(tree,statement,context);
+                    break;
+                case FOR:
+                    generateCodeFromFlatForLoop(tree,statement,context);
+                    break;
+            }
+        }
+    }
+    
+    // Compiles the program in one pass: each statement is checked and its code
+    // generated as soon as it's parsed, and then thrown away. The language is
+    // declare before use, so nothing later in the program is needed. The code is
+    // the same as the other pipelines give, but a semantic error is reported as
+    // soon as it's found, even if there's a syntax error further on.
+    public static List<ThreeAddressCode> generateCodeInOnePass(SyntaxAnalyzer syntaxAnalyzer) throws SyntaxAnalyzerException, SemanticAnalyzerException, LexicalAnalyzerException {
+        FlatProgramTree tree = syntaxAnalyzer.beginFlatStatements();
+        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(tree);
+        CompilerContext context = new CompilerContext();
+        for(int statement = syntaxAnalyzer.nextFlatStatement(); statement >= 0; statement = syntaxAnalyzer.nextFlatStatement()) {
+            semanticAnalyzer.checkFlatStatement(statement);
+            generateCodeFromFlatStatements(tree,statement,context);
+        }
+        context.setVariableNames(semanticAnalyzer.getSlotNames());
+        return context.getTACResults();
+    }
+    
+    public static List<ThreeAddressCode> generateCodeFromFlatProgramTree(FlatProgramTree programTree) {
+        return generateCodeFromFlatProgramTree(programTree,new CompilerContext());
+    }
+    
+    public static List<ThreeAddressCode> generateCodeFromFlatProgramTree(FlatProgramTree programTree, CompilerContext context) {
+        generateCodeFromFlatStatements(programTree,programTree.getFirstChild(programTree.getRoot()),context);
+        context.setVariableNames(programTree.getSlotNames());
         return context.getTACResults();
     }
 }
@@ -24,41 +24,104 @@
 
 package edu.tarleton.welborn.medusacompiler.compiler;
 
-import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import edu.tarleton.welborn.medusacompiler.syntax.StatementVisitor;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
+ * Where the code of a program is generated: the instructions so far, the
+ * counters that number its temps and labels, and the OperandPool its variables
+ * and constants are in. Temps and labels are numbered on their own, each from 0,
+ * and handed out as PackedCode operands.
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
  */
 public class CompilerContext {
 
     private List<ThreeAddressCode> TACResults = new ArrayList<>();
-    private int tempVariables = 0;
-    private Map<String,TokenType> symbolTable = new HashMap<>();
+    private int temps = 0;
+    private int labels = 0;
+    private OperandPool pool = new OperandPool();
+    // Generates the code for a statement into this context
+    private StatementVisitor<Void,RuntimeException> statementGenerator;
+
+    // Starts the context over for another program, keeping the list's array. The
+    // code generated before keeps the pool it was generated with.
+    public void clear() {
+        TACResults.clear();
+        pool = new OperandPool();
+        temps = 0;
+        labels = 0;
+    }
 
     public List<ThreeAddressCode> getTACResults() {
         return TACResults;
     }
     
-    public String getNextTempVariable(String prefix) {
-        String ident = prefix + tempVariables;
-        tempVariables = tempVariables + 1;
-        return ident;
+    public int getNextTemp() {
+        return PackedCode.temp(temps++);
+    }
+    
+    public int getNextLabel() {
+        return PackedCode.label(labels++);
+    }
+    
+    public int getTempCount() {
+        return temps;
+    }
+    
+    public int getLabelCount() {
+        return labels;
+    }
+    
+    public OperandPool getPool() {
+        return pool;
+    }
+    
+    // The operand for a variable, which is its slot. Every use of a variable is
+    // the same operand, so passes can index arrays by it, and the name is only
+    // looked up in the slot names when the code is printed.
+    public int getVariable(int slot) {
+        return OperandPool.variable(slot);
+    }
+    
+    // Names the variables of the code generated so far
+    public void setVariableNames(String[] slotNames) {
+        pool.setVariableNames(slotNames);
+    }
+    
+    // Literals are immediate operands, written into the instructions that use them
+    // rather than first being assigned to a temp. Their values are kept as they
+    // are, and only written out when the code is printed.
+    public int getIntConstant(int value) {
+        return pool.intConstant(value);
+    }
+    
+    public int getFloatConstant(double value) {
+        return pool.floatConstant(value);
+    }
+    
+    public int getStringConstant(int id, String value) {
+        return pool.stringConstant(id,value);
+    }
+    
+    public void add(int operand1, ThreeAddressCodeOperator operator) {
+        add(operand1,operator,PackedCode.NO_OPERAND,PackedCode.NO_OPERAND);
+    }
+    
+    public void add(int operand1, ThreeAddressCodeOperator operator, int operand2) {
+        add(operand1,operator,operand2,PackedCode.NO_OPERAND);
     }
     
-    public String getNextTempVariable() {
-        return getNextTempVariable("_t");
+    public void add(int operand1, ThreeAddressCodeOperator operator, int operand2, int operand3) {
+        TACResults.add(new ThreeAddressCode(pool,operator,operand1,operand2,operand3));
     }
 
-    public Map<String, TokenType> getSymbolTable() {
-        return symbolTable;
+    public StatementVisitor<Void,RuntimeException> getStatementGenerator() {
+        return statementGenerator;
     }
 
-    public void setSymbolTable(Map<String, TokenType> symbolTable) {
-        this.symbolTable = symbolTable;
+    public void setStatementGenerator(StatementVisitor<Void,RuntimeException> statementGenerator) {
+        this.statementGenerator = statementGenerator;
     }
 }
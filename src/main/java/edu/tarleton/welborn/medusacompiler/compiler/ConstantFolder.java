@@ -0,0 +1,293 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.compiler;
+
+import java.util.List;
+
+/**
+ * Evaluates instructions whose operands are all constants at compile time,
+ * following Medusa's semantics and leaving anything that would fail at run time.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class ConstantFolder {
+    
+    public static List<ThreeAddressCode> foldConstants(List<ThreeAddressCode> code) {
+        PackedCode packedCode = PackedCode.fromThreeAddressCode(code);
+        foldConstants(packedCode);
+        return packedCode.toThreeAddressCode();
+    }
+    
+    // Folds the code in place, returning how many instructions were dropped
+    public static int foldConstants(PackedCode code) {
+        boolean[] removable = code.findSingleAssignmentTemps();
+        // The value each temp folded to, or NO_OPERAND
+        int[] values = new int[removable.length];
+        int size = 0;
+        for(int i = 0; i < code.size(); i++) {
+            ThreeAddressCodeOperator operator = code.getOperator(i);
+            int operand1 = code.getOperand(i,1);
+            int operand2 = substitute(values,code.getOperand(i,2));
+            int operand3 = substitute(values,code.getOperand(i,3));
+            if(operator == ThreeAddressCodeOperator.ARRAY_ASSIGN) {
+                operand1 = substitute(values,operand1);
+            }
+            
+            if((operator == ThreeAddressCodeOperator.JMP_IF_TRUE || operator == ThreeAddressCodeOperator.JMP_IF_FALSE)
+                    && PackedCode.getOperandKind(operand2) == OperandKind.INT_CONSTANT) {
+                boolean condition = code.getIntConstant(operand2) != 0;
+                if(condition != (operator == ThreeAddressCodeOperator.JMP_IF_TRUE)) {
+                    continue;
+                }
+                operator = ThreeAddressCodeOperator.JMP;
+            }
+            
+            int value = evaluate(code,operator,operand2,operand3);
+            if(value != PackedCode.NO_OPERAND) {
+                if(PackedCode.getOperandKind(operand1) == OperandKind.TEMP && removable[PackedCode.getOperandIndex(operand1)]) {
+                    values[PackedCode.getOperandIndex(operand1)] = value;
+                    continue;
+                }
+                operator = ThreeAddressCodeOperator.ASSIGN;
+                operand2 = value;
+                operand3 = PackedCode.NO_OPERAND;
+            }
+            code.setInstruction(size++,operator,operand1,operand2,operand3);
+        }
+        int dropped = code.size() - size;
+        code.truncate(size);
+        return dropped;
+    }
+    
+    private static int substitute(int[] values, int operand) {
+        if(PackedCode.getOperandKind(operand) == OperandKind.TEMP) {
+            int value = values[PackedCode.getOperandIndex(operand)];
+            if(value != PackedCode.NO_OPERAND) {
+                return value;
+            }
+        }
+        return operand;
+    }
+    
+    // The constant an instruction computes, or NO_OPERAND if it can't be folded
+    private static int evaluate(PackedCode code, ThreeAddressCodeOperator operator, int operand2, int operand3) {
+        OperandKind kind2 = PackedCode.getOperandKind(operand2);
+        OperandKind kind3 = PackedCode.getOperandKind(operand3);
+        switch(operator) {
+            case ASSIGN:
+                return PackedCode.isConstant(operand2) ? operand2 : PackedCode.NO_OPERAND;
+            case ADD:
+            case SUB:
+            case MUL:
+            case DIV:
+            case MOD:
+            case POW:
+                if(kind2 == OperandKind.INT_CONSTANT && kind3 == OperandKind.INT_CONSTANT) {
+                    return evaluateInt(code,operator,code.getIntConstant(operand2),code.getIntConstant(operand3));
+                } else if(kind2 == OperandKind.FLOAT_CONSTANT && kind3 == OperandKind.FLOAT_CONSTANT) {
+                    return evaluateFloat(code,operator,code.getFloatConstant(operand2),code.getFloatConstant(operand3));
+                }
+                return PackedCode.NO_OPERAND;
+            case CONCAT:
+                if(kind2 == OperandKind.STRING_CONSTANT && kind3 == OperandKind.STRING_CONSTANT) {
+                    return code.stringConstant(code.getStringConstant(operand2) + code.getStringConstant(operand3));
+                }
+                return PackedCode.NO_OPERAND;
+            case IS_GREATER_THAN:
+            case IS_LESS_THAN:
+            case IS_GREATER_THAN_OR_EQUAL:
+            case IS_LESS_THAN_OR_EQUAL:
+            case IS_EQUAL:
+            case IS_NOT_EQUAL:
+                return evaluateComparison(code,operator,operand2,operand3);
+            case CONVERT_INT_TO_FLOAT:
+            case CONVERT_INT_TO_STRING:
+            case CONVERT_FLOAT_TO_INT:
+            case CONVERT_FLOAT_TO_STRING:
+            case CONVERT_STRING_TO_INT:
+            case CONVERT_STRING_TO_FLOAT:
+                return evaluateConversion(code,operator,operand2);
+            default:
+                return PackedCode.NO_OPERAND;
+        }
+    }
+    
+    private static int evaluateInt(PackedCode code, ThreeAddressCodeOperator operator, int a, int b) {
+        switch(operator) {
+            case ADD:
+                return code.intConstant(a + b);
+            case SUB:
+                return code.intConstant(a - b);
+            case MUL:
+                return code.intConstant(a * b);
+            case DIV:
+                return b == 0 ? PackedCode.NO_OPERAND : code.intConstant(a / b);
+            case MOD:
+                return b == 0 ? PackedCode.NO_OPERAND : code.intConstant(a % b);
+            case POW:
+                // Squaring and multiplying, wrapping around just like repeated multiplication
+                if(b < 0) {
+                    return PackedCode.NO_OPERAND;
+                }
+                int result = 1;
+                for(int base = a, exponent = b; exponent > 0; exponent >>= 1, base *= base) {
+                    if((exponent & 1) != 0) {
+                        result *= base;
+                    }
+                }
+                return code.intConstant(result);
+            default:
+                return PackedCode.NO_OPERAND;
+        }
+    }
+    
+    private static int evaluateFloat(PackedCode code, ThreeAddressCodeOperator operator, double a, double b) {
+        double result;
+        switch(operator) {
+            case ADD:
+                result = a + b;
+                break;
+            case SUB:
+                result = a - b;
+                break;
+            case MUL:
+                result = a * b;
+                break;
+            case DIV:
+                result = a / b;
+                break;
+            case MOD:
+                result = a % b;
+                break;
+            case POW:
+                result = Math.pow(a,b);
+                break;
+            default:
+                return PackedCode.NO_OPERAND;
+        }
+        return Double.isFinite(result) ? code.floatConstant(result) : PackedCode.NO_OPERAND;
+    }
+    
+    // A comparison folds to the int 1 if it holds and 0 if it doesn't
+    private static int evaluateComparison(PackedCode code, ThreeAddressCodeOperator operator, int operand2, int operand3) {
+        OperandKind kind = PackedCode.getOperandKind(operand2);
+        if(kind != PackedCode.getOperandKind(operand3)) {
+            return PackedCode.NO_OPERAND;
+        }
+        int comparison;
+        switch(kind) {
+            case INT_CONSTANT:
+                comparison = Integer.compare(code.getIntConstant(operand2),code.getIntConstant(operand3));
+                break;
+            case FLOAT_CONSTANT:
+                double a = code.getFloatConstant(operand2);
+                double b = code.getFloatConstant(operand3);
+                comparison = a < b ? -1 : a > b ? 1 : 0;
+                break;
+            case STRING_CONSTANT:
+                if(operator != ThreeAddressCodeOperator.IS_EQUAL && operator != ThreeAddressCodeOperator.IS_NOT_EQUAL) {
+                    return PackedCode.NO_OPERAND;
+                }
+                comparison = code.getStringConstant(operand2).equals(code.getStringConstant(operand3)) ? 0 : 1;
+                break;
+            default:
+                return PackedCode.NO_OPERAND;
+        }
+        boolean holds;
+        switch(operator) {
+            case IS_GREATER_THAN:
+                holds = comparison > 0;
+                break;
+            case IS_LESS_THAN:
+                holds = comparison < 0;
+                break;
+            case IS_GREATER_THAN_OR_EQUAL:
+                holds = comparison >= 0;
+                break;
+            case IS_LESS_THAN_OR_EQUAL:
+                holds = comparison <= 0;
+                break;
+            case IS_EQUAL:
+                holds = comparison == 0;
+                break;
+            default:
+                holds = comparison != 0;
+                break;
+        }
+        return code.intConstant(holds ? 1 : 0);
+    }
+    
+    // Whether a string is digits, with an optional minus sign and, if a decimal
+    // point is allowed, an optional fraction after one
+    private static boolean isNumberText(String text, boolean decimalPoint) {
+        int i = text.startsWith("-") ? 1 : 0;
+        int digits = 0;
+        for(; i < text.length() && Character.isDigit(text.charAt(i)); i++) {
+            digits++;
+        }
+        if(decimalPoint && i < text.length() && text.charAt(i) == '.') {
+            int fractionDigits = 0;
+            for(i++; i < text.length() && Character.isDigit(text.charAt(i)); i++) {
+                fractionDigits++;
+            }
+            if(fractionDigits == 0) {
+                return false;
+            }
+        }
+        return digits > 0 && i == text.length();
+    }
+    
+    private static int evaluateConversion(PackedCode code, ThreeAddressCodeOperator operator, int operand) {
+        OperandKind kind = PackedCode.getOperandKind(operand);
+        switch(operator) {
+            case CONVERT_INT_TO_FLOAT:
+                return kind == OperandKind.INT_CONSTANT ? code.floatConstant(code.getIntConstant(operand)) : PackedCode.NO_OPERAND;
+            case CONVERT_INT_TO_STRING:
+                return kind == OperandKind.INT_CONSTANT ? code.stringConstant(String.valueOf(code.getIntConstant(operand))) : PackedCode.NO_OPERAND;
+            case CONVERT_FLOAT_TO_INT:
+                return kind == OperandKind.FLOAT_CONSTANT ? code.intConstant((int) code.getFloatConstant(operand)) : PackedCode.NO_OPERAND;
+            case CONVERT_FLOAT_TO_STRING:
+                return kind == OperandKind.FLOAT_CONSTANT ? code.stringConstant(String.valueOf(code.getFloatConstant(operand))) : PackedCode.NO_OPERAND;
+            case CONVERT_STRING_TO_INT:
+                if(kind == OperandKind.STRING_CONSTANT && isNumberText(code.getStringConstant(operand),false)) {
+                    try {
+                        return code.intConstant(Integer.parseInt(code.getStringConstant(operand)));
+                    } catch(NumberFormatException err) {
+                        // Too large for an int, so it's left to fail when it runs
+                    }
+                }
+                return PackedCode.NO_OPERAND;
+            case CONVERT_STRING_TO_FLOAT:
+                if(kind == OperandKind.STRING_CONSTANT && isNumberText(code.getStringConstant(operand),true)) {
+                    double value = Double.parseDouble(code.getStringConstant(operand));
+                    return Double.isFinite(value) ? code.floatConstant(value) : PackedCode.NO_OPERAND;
+                }
+                return PackedCode.NO_OPERAND;
+            default:
+                return PackedCode.NO_OPERAND;
+        }
+    }
+    
+}
@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.compiler;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replaces uses of copied temps with what they copy, and stores a temp that's only
+ * copied into a variable straight into the variable.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class CopyPropagator {
+    
+    public static List<ThreeAddressCode> propagateCopies(List<ThreeAddressCode> code) {
+        PackedCode packedCode = PackedCode.fromThreeAddressCode(code);
+        propagateCopies(packedCode);
+        return packedCode.toThreeAddressCode();
+    }
+    
+    // Propagates and coalesces the copies in place, returning how many instructions
+    // were dropped
+    public static int propagateCopies(PackedCode code) {
+        int size = code.size();
+        removeCopies(code,findCopies(code));
+        coalesceCopies(code);
+        return size - code.size();
+    }
+    
+    private static boolean isCopy(PackedCode code, int instruction, boolean[] singleAssignment) {
+        int operand1 = code.getOperand(instruction,1);
+        return code.getOperator(instruction) == ThreeAddressCodeOperator.ASSIGN
+                && PackedCode.getOperandKind(operand1) == OperandKind.TEMP
+                && singleAssignment[PackedCode.getOperandIndex(operand1)]
+                && code.getOperand(instruction,2) != PackedCode.NO_OPERAND;
+    }
+    
+    // What each temp that can be propagated copies, or NO_OPERAND. A copy of a
+    // copy is followed back to the original.
+    private static int[] findCopies(PackedCode code) {
+        boolean[] singleAssignment = code.findSingleAssignmentTemps();
+        int[] sources = new int[singleAssignment.length];
+        int[] copiedAt = new int[singleAssignment.length];
+        // Where each variable and temp was last assigned, and where the last label
+        // or jump was
+        int[] variableAssignedAt = new int[code.getVariableCount()];
+        int[] tempAssignedAt = new int[singleAssignment.length];
+        Arrays.fill(variableAssignedAt,-1);
+        Arrays.fill(tempAssignedAt,-1);
+        int barrier = -1;
+        
+        for(int i = 0; i < code.size(); i++) {
+            ThreeAddressCodeOperator operator = code.getOperator(i);
+            for(int address = PackedCode.assigns(operator) ? 2 : 1; address <= 3; address++) {
+                int operand = code.getOperand(i,address);
+                if(PackedCode.getOperandKind(operand) != OperandKind.TEMP) {
+                    continue;
+                }
+                int temp = PackedCode.getOperandIndex(operand);
+                if(sources[temp] == PackedCode.NO_OPERAND) {
+                    continue;
+                }
+                // The address an array assignment stores into can't be replaced
+                boolean stale = barrier > copiedAt[temp] || lastAssigned(sources[temp],variableAssignedAt,tempAssignedAt) > copiedAt[temp];
+                if(stale || (address == 1 && operator == ThreeAddressCodeOperator.ARRAY_ASSIGN)) {
+                    sources[temp] = PackedCode.NO_OPERAND;
+                }
+            }
+            
+            if(isCopy(code,i,singleAssignment)) {
+                int temp = PackedCode.getOperandIndex(code.getOperand(i,1));
+                int source = code.getOperand(i,2);
+                if(PackedCode.getOperandKind(source) == OperandKind.TEMP && sources[PackedCode.getOperandIndex(source)] != PackedCode.NO_OPERAND) {
+                    source = sources[PackedCode.getOperandIndex(source)];
+                }
+                sources[temp] = source;
+                copiedAt[temp] = i;
+            }
+            
+            int operand1 = code.getOperand(i,1);
+            if(PackedCode.hasLabelTarget(operator)) {
+                barrier = i;
+            } else if(PackedCode.getOperandKind(operand1) == OperandKind.VARIABLE) {
+                variableAssignedAt[PackedCode.getOperandIndex(operand1)] = i;
+            } else if(PackedCode.getOperandKind(operand1) == OperandKind.TEMP) {
+                tempAssignedAt[PackedCode.getOperandIndex(operand1)] = i;
+            }
+        }
+        return sources;
+    }
+    
+    private static int lastAssigned(int operand, int[] variableAssignedAt, int[] tempAssignedAt) {
+        switch(PackedCode.getOperandKind(operand)) {
+            case VARIABLE:
+                return variableAssignedAt[PackedCode.getOperandIndex(operand)];
+            case TEMP:
+                return tempAssignedAt[PackedCode.getOperandIndex(operand)];
+            default:
+                return -1;
+        }
+    }
+    
+    private static int substitute(int[] sources, int operand) {
+        if(PackedCode.getOperandKind(operand) == OperandKind.TEMP) {
+            int source = sources[PackedCode.getOperandIndex(operand)];
+            if(source != PackedCode.NO_OPERAND) {
+                return source;
+            }
+        }
+        return operand;
+    }
+    
+    private static void removeCopies(PackedCode code, int[] sources) {
+        int size = 0;
+        for(int i = 0; i < code.size(); i++) {
+            ThreeAddressCodeOperator operator = code.getOperator(i);
+            int operand1 = code.getOperand(i,1);
+            if(PackedCode.getOperandKind(operand1) == OperandKind.TEMP && PackedCode.assigns(operator)
+                    && sources[PackedCode.getOperandIndex(operand1)] != PackedCode.NO_OPERAND) {
+                continue;
+            }
+            code.setInstruction(size++,operator,operand1,substitute(sources,code.getOperand(i,2)),substitute(sources,code.getOperand(i,3)));
+        }
+        code.truncate(size);
+    }
+    
+    private static void coalesceCopies(PackedCode code) {
+        boolean[] singleAssignment = code.findSingleAssignmentTemps();
+        int[] uses = new int[singleAssignment.length];
+        for(int i = 0; i < code.size(); i++) {
+            for(int address = PackedCode.assigns(code.getOperator(i)) ? 2 : 1; address <= 3; address++) {
+                int operand = code.getOperand(i,address);
+                if(PackedCode.getOperandKind(operand) == OperandKind.TEMP) {
+                    uses[PackedCode.getOperandIndex(operand)]++;
+                }
+            }
+        }
+        
+        int size = 0;
+        for(int i = 0; i < code.size(); i++) {
+            ThreeAddressCodeOperator operator = code.getOperator(i);
+            int operand1 = code.getOperand(i,1);
+            if(i + 1 < code.size() && PackedCode.assigns(operator) && PackedCode.getOperandKind(operand1) == OperandKind.TEMP) {
+                int temp = PackedCode.getOperandIndex(operand1);
+                if(singleAssignment[temp] && uses[temp] == 1
+                        && code.getOperator(i + 1) == ThreeAddressCodeOperator.ASSIGN && code.getOperand(i + 1,2) == operand1) {
+                    // _t4 = a ADD b, x = _t4 becomes x = a ADD b
+                    operand1 = code.getOperand(i + 1,1);
+                    code.setInstruction(size++,operator,operand1,code.getOperand(i,2),code.getOperand(i,3));
+                    i++;
+                    continue;
+                }
+            }
+            code.setInstruction(size++,operator,operand1,code.getOperand(i,2),code.getOperand(i,3));
+        }
+        code.truncate(size);
+    }
+    
+}
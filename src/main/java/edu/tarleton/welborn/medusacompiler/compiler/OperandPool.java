@@ -0,0 +1,250 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.compiler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The variable names and int, float and string constants that the operands of one
+ * program's code index into, each constant stored once. Generated code, and the
+ * PackedCode made from it, share one pool.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class OperandPool {
+    
+    private String[] variableNames = new String[16];
+    private int variableCount = 0;
+    // Only built when an address given as a String is packed
+    private Map<String,Integer> variableIds;
+    private int[] intConstants = new int[16];
+    private int intConstantCount = 0;
+    private double[] floatConstants = new double[16];
+    private int floatConstantCount = 0;
+    private String[] stringConstants = new String[16];
+    private int stringConstantCount = 0;
+    // Open addressing tables from a constant's value to its index plus one, with 0
+    // for an empty entry, so every use of the same value is the same operand
+    private int[] intIndexes = new int[32];
+    private int[] floatIndexes = new int[32];
+    // Only built when a string constant is added by its text
+    private Map<String,Integer> stringIds;
+    
+    private void growVariables(int count) {
+        if(count > variableNames.length) {
+            variableNames = Arrays.copyOf(variableNames,Math.max(count,variableNames.length * 2));
+        }
+    }
+    
+    // The operand of a variable by its slot. Variables in scopes that don't
+    // overlap can share a name, but never a slot.
+    public static int variable(int slot) {
+        return PackedCode.operand(OperandKind.VARIABLE,slot);
+    }
+    
+    // Names the variables by slot, once the code for them has been generated. The
+    // array is the tree's own, so it's copied rather than added to.
+    public void setVariableNames(String[] variableNames) {
+        this.variableNames = Arrays.copyOf(variableNames,Math.max(16,variableNames.length));
+        variableCount = variableNames.length;
+        variableIds = null;
+    }
+    
+    // The operand of a variable by its name, numbering it after every variable
+    // so far if it hasn't been seen. A name shared by several slots is the first.
+    public int variable(String name) {
+        if(variableIds == null) {
+            variableIds = new HashMap<>();
+            for(int id = 0; id < variableCount; id++) {
+                if(variableNames[id] != null) {
+                    variableIds.putIfAbsent(variableNames[id],id);
+                }
+            }
+        }
+        Integer id = variableIds.get(name);
+        if(id == null) {
+            growVariables(variableCount + 1);
+            id = variableCount;
+            variableNames[variableCount++] = name;
+            variableIds.put(name,id);
+        }
+        return PackedCode.operand(OperandKind.VARIABLE,id);
+    }
+    
+    private static int hash(long bits) {
+        bits = bits * 0x9E3779B97F4A7C15L;
+        return (int) (bits ^ (bits >>> 32));
+    }
+    
+    // Where the value's index is in the table, or the empty entry it would go in
+    private int findInt(int[] indexes, int value) {
+        int mask = indexes.length - 1;
+        int entry = hash(value) & mask;
+        while(indexes[entry] != 0 && intConstants[indexes[entry] - 1] != value) {
+            entry = (entry + 1) & mask;
+        }
+        return entry;
+    }
+    
+    // Floats are matched by their bits, so 0.0 and -0.0 stay apart
+    private int findFloat(int[] indexes, long bits) {
+        int mask = indexes.length - 1;
+        int entry = hash(bits) & mask;
+        while(indexes[entry] != 0 && Double.doubleToLongBits(floatConstants[indexes[entry] - 1]) != bits) {
+            entry = (entry + 1) & mask;
+        }
+        return entry;
+    }
+    
+    public int intConstant(int value) {
+        int entry = findInt(intIndexes,value);
+        if(intIndexes[entry] == 0) {
+            if(intConstantCount == intConstants.length) {
+                intConstants = Arrays.copyOf(intConstants,intConstantCount * 2);
+            }
+            intConstants[intConstantCount++] = value;
+            intIndexes[entry] = intConstantCount;
+            // Kept at most half full, so probes stay short
+            if(intConstantCount * 2 > intIndexes.length) {
+                int[] indexes = new int[intIndexes.length * 2];
+                for(int i = 0; i < intConstantCount; i++) {
+                    indexes[findInt(indexes,intConstants[i])] = i + 1;
+                }
+                intIndexes = indexes;
+            }
+            return PackedCode.operand(OperandKind.INT_CONSTANT,intConstantCount - 1);
+        }
+        return PackedCode.operand(OperandKind.INT_CONSTANT,intIndexes[entry] - 1);
+    }
+    
+    public int floatConstant(double value) {
+        long bits = Double.doubleToLongBits(value);
+        int entry = findFloat(floatIndexes,bits);
+        if(floatIndexes[entry] == 0) {
+            if(floatConstantCount == floatConstants.length) {
+                floatConstants = Arrays.copyOf(floatConstants,floatConstantCount * 2);
+            }
+            floatConstants[floatConstantCount++] = value;
+            floatIndexes[entry] = floatConstantCount;
+            if(floatConstantCount * 2 > floatIndexes.length) {
+                int[] indexes = new int[floatIndexes.length * 2];
+                for(int i = 0; i < floatConstantCount; i++) {
+                    indexes[findFloat(indexes,Double.doubleToLongBits(floatConstants[i]))] = i + 1;
+                }
+                floatIndexes = indexes;
+            }
+            return PackedCode.operand(OperandKind.FLOAT_CONSTANT,floatConstantCount - 1);
+        }
+        return PackedCode.operand(OperandKind.FLOAT_CONSTANT,floatIndexes[entry] - 1);
+    }
+    
+    // A string literal of the program, by the intern id of its text, so every use
+    // of the same text is the same operand
+    public int stringConstant(int id, String value) {
+        if(id >= stringConstants.length) {
+            stringConstants = Arrays.copyOf(stringConstants,Math.max(id + 1,stringConstants.length * 2));
+        }
+        stringConstants[id] = value;
+        stringConstantCount = Math.max(stringConstantCount,id + 1);
+        if(stringIds != null) {
+            stringIds.putIfAbsent(value,id);
+        }
+        return PackedCode.operand(OperandKind.STRING_CONSTANT,id);
+    }
+    
+    // The text of a string constant, without its quotes, numbered after every
+    // string constant so far if it hasn't been seen
+    public int stringConstant(String value) {
+        if(stringIds == null) {
+            stringIds = new HashMap<>();
+            for(int id = 0; id < stringConstantCount; id++) {
+                if(stringConstants[id] != null) {
+                    stringIds.putIfAbsent(stringConstants[id],id);
+                }
+            }
+        }
+        Integer id = stringIds.get(value);
+        if(id == null) {
+            if(stringConstantCount == stringConstants.length) {
+                stringConstants = Arrays.copyOf(stringConstants,stringConstantCount * 2);
+            }
+            id = stringConstantCount;
+            stringConstants[stringConstantCount++] = value;
+            stringIds.put(value,id);
+        }
+        return PackedCode.operand(OperandKind.STRING_CONSTANT,id);
+    }
+    
+    public String getVariableName(int operand) {
+        return variableNames[PackedCode.getOperandIndex(operand)];
+    }
+    
+    // One more than the highest variable index, so passes can size arrays by it
+    public int getVariableCount() {
+        return variableCount;
+    }
+    
+    public int getIntConstant(int operand) {
+        return intConstants[PackedCode.getOperandIndex(operand)];
+    }
+    
+    public double getFloatConstant(int operand) {
+        return floatConstants[PackedCode.getOperandIndex(operand)];
+    }
+    
+    public String getStringConstant(int operand) {
+        return stringConstants[PackedCode.getOperandIndex(operand)];
+    }
+    
+    // The address an operand is written as in a ThreeAddressCode
+    public String getAddress(int operand) {
+        switch(PackedCode.getOperandKind(operand)) {
+            case VARIABLE:
+                return getVariableName(operand);
+            case TEMP:
+                return ThreeAddressCode.getTempName(PackedCode.getOperandIndex(operand));
+            case LABEL:
+                return ThreeAddressCode.getLabelName(PackedCode.getOperandIndex(operand));
+            case INT_CONSTANT:
+                return String.valueOf(getIntConstant(operand));
+            case FLOAT_CONSTANT:
+                return String.valueOf(getFloatConstant(operand));
+            case STRING_CONSTANT:
+                return '"' + getStringConstant(operand) + '"';
+            default:
+                return null;
+        }
+    }
+    
+    // The bytes held by the tables, not counting the strings the names and string
+    // constants point to
+    public long getFootprintInBytes() {
+        return 8L * variableNames.length + 4L * intConstants.length + 8L * floatConstants.length + 8L * stringConstants.length
+                + 4L * intIndexes.length + 4L * floatIndexes.length;
+    }
+    
+}
@@ -0,0 +1,373 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A List of ThreeAddressCode packed into one int array, four ints per instruction.
+ * An operand keeps its OperandKind in its top four bits and its index in the rest.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class PackedCode {
+    
+    private static final ThreeAddressCodeOperator[] OPERATORS = ThreeAddressCodeOperator.values();
+    private static final OperandKind[] OPERAND_KINDS = OperandKind.values();
+    
+    // The operand of an address an instruction doesn't use
+    public static final int NO_OPERAND = 0;
+    
+    private static final int KIND_SHIFT = 28;
+    private static final int INDEX_MASK = (1 << KIND_SHIFT) - 1;
+    private static final int WORDS_PER_INSTRUCTION = 4;
+    
+    private int[] code;
+    private int size = 0;
+    
+    private final OperandPool pool;
+    
+    public PackedCode() {
+        this(256);
+    }
+    
+    public PackedCode(int capacity) {
+        this(new OperandPool(),capacity);
+    }
+    
+    // Packed code over the operands of a pool, which constants it folds are added to
+    public PackedCode(OperandPool pool, int capacity) {
+        this.pool = pool;
+        code = new int[Math.max(1,capacity) * WORDS_PER_INSTRUCTION];
+    }
+    
+    public int add(ThreeAddressCodeOperator operator, int operand1, int operand2, int operand3) {
+        int word = size * WORDS_PER_INSTRUCTION;
+        if(word == code.length) {
+            code = Arrays.copyOf(code,code.length * 2);
+        }
+        code[word] = operator.ordinal();
+        code[word + 1] = operand1;
+        code[word + 2] = operand2;
+        code[word + 3] = operand3;
+        return size++;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    // Overwrites an instruction, so a pass can rewrite the code in place
+    public void setInstruction(int instruction, ThreeAddressCodeOperator operator, int operand1, int operand2, int operand3) {
+        int word = instruction * WORDS_PER_INSTRUCTION;
+        code[word] = operator.ordinal();
+        code[word + 1] = operand1;
+        code[word + 2] = operand2;
+        code[word + 3] = operand3;
+    }
+    
+    // Drops every instruction from the given one on, keeping the pools as they are
+    public void truncate(int size) {
+        this.size = Math.min(this.size,size);
+    }
+    
+    public ThreeAddressCodeOperator getOperator(int instruction) {
+        return OPERATORS[code[instruction * WORDS_PER_INSTRUCTION]];
+    }
+    
+    public void setOperator(int instruction, ThreeAddressCodeOperator operator) {
+        code[instruction * WORDS_PER_INSTRUCTION] = operator.ordinal();
+    }
+    
+    // The operand of address 1, 2 or 3 of an instruction
+    public int getOperand(int instruction, int address) {
+        return code[instruction * WORDS_PER_INSTRUCTION + address];
+    }
+    
+    public void setOperand(int instruction, int address, int operand) {
+        code[instruction * WORDS_PER_INSTRUCTION + address] = operand;
+    }
+    
+    public static int operand(OperandKind kind, int index) {
+        return kind.ordinal() << KIND_SHIFT | index;
+    }
+    
+    public static OperandKind getOperandKind(int operand) {
+        return OPERAND_KINDS[operand >>> KIND_SHIFT];
+    }
+    
+    public static int getOperandIndex(int operand) {
+        return operand & INDEX_MASK;
+    }
+    
+    public static boolean isConstant(int operand) {
+        OperandKind kind = getOperandKind(operand);
+        return kind == OperandKind.INT_CONSTANT || kind == OperandKind.FLOAT_CONSTANT || kind == OperandKind.STRING_CONSTANT;
+    }
+    
+    public static int temp(int number) {
+        return operand(OperandKind.TEMP,number);
+    }
+    
+    public static int label(int number) {
+        return operand(OperandKind.LABEL,number);
+    }
+    
+    public int variable(String name) {
+        return pool.variable(name);
+    }
+    
+    public int intConstant(int value) {
+        return pool.intConstant(value);
+    }
+    
+    public int floatConstant(double value) {
+        return pool.floatConstant(value);
+    }
+    
+    // The text of a string constant, without its quotes
+    public int stringConstant(String value) {
+        return pool.stringConstant(value);
+    }
+    
+    public String getVariableName(int operand) {
+        return pool.getVariableName(operand);
+    }
+    
+    public int getVariableCount() {
+        return pool.getVariableCount();
+    }
+    
+    public int getIntConstant(int operand) {
+        return pool.getIntConstant(operand);
+    }
+    
+    public double getFloatConstant(int operand) {
+        return pool.getFloatConstant(operand);
+    }
+    
+    public String getStringConstant(int operand) {
+        return pool.getStringConstant(operand);
+    }
+    
+    // The address an operand is written as in a ThreeAddressCode
+    public String getAddress(int operand) {
+        return pool.getAddress(operand);
+    }
+    
+    public OperandPool getPool() {
+        return pool;
+    }
+    
+    // The number after a prefix, or -1 if the rest of the address isn't a number
+    // that prints back the same and fits in an operand
+    private static int parseNumber(String address, int start) {
+        if(start == address.length() || (address.charAt(start) == '0' && address.length() > start + 1)) {
+            return -1;
+        }
+        int value = 0;
+        for(int i = start; i < address.length(); i++) {
+            int digit = address.charAt(i) - '0';
+            if(digit < 0 || digit > 9 || value > (INDEX_MASK - digit) / 10) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+    
+    private static boolean isIntText(String address) {
+        for(int i = address.charAt(0) == '-' ? 1 : 0; i < address.length(); i++) {
+            if(address.charAt(i) < '0' || address.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // The operand for an address of a ThreeAddressCode, adding to the variables or
+    // constant pools if it needs to
+    public int pack(String address) {
+        if(address == null) {
+            return NO_OPERAND;
+        }
+        if(address.isEmpty()) {
+            return variable(address);
+        }
+        char first = address.charAt(0);
+        if(first == '"' && address.length() > 1 && address.charAt(address.length() - 1) == '"') {
+            return stringConstant(address.substring(1,address.length() - 1));
+        }
+        if(address.startsWith("_t")) {
+            int number = parseNumber(address,2);
+            if(number >= 0) {
+                return temp(number);
+            }
+        }
+        if((first >= '0' && first <= '9') || first == '-') {
+            try {
+                if(isIntText(address)) {
+                    int value = Integer.parseInt(address);
+                    if(String.valueOf(value).equals(address)) {
+                        return intConstant(value);
+                    }
+                } else {
+                    double value = Double.parseDouble(address);
+                    if(String.valueOf(value).equals(address)) {
+                        return floatConstant(value);
+                    }
+                }
+            } catch(NumberFormatException e) {
+                // Not a constant after all, so it's kept as a name
+            }
+        }
+        return variable(address);
+    }
+    
+    // The operand for the target of a LABEL or a jump
+    public int packLabel(String address) {
+        if(address != null && address.startsWith("label")) {
+            int number = parseNumber(address,5);
+            if(number >= 0) {
+                return label(number);
+            }
+        }
+        return pack(address);
+    }
+    
+    // One more than the highest temp number in the code
+    public int getTempCount() {
+        int temps = 0;
+        for(int word = 1; word < size * WORDS_PER_INSTRUCTION; word++) {
+            if(word % WORDS_PER_INSTRUCTION != 0 && getOperandKind(code[word]) == OperandKind.TEMP) {
+                temps = Math.max(temps,getOperandIndex(code[word]) + 1);
+            }
+        }
+        return temps;
+    }
+    
+    // Whether an instruction stores its result in its first address
+    public static boolean assigns(ThreeAddressCodeOperator operator) {
+        return !hasLabelTarget(operator) && operator != ThreeAddressCodeOperator.ARRAY_ASSIGN;
+    }
+    
+    // The temps that are assigned exactly once, before any use of them. Every temp
+    // of generated code is, so a pass can replace such a temp's uses with its value
+    // and drop its instruction.
+    public boolean[] findSingleAssignmentTemps() {
+        int temps = getTempCount();
+        int[] assignments = new int[temps];
+        boolean[] usedFirst = new boolean[temps];
+        for(int i = 0; i < size; i++) {
+            for(int address = 1; address <= 3; address++) {
+                int operand = getOperand(i,address);
+                if(getOperandKind(operand) != OperandKind.TEMP) {
+                    continue;
+                }
+                int temp = getOperandIndex(operand);
+                if(address == 1 && assigns(getOperator(i))) {
+                    assignments[temp]++;
+                } else if(assignments[temp] == 0) {
+                    usedFirst[temp] = true;
+                }
+            }
+        }
+        boolean[] singleAssignment = new boolean[temps];
+        for(int temp = 0; temp < temps; temp++) {
+            singleAssignment[temp] = assignments[temp] == 1 && !usedFirst[temp];
+        }
+        return singleAssignment;
+    }
+    
+    // Whether the first address of an instruction is a label rather than a value
+    static boolean hasLabelTarget(ThreeAddressCodeOperator operator) {
+        switch(operator) {
+            case LABEL:
+            case JMP:
+            case JMP_IF_TRUE:
+            case JMP_IF_FALSE:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    private static boolean isNumbered(int operand) {
+        OperandKind kind = getOperandKind(operand);
+        return kind == OperandKind.TEMP || kind == OperandKind.LABEL;
+    }
+    
+    // Generated code is packed over the pool it was generated with, and its
+    // operands are taken as they are. Only the addresses given as Strings, or as
+    // operands of some other pool, are read, into the same pool.
+    public static PackedCode fromThreeAddressCode(List<ThreeAddressCode> code) {
+        OperandPool pool = new OperandPool();
+        for(ThreeAddressCode instruction : code) {
+            if(instruction.getPool() != null) {
+                pool = instruction.getPool();
+                break;
+            }
+        }
+        PackedCode packedCode = new PackedCode(pool,code.size());
+        for(ThreeAddressCode instruction : code) {
+            boolean samePool = instruction.getPool() == pool;
+            int operand1 = instruction.getOperand1();
+            if(operand1 == NO_OPERAND || !(samePool || isNumbered(operand1))) {
+                operand1 = hasLabelTarget(instruction.getOperator()) ? packedCode.packLabel(instruction.getAddress1()) : packedCode.pack(instruction.getAddress1());
+            }
+            int operand2 = instruction.getOperand2();
+            if(operand2 == NO_OPERAND || !(samePool || isNumbered(operand2))) {
+                operand2 = packedCode.pack(instruction.getAddress2());
+            }
+            int operand3 = instruction.getOperand3();
+            if(operand3 == NO_OPERAND || !(samePool || isNumbered(operand3))) {
+                operand3 = packedCode.pack(instruction.getAddress3());
+            }
+            packedCode.add(instruction.getOperator(),operand1,operand2,operand3);
+        }
+        return packedCode;
+    }
+    
+    public ThreeAddressCode getThreeAddressCode(int instruction) {
+        return new ThreeAddressCode(pool,getOperator(instruction),getOperand(instruction,1),getOperand(instruction,2),getOperand(instruction,3));
+    }
+    
+    public List<ThreeAddressCode> toThreeAddressCode() {
+        List<ThreeAddressCode> threeAddressCode = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            threeAddressCode.add(getThreeAddressCode(i));
+        }
+        return threeAddressCode;
+    }
+    
+    // The bytes held by the instruction array and the pool, not counting the
+    // strings the names and string constants point to
+    public long getFootprintInBytes() {
+        return 4L * code.length + pool.getFootprintInBytes();
+    }
+    
+}
@@ -25,6 +25,11 @@
 package edu.tarleton.welborn.medusacompiler.compiler;
 
 /**
+ * An instruction of three address code. Each address is either a String, or an
+ * operand of PackedCode with a null String. A temp or label is only given a name
+ * like _t3 or label2, and a variable or constant only written out from the
+ * OperandPool of the instruction, when it's asked for, so generating code doesn't
+ * build a String for every one of them.
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
  */
@@ -33,6 +38,10 @@ public class ThreeAddressCode {
     private String address1;
     private String address2;
     private String address3;
+    private int operand1 = PackedCode.NO_OPERAND;
+    private int operand2 = PackedCode.NO_OPERAND;
+    private int operand3 = PackedCode.NO_OPERAND;
+    private OperandPool pool;
     private ThreeAddressCodeOperator operator;
 
     public ThreeAddressCode(String address1, ThreeAddressCodeOperator operator) {
@@ -52,29 +61,74 @@ public class ThreeAddressCode {
         this.address3 = address3;
         this.operator = operator;
     }
+    
+    // Each address is given by its operand of the pool
+    public ThreeAddressCode(OperandPool pool, ThreeAddressCodeOperator operator, int operand1, int operand2, int operand3) {
+        this.operand1 = operand1;
+        this.operand2 = operand2;
+        this.operand3 = operand3;
+        this.pool = pool;
+        this.operator = operator;
+    }
+    
+    public static String getTempName(int number) {
+        return "_t" + number;
+    }
+    
+    public static String getLabelName(int number) {
+        return "label" + number;
+    }
+    
+    private String getAddress(String address, int operand) {
+        if(address != null || operand == PackedCode.NO_OPERAND) {
+            return address;
+        }
+        return pool.getAddress(operand);
+    }
 
     public String getAddress1() {
-        return address1;
+        return getAddress(address1,operand1);
     }
 
     public void setAddress1(String address1) {
         this.address1 = address1;
+        this.operand1 = PackedCode.NO_OPERAND;
     }
 
     public String getAddress2() {
-        return address2;
+        return getAddress(address2,operand2);
     }
 
     public void setAddress2(String address2) {
         this.address2 = address2;
+        this.operand2 = PackedCode.NO_OPERAND;
     }
 
     public String getAddress3() {
-        return address3;
+        return getAddress(address3,operand3);
     }
 
     public void setAddress3(String address3) {
         this.address3 = address3;
+        this.operand3 = PackedCode.NO_OPERAND;
+    }
+    
+    // The operand of an address, or NO_OPERAND if the address is a String
+    public int getOperand1() {
+        return operand1;
+    }
+
+    public int getOperand2() {
+        return operand2;
+    }
+
+    public int getOperand3() {
+        return operand3;
+    }
+
+    // The pool the operands index into, or null if every address is a String
+    public OperandPool getPool() {
+        return pool;
     }
 
     public ThreeAddressCodeOperator getOperator() {
@@ -89,55 +143,55 @@ public class ThreeAddressCode {
     public String toString() {
         switch(operator) {
             case LABEL:
-                return address1+":";
+                return getAddress1()+":";
             case ASSIGN:
-                return address1+" = "+address2;
+                return getAddress1()+" = "+getAddress2();
             case ARRAY_ASSIGN:
-                return address1+"["+address2+"] = "+address3;
+                return getAddress1()+"["+getAddress2()+"] = "+getAddress3();
             case POW:
-                return address1+" = "+address2+" POW "+address3;
+                return getAddress1()+" = "+getAddress2()+" POW "+getAddress3();
             case ADD:
-                return address1+" = "+address2+" ADD "+address3;
+                return getAddress1()+" = "+getAddress2()+" ADD "+getAddress3();
             case SUB:
-                return address1+" = "+address2+" SUB "+address3;
+                return getAddress1()+" = "+getAddress2()+" SUB "+getAddress3();
             case MUL:
-                return address1+" = "+address2+" MUL "+address3;
+                return getAddress1()+" = "+getAddress2()+" MUL "+getAddress3();
             case DIV:
-                return address1+" = "+address2+" DIV "+address3;
+                return getAddress1()+" = "+getAddress2()+" DIV "+getAddress3();
             case MOD:
-                return address1+" = "+address2+" MOD "+address3;
+                return getAddress1()+" = "+getAddress2()+" MOD "+getAddress3();
             case IS_EQUAL:
-                return address1+" = "+address2+" == "+address3;
+                return getAddress1()+" = "+getAddress2()+" == "+getAddress3();
             case IS_NOT_EQUAL:
-                return address1+" = "+address2+" != "+address3;
+                return getAddress1()+" = "+getAddress2()+" != "+getAddress3();
             case IS_GREATER_THAN_OR_EQUAL:
-                return address1+" = "+address2+" >= "+address3;
+                return getAddress1()+" = "+getAddress2()+" >= "+getAddress3();
             case IS_LESS_THAN_OR_EQUAL:
-                return address1+" = "+address2+" <= "+address3;
+                return getAddress1()+" = "+getAddress2()+" <= "+getAddress3();
             case IS_GREATER_THAN:
-                return address1+" = "+address2+" > "+address3;
+                return getAddress1()+" = "+getAddress2()+" > "+getAddress3();
             case IS_LESS_THAN:
-                return address1+" = "+address2+" < "+address3;
+                return getAddress1()+" = "+getAddress2()+" < "+getAddress3();
             case JMP:
-                return "JMP to "+address1;
+                return "JMP to "+getAddress1();
             case JMP_IF_TRUE:
-                return "JMP to "+address1+" if "+address2+" is true";
+                return "JMP to "+getAddress1()+" if "+getAddress2()+" is true";
             case JMP_IF_FALSE:
-                return "JMP to "+address1+" if "+address2+" is false";
+                return "JMP to "+getAddress1()+" if "+getAddress2()+" is false";
             case CONVERT_INT_TO_FLOAT:
-                return address1+" = INT_TO_FLOAT("+address2+")";
+                return getAddress1()+" = INT_TO_FLOAT("+getAddress2()+")";
             case CONVERT_INT_TO_STRING:
-                return address1+" = INT_TO_STRING("+address2+")";
+                return getAddress1()+" = INT_TO_STRING("+getAddress2()+")";
             case CONVERT_FLOAT_TO_INT:
-                return address1+" = FLOAT_TO_INT("+address2+")";
+                return getAddress1()+" = FLOAT_TO_INT("+getAddress2()+")";
             case CONVERT_FLOAT_TO_STRING:
-                return address1+" = FLOAT_TO_STRING("+address2+")";
+                return getAddress1()+" = FLOAT_TO_STRING("+getAddress2()+")";
             case CONVERT_STRING_TO_INT:
-                return address1+" = STRING_TO_INT("+address2+")";
+                return getAddress1()+" = STRING_TO_INT("+getAddress2()+")";
             case CONVERT_STRING_TO_FLOAT:
-                return address1+" = STRING_TO_FLOAT("+address2+")";
+                return getAddress1()+" = STRING_TO_FLOAT("+getAddress2()+")";
             case CONCAT:
-                return address1+" = "+address2+" CONCAT "+address3;
+                return getAddress1()+" = "+getAddress2()+" CONCAT "+getAddress3();
         }   
         return "Unknown operator "+operator;
     }
@@ -0,0 +1,233 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.lexical;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Keeps the tokens of a document up to date as its lines are edited, for editors
+ * and watch mode builds. Each edit only re-lexes the lines it replaced, plus any
+ * lines after it whose tokens it could have changed.
+ *
+ * No token spans a line, so the tokens of a line depend only on its text and on
+ * whether it starts inside a block comment. The lexer remembers that state for
+ * every line. After re-lexing the edited lines, it keeps going line by line until
+ * a line starts in the same state it did before the edit; from there on, the old
+ * tokens are still correct. They're left in place when lines are added or removed
+ * above them, and only given their new line numbers as they're read.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class IncrementalLexer {
+    
+    private final InternPool internPool;
+    private final List<String> lines = new ArrayList<>();
+    // Tokens after an edit that changed the line count keep their old line numbers
+    // until they're read through the view
+    private final List<Token> tokens = new ArrayList<>();
+    // The index of the first token of each line, with an extra last entry for the
+    // end of the tokens
+    private int[] lineStarts = new int[] {0};
+    // The line the view last read from, since tokens are mostly read in order
+    private int lastReadLine = 1;
+    
+    private final List<Token> view = new View();
+    
+    // Whether each line starts inside a block comment. The extra last entry is
+    // whether the document ends inside one.
+    private boolean[] startsInBlockComment = new boolean[] {false};
+    
+    public IncrementalLexer(String text) throws LexicalAnalyzerException {
+        this(text,new InternPool());
+    }
+    
+    public IncrementalLexer(String text, InternPool internPool) throws LexicalAnalyzerException {
+        this.internPool = internPool;
+        edit(1,0,text);
+    }
+    
+    // Lines are split the same way BufferedReader.readLine splits them, so a
+    // trailing newline doesn't make an extra empty line
+    private static List<String> splitLines(String text) {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch(IOException err) {
+            throw new UncheckedIOException(err);
+        }
+        return lines;
+    }
+    
+    // Lexes one line, appending its tokens. Returns whether the line ends inside a block comment.
+    private boolean lexLine(String line, int lineNumber, boolean blockComment, List<Token> lineTokens) throws LexicalAnalyzerException {
+        byte[] bytes = new byte[line.length() + 1];
+        for(int i = 0; i < line.length(); i++) {
+            bytes[i] = (byte) line.charAt(i);
+        }
+        bytes[line.length()] = '\n';
+        
+        LexicalAnalyzer lexer = new LexicalAnalyzer(ByteBuffer.wrap(bytes),internPool,lineNumber,blockComment);
+        lineTokens.addAll(LexicalAnalyzer.readUnchecked(lexer::readAllTokens));
+        return lexer.isInBlockComment();
+    }
+    
+    // The line the token at the given index is on. Empty lines start where the
+    // line after them does, so it's the last line starting at or before the index.
+    private int lineOf(int index) {
+        if(lineStarts[lastReadLine - 1] <= index && index < lineStarts[lastReadLine]) {
+            return lastReadLine;
+        }
+        int low = 1;
+        int high = lines.size();
+        while(low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if(lineStarts[middle - 1] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        lastReadLine = low;
+        return low;
+    }
+    
+    private class View extends AbstractList<Token> implements RandomAccess {
+        
+        @Override
+        public Token get(int index) {
+            Token token = tokens.get(index);
+            int line = lineOf(index);
+            if(token.getLine() != line) {
+                token = new Token(token.getTokenType(),line,token.getColumn(),
+                        token.getIntValue(),token.getFloatValue(),token.getStringValue(),token.getInternId());
+                tokens.set(index,token);
+            }
+            return token;
+        }
+        
+        @Override
+        public int size() {
+            return tokens.size();
+        }
+        
+    }
+    
+    // Replaces lines firstLine to lastLine (counting from 1, inclusive) with the lines
+    // of text. An empty range, where lastLine is firstLine - 1, inserts the text before
+    // firstLine, and empty text deletes the range. If the new text doesn't lex, the
+    // exception is thrown and the document is left as it was.
+    public TokenEdit edit(int firstLine, int lastLine, String text) throws LexicalAnalyzerException {
+        if(firstLine < 1 || firstLine > lines.size() + 1 || lastLine < firstLine - 1 || lastLine > lines.size()) {
+            throw new IllegalArgumentException("Invalid line range " + firstLine + " to " + lastLine + " in a document of " + lines.size() + " lines");
+        }
+        List<String> newLines = splitLines(text);
+        int lineDelta = newLines.size() - (lastLine - firstLine + 1);
+        
+        // Lex the new lines, then keep lexing the old lines after them until one
+        // starts in the same state it used to
+        List<Token> newTokens = new ArrayList<>();
+        List<Boolean> newStates = new ArrayList<>();
+        List<Integer> newStarts = new ArrayList<>();
+        boolean blockComment = startsInBlockComment[firstLine - 1];
+        int lineNumber = firstLine;
+        for(String line : newLines) {
+            newStarts.add(newTokens.size());
+            blockComment = lexLine(line,lineNumber,blockComment,newTokens);
+            newStates.add(blockComment);
+            lineNumber++;
+        }
+        int oldLine = lastLine + 1;
+        while(oldLine <= lines.size() && blockComment != startsInBlockComment[oldLine - 1]) {
+            newStarts.add(newTokens.size());
+            blockComment = lexLine(lines.get(oldLine - 1),lineNumber,blockComment,newTokens);
+            newStates.add(blockComment);
+            lineNumber++;
+            oldLine++;
+        }
+        
+        // Everything lexed, so the edit can be applied. The tokens after it are left
+        // as they are, and only their line starts move.
+        int start = lineStarts[firstLine - 1];
+        int oldEnd = lineStarts[oldLine - 1];
+        int tokenDelta = newTokens.size() - (oldEnd - start);
+        tokens.subList(start,oldEnd).clear();
+        tokens.addAll(start,newTokens);
+        
+        lines.subList(firstLine - 1,lastLine).clear();
+        lines.addAll(firstLine - 1,newLines);
+        
+        int[] starts = new int[lines.size() + 1];
+        System.arraycopy(lineStarts,0,starts,0,firstLine - 1);
+        for(int i = 0; i < newStarts.size(); i++) {
+            starts[firstLine - 1 + i] = start + newStarts.get(i);
+        }
+        for(int i = firstLine - 1 + newStarts.size(); i < starts.length; i++) {
+            starts[i] = lineStarts[i - lineDelta] + tokenDelta;
+        }
+        lineStarts = starts;
+        lastReadLine = 1;
+        
+        // The state after each re-lexed line is the starting state of the line after it
+        boolean[] states = new boolean[lines.size() + 1];
+        System.arraycopy(startsInBlockComment,0,states,0,firstLine);
+        for(int i = 0; i < newStates.size(); i++) {
+            states[firstLine + i] = newStates.get(i);
+        }
+        int resumeLine = firstLine + newStates.size();
+        System.arraycopy(startsInBlockComment,resumeLine - lineDelta,states,resumeLine,states.length - resumeLine);
+        startsInBlockComment = states;
+        
+        return new TokenEdit(getTokens(),start,oldEnd,start + newTokens.size());
+    }
+    
+    // A read-only view of the tokens, which follows later edits
+    public List<Token> getTokens() {
+        return view;
+    }
+    
+    public int getLineCount() {
+        return lines.size();
+    }
+    
+    public String getLine(int line) {
+        return lines.get(line - 1);
+    }
+    
+    public InternPool getInternPool() {
+        return internPool;
+    }
+    
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.lexical;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Gives every distinct identifier and string literal in a compilation a dense
+ * integer id, starting at zero. The lexer interns spans straight out of its byte
+ * buffer, so a name that has been seen before costs a hash and a compare instead
+ * of a new String. Later phases can then index arrays by id instead of hashing
+ * names, and every copy of a name shares one canonical String.
+ *
+ * An intern pool is not thread safe.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class InternPool {
+    
+    private String[] strings = new String[64];
+    private int[] hashes = new int[64];
+    private int size = 0;
+    
+    // Open addressing table of ids plus one, so that zero marks an empty slot
+    private int[] table = new int[128];
+    
+    public int size() {
+        return size;
+    }
+    
+    // Forgets every string, keeping the arrays for the next compilation. Ids
+    // handed out before are no longer valid.
+    public void clear() {
+        Arrays.fill(strings,0,size,null);
+        Arrays.fill(table,0);
+        size = 0;
+    }
+    
+    public String getString(int id) {
+        return strings[id];
+    }
+    
+    private static int hash(ByteBuffer buffer, int start, int end) {
+        int hash = 0;
+        for(int i = start; i < end; i++) {
+            hash = 31 * hash + (buffer.get(i) & 0xff);
+        }
+        return hash;
+    }
+    
+    private static int hash(String string) {
+        int hash = 0;
+        for(int i = 0; i < string.length(); i++) {
+            hash = 31 * hash + string.charAt(i);
+        }
+        return hash;
+    }
+    
+    private static boolean matches(String string, ByteBuffer buffer, int start, int end) {
+        if(string.length() != end - start) {
+            return false;
+        }
+        for(int i = 0; i < string.length(); i++) {
+            if(string.charAt(i) != (buffer.get(start + i) & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private int add(String string, int hash) {
+        if(size == strings.length) {
+            strings = Arrays.copyOf(strings,size * 2);
+            hashes = Arrays.copyOf(hashes,size * 2);
+        }
+        int id = size++;
+        strings[id] = string;
+        hashes[id] = hash;
+        
+        // Keep the table at most half full
+        if(size * 2 > table.length) {
+            table = new int[table.length * 2];
+            for(int i = 0; i < size; i++) {
+                table[findSlot(hashes[i])] = i + 1;
+            }
+        } else {
+            table[findSlot(hash)] = id + 1;
+        }
+        return id;
+    }
+    
+    // Returns the first empty slot along the probe sequence of a hash
+    private int findSlot(int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while(table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    // Interns the ASCII bytes from start to end, only allocating a String the first time they're seen
+    public int intern(ByteBuffer buffer, int start, int end) {
+        int hash = hash(buffer,start,end);
+        int mask = table.length - 1;
+        for(int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if(hashes[id] == hash && matches(strings[id],buffer,start,end)) {
+                return id;
+            }
+        }
+        
+        byte[] bytes = new byte[end - start];
+        buffer.get(start,bytes);
+        return add(new String(bytes,StandardCharsets.US_ASCII),hash);
+    }
+    
+    public int intern(String string) {
+        int hash = hash(string);
+        int mask = table.length - 1;
+        for(int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if(hashes[id] == hash && strings[id].equals(string)) {
+                return id;
+            }
+        }
+        return add(string,hash);
+    }
+    
+}
@@ -24,306 +24,829 @@
 
 package edu.tarleton.welborn.medusacompiler.lexical;
 
+import edu.tarleton.welborn.medusacompiler.Diagnostic;
+import edu.tarleton.welborn.medusacompiler.Diagnostics;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
  */
 
-public class LexicalAnalyzer {
+public class LexicalAnalyzer implements TokenSource {
 
-    private static boolean isThisAWord(String originString, int startingPosition, String guessedWord) {
-        // Check that the string, beginning at starting position, is long enough to contain the guessed word
-        if(originString.length() - startingPosition >= guessedWord.length()) {
-            return originString.substring(startingPosition,startingPosition + guessedWord.length()).equals(guessedWord);
-        } else {
-            return false;
+    // Medusa source is plain ASCII, so the lexer scans raw bytes. In buffer mode the
+    // whole file is scanned in place (usually straight out of a memory mapped file);
+    // in reader mode each line is copied into a small reusable buffer, followed by
+    // a newline, and scanned exactly the same way.
+    private final BufferedReader reader;
+    private ByteBuffer buffer;
+    private byte[] lineBytes;
+    private int position;
+    private int limit;
+    
+    // Scratch space for copying literals out of buffers that aren't backed by an array
+    private byte[] scratch = new byte[64];
+    
+    private int currentLine = 1;
+    private int lineStart;
+    private boolean blockComment = false;
+    
+    // The fields of the token that was just scanned. The scanner fills these in
+    // rather than allocating a Token, so callers can store them however they like.
+    private int tokenLine;
+    private int tokenColumn;
+    private int tokenIntValue;
+    private double tokenFloatValue;
+    private String tokenStringValue;
+    private int tokenInternId;
+    
+    // Idents and string values are interned as they're scanned, so every copy of a
+    // name shares one String and one id for the rest of the compilation
+    private final InternPool internPool;
+    
+    // Where errors go when collecting them instead of throwing the first
+    private Diagnostics diagnostics;
+    
+    public LexicalAnalyzer(BufferedReader reader) {
+        this(reader,new InternPool());
+    }
+    
+    public LexicalAnalyzer(BufferedReader reader, InternPool internPool) {
+        this.reader = reader;
+        this.internPool = internPool;
+        this.lineBytes = new byte[256];
+        this.buffer = ByteBuffer.wrap(lineBytes);
+        this.position = 0;
+        this.limit = 0;
+        this.lineStart = 0;
+    }
+    
+    public LexicalAnalyzer(ByteBuffer buffer) {
+        this(buffer,new InternPool());
+    }
+    
+    public LexicalAnalyzer(ByteBuffer buffer, InternPool internPool) {
+        this.reader = null;
+        this.internPool = internPool;
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+        this.lineStart = position;
+    }
+    
+    // Picks up partway through a source, for lexers that only see part of it. The
+    // buffer has to start at the beginning of a line.
+    LexicalAnalyzer(ByteBuffer buffer, InternPool internPool, int firstLine, boolean blockComment) {
+        this(buffer,internPool);
+        this.currentLine = firstLine;
+        this.blockComment = blockComment;
+    }
+    
+    int getCurrentLine() {
+        return currentLine;
+    }
+    
+    boolean isInBlockComment() {
+        return blockComment;
+    }
+    
+    // With diagnostics set, errors are reported there and the lexer skips past the
+    // bad input and carries on
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+    
+    // Throws the error, or reports it if we're collecting them
+    private void error(String message, int column) throws LexicalAnalyzerException {
+        if(diagnostics == null) {
+            throw new LexicalAnalyzerException(message,false);
+        }
+        diagnostics.report(Diagnostic.Phase.LEXICAL,message,currentLine,column);
+    }
+
+    // The scanner is a table driven DFA. Every byte is first mapped to a character
+    // class, and the transition table is indexed by state and class. Each state also
+    // has an accept action: either the token it produces or one of the special
+    // actions below. The scanner runs the DFA as far as it can and then takes the
+    // action of the last accepting state it passed through (maximal munch).
+    private static final int CLASS_OTHER = 0;
+    private static final int CLASS_LETTER = 1;
+    private static final int CLASS_DIGIT = 2;
+    private static final int CLASS_DOT = 3;
+    private static final int CLASS_SPACE = 4;
+    private static final int CLASS_NEWLINE = 5;
+    private static final int CLASS_CARRIAGE_RETURN = 6;
+    private static final int CLASS_SLASH = 7;
+    private static final int CLASS_STAR = 8;
+    private static final int CLASS_LEFT_PARENTHESES = 9;
+    private static final int CLASS_RIGHT_PARENTHESES = 10;
+    private static final int CLASS_LEFT_CURLY_BRACKET = 11;
+    private static final int CLASS_RIGHT_CURLY_BRACKET = 12;
+    private static final int CLASS_LESS_THAN = 13;
+    private static final int CLASS_GREATER_THAN = 14;
+    private static final int CLASS_EXCLAMATION = 15;
+    private static final int CLASS_EQUALS = 16;
+    private static final int CLASS_PLUS = 17;
+    private static final int CLASS_MINUS = 18;
+    private static final int CLASS_PERCENT = 19;
+    private static final int CLASS_CARET = 20;
+    private static final int CLASS_SEMI_COLON = 21;
+    private static final int CLASS_QUOTE = 22;
+    private static final int CLASS_COUNT = 23;
+    
+    private static final byte[] CHARACTER_CLASSES = new byte[256];
+    
+    private static final int STATE_DEAD = 0;
+    private static final int STATE_START = 1;
+    private static final int STATE_SPACE = 2;
+    private static final int STATE_NEWLINE = 3;
+    private static final int STATE_CARRIAGE_RETURN = 4;
+    private static final int STATE_CARRIAGE_RETURN_NEWLINE = 5;
+    private static final int STATE_WORD = 6;
+    private static final int STATE_INT = 7;
+    private static final int STATE_FLOAT = 8;
+    private static final int STATE_BAD_NUMBER = 9;
+    private static final int STATE_STRING = 10;
+    private static final int STATE_STRING_END = 11;
+    private static final int STATE_SLASH = 12;
+    private static final int STATE_LINE_COMMENT = 13;
+    private static final int STATE_BLOCK_COMMENT = 14;
+    private static final int STATE_LEFT_PARENTHESES = 15;
+    private static final int STATE_CONVERSION_NAME = 16;
+    private static final int STATE_CONVERSION_END = 17;
+    private static final int STATE_RIGHT_PARENTHESES = 18;
+    private static final int STATE_LEFT_CURLY_BRACKET = 19;
+    private static final int STATE_RIGHT_CURLY_BRACKET = 20;
+    private static final int STATE_LESS_THAN = 21;
+    private static final int STATE_LESS_THAN_OR_EQUAL = 22;
+    private static final int STATE_GREATER_THAN = 23;
+    private static final int STATE_GREATER_THAN_OR_EQUAL = 24;
+    private static final int STATE_ASSIGNMENT = 25;
+    private static final int STATE_EQUAL = 26;
+    private static final int STATE_EXCLAMATION = 27;
+    private static final int STATE_NOT_EQUAL = 28;
+    private static final int STATE_PLUS = 29;
+    private static final int STATE_MINUS = 30;
+    private static final int STATE_MULTIPLY = 31;
+    private static final int STATE_MODULO = 32;
+    private static final int STATE_POWER = 33;
+    private static final int STATE_SEMI_COLON = 34;
+    private static final int STATE_DOT = 35;
+    private static final int STATE_CONCATENATE = 36;
+    private static final int STATE_COUNT = 37;
+    
+    private static final byte[] TRANSITIONS = new byte[STATE_COUNT * CLASS_COUNT];
+    
+    // Accept actions. Positive actions are TokenType ordinals plus one, so zero is
+    // left free to mean "not an accepting state".
+    private static final int ACCEPT_NONE = 0;
+    private static final int ACCEPT_SKIP = -1;
+    private static final int ACCEPT_NEWLINE = -2;
+    private static final int ACCEPT_BLOCK_COMMENT = -3;
+    private static final int ACCEPT_WORD = -4;
+    private static final int ACCEPT_CONVERSION = -5;
+    private static final int ACCEPT_INT = -6;
+    private static final int ACCEPT_FLOAT = -7;
+    private static final int ACCEPT_BAD_NUMBER = -8;
+    private static final int ACCEPT_STRING = -9;
+    
+    private static final int[] ACCEPTS = new int[STATE_COUNT];
+    
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    
+    // Keywords are recognized after the fact from the span of a scanned word, using a
+    // perfect hash of its length and first and last letters. The table is filled in
+    // (and checked for collisions) when the class loads.
+    private static final String[] KEYWORDS = {"int","float","string","for","if","else"};
+    private static final TokenType[] KEYWORD_TOKEN_TYPES = {TokenType.INT_DECLARATION,TokenType.FLOAT_DECLARATION,TokenType.STRING_DECLARATION,TokenType.FOR,TokenType.IF,TokenType.ELSE};
+    private static final int KEYWORD_TABLE_SIZE = 8;
+    private static final byte[][] KEYWORD_TABLE = new byte[KEYWORD_TABLE_SIZE][];
+    private static final TokenType[] KEYWORD_TABLE_TOKEN_TYPES = new TokenType[KEYWORD_TABLE_SIZE];
+    
+    private static int keywordHash(int length, int firstCharacter, int lastCharacter) {
+        return (length * 5 + firstCharacter + lastCharacter) & (KEYWORD_TABLE_SIZE - 1);
+    }
+    
+    private static void characterClass(char from, char to, int characterClass) {
+        for(char character = from; character <= to; character++) {
+            CHARACTER_CLASSES[character] = (byte) characterClass;
         }
     }
     
-    public static List<Token> parseBufferedReader(BufferedReader reader) throws IOException,LexicalAnalyzerException {
-        List<Token> tokens = new ArrayList<>();
+    private static void transition(int fromState, int characterClass, int toState) {
+        TRANSITIONS[fromState * CLASS_COUNT + characterClass] = (byte) toState;
+    }
+    
+    private static void transitionAll(int fromState, int toState) {
+        for(int characterClass = 0; characterClass < CLASS_COUNT; characterClass++) {
+            transition(fromState,characterClass,toState);
+        }
+    }
+    
+    private static void accept(int state, TokenType tokenType) {
+        ACCEPTS[state] = tokenType.ordinal() + 1;
+    }
+    
+    static {
+        characterClass('a','z',CLASS_LETTER);
+        characterClass('A','Z',CLASS_LETTER);
+        characterClass('0','9',CLASS_DIGIT);
+        characterClass('.','.',CLASS_DOT);
+        characterClass(' ',' ',CLASS_SPACE);
+        characterClass('\n','\n',CLASS_NEWLINE);
+        characterClass('\r','\r',CLASS_CARRIAGE_RETURN);
+        characterClass('/','/',CLASS_SLASH);
+        characterClass('*','*',CLASS_STAR);
+        characterClass('(','(',CLASS_LEFT_PARENTHESES);
+        characterClass(')',')',CLASS_RIGHT_PARENTHESES);
+        characterClass('{','{',CLASS_LEFT_CURLY_BRACKET);
+        characterClass('}','}',CLASS_RIGHT_CURLY_BRACKET);
+        characterClass('<','<',CLASS_LESS_THAN);
+        characterClass('>','>',CLASS_GREATER_THAN);
+        characterClass('!','!',CLASS_EXCLAMATION);
+        characterClass('=','=',CLASS_EQUALS);
+        characterClass('+','+',CLASS_PLUS);
+        characterClass('-','-',CLASS_MINUS);
+        characterClass('%','%',CLASS_PERCENT);
+        characterClass('^','^',CLASS_CARET);
+        characterClass(';',';',CLASS_SEMI_COLON);
+        characterClass('"','"',CLASS_QUOTE);
         
-        int currentLine = 0;
-        int currentColumn;
-        boolean blockComment = false;
+        // Whitespace and line breaks (\n, \r\n, or a lone \r)
+        transition(STATE_START,CLASS_SPACE,STATE_SPACE);
+        transition(STATE_SPACE,CLASS_SPACE,STATE_SPACE);
+        ACCEPTS[STATE_SPACE] = ACCEPT_SKIP;
+        transition(STATE_START,CLASS_NEWLINE,STATE_NEWLINE);
+        ACCEPTS[STATE_NEWLINE] = ACCEPT_NEWLINE;
+        transition(STATE_START,CLASS_CARRIAGE_RETURN,STATE_CARRIAGE_RETURN);
+        transition(STATE_CARRIAGE_RETURN,CLASS_NEWLINE,STATE_CARRIAGE_RETURN_NEWLINE);
+        ACCEPTS[STATE_CARRIAGE_RETURN] = ACCEPT_NEWLINE;
+        ACCEPTS[STATE_CARRIAGE_RETURN_NEWLINE] = ACCEPT_NEWLINE;
+        
+        // Words: idents and keywords
+        transition(STATE_START,CLASS_LETTER,STATE_WORD);
+        transition(STATE_WORD,CLASS_LETTER,STATE_WORD);
+        transition(STATE_WORD,CLASS_DIGIT,STATE_WORD);
+        ACCEPTS[STATE_WORD] = ACCEPT_WORD;
+        
+        // Numbers: digits and dots, where the number of dots decides the type
+        transition(STATE_START,CLASS_DIGIT,STATE_INT);
+        transition(STATE_INT,CLASS_DIGIT,STATE_INT);
+        transition(STATE_INT,CLASS_DOT,STATE_FLOAT);
+        transition(STATE_FLOAT,CLASS_DIGIT,STATE_FLOAT);
+        transition(STATE_FLOAT,CLASS_DOT,STATE_BAD_NUMBER);
+        transition(STATE_BAD_NUMBER,CLASS_DIGIT,STATE_BAD_NUMBER);
+        transition(STATE_BAD_NUMBER,CLASS_DOT,STATE_BAD_NUMBER);
+        ACCEPTS[STATE_INT] = ACCEPT_INT;
+        ACCEPTS[STATE_FLOAT] = ACCEPT_FLOAT;
+        ACCEPTS[STATE_BAD_NUMBER] = ACCEPT_BAD_NUMBER;
+        
+        // Strings can't span lines
+        transition(STATE_START,CLASS_QUOTE,STATE_STRING);
+        transitionAll(STATE_STRING,STATE_STRING);
+        transition(STATE_STRING,CLASS_NEWLINE,STATE_DEAD);
+        transition(STATE_STRING,CLASS_CARRIAGE_RETURN,STATE_DEAD);
+        transition(STATE_STRING,CLASS_QUOTE,STATE_STRING_END);
+        ACCEPTS[STATE_STRING_END] = ACCEPT_STRING;
+        
+        // Division and comments. Block comments can span lines (and, in reader mode,
+        // buffers), so the DFA only recognizes the opening symbol.
+        transition(STATE_START,CLASS_SLASH,STATE_SLASH);
+        accept(STATE_SLASH,TokenType.DIVIDE);
+        transition(STATE_SLASH,CLASS_SLASH,STATE_LINE_COMMENT);
+        transitionAll(STATE_LINE_COMMENT,STATE_LINE_COMMENT);
+        transition(STATE_LINE_COMMENT,CLASS_NEWLINE,STATE_DEAD);
+        transition(STATE_LINE_COMMENT,CLASS_CARRIAGE_RETURN,STATE_DEAD);
+        ACCEPTS[STATE_LINE_COMMENT] = ACCEPT_SKIP;
+        transition(STATE_SLASH,CLASS_STAR,STATE_BLOCK_COMMENT);
+        ACCEPTS[STATE_BLOCK_COMMENT] = ACCEPT_BLOCK_COMMENT;
+        
+        // ( or a type conversion like (int). Any (word) is accepted here, and the word is
+        // then checked against the keywords; if it isn't a data type, only the ( is kept.
+        transition(STATE_START,CLASS_LEFT_PARENTHESES,STATE_LEFT_PARENTHESES);
+        accept(STATE_LEFT_PARENTHESES,TokenType.LEFT_PARENTHESES);
+        transition(STATE_LEFT_PARENTHESES,CLASS_LETTER,STATE_CONVERSION_NAME);
+        transition(STATE_CONVERSION_NAME,CLASS_LETTER,STATE_CONVERSION_NAME);
+        transition(STATE_CONVERSION_NAME,CLASS_RIGHT_PARENTHESES,STATE_CONVERSION_END);
+        ACCEPTS[STATE_CONVERSION_END] = ACCEPT_CONVERSION;
+        
+        // Operators
+        transition(STATE_START,CLASS_RIGHT_PARENTHESES,STATE_RIGHT_PARENTHESES);
+        accept(STATE_RIGHT_PARENTHESES,TokenType.RIGHT_PARENTHESES);
+        transition(STATE_START,CLASS_LEFT_CURLY_BRACKET,STATE_LEFT_CURLY_BRACKET);
+        accept(STATE_LEFT_CURLY_BRACKET,TokenType.LEFT_CURLY_BRACKET);
+        transition(STATE_START,CLASS_RIGHT_CURLY_BRACKET,STATE_RIGHT_CURLY_BRACKET);
+        accept(STATE_RIGHT_CURLY_BRACKET,TokenType.RIGHT_CURLY_BRACKET);
+        transition(STATE_START,CLASS_LESS_THAN,STATE_LESS_THAN);
+        accept(STATE_LESS_THAN,TokenType.LESS_THAN);
+        transition(STATE_LESS_THAN,CLASS_EQUALS,STATE_LESS_THAN_OR_EQUAL);
+        accept(STATE_LESS_THAN_OR_EQUAL,TokenType.LESS_THAN_OR_EQUAL);
+        transition(STATE_START,CLASS_GREATER_THAN,STATE_GREATER_THAN);
+        accept(STATE_GREATER_THAN,TokenType.GREATER_THAN);
+        transition(STATE_GREATER_THAN,CLASS_EQUALS,STATE_GREATER_THAN_OR_EQUAL);
+        accept(STATE_GREATER_THAN_OR_EQUAL,TokenType.GREATER_THAN_OR_EQUAL);
+        transition(STATE_START,CLASS_EQUALS,STATE_ASSIGNMENT);
+        accept(STATE_ASSIGNMENT,TokenType.ASSIGNMENT);
+        transition(STATE_ASSIGNMENT,CLASS_EQUALS,STATE_EQUAL);
+        accept(STATE_EQUAL,TokenType.EQUAL);
+        transition(STATE_START,CLASS_EXCLAMATION,STATE_EXCLAMATION);
+        transition(STATE_EXCLAMATION,CLASS_EQUALS,STATE_NOT_EQUAL);
+        accept(STATE_NOT_EQUAL,TokenType.NOT_EQUAL);
+        transition(STATE_START,CLASS_PLUS,STATE_PLUS);
+        accept(STATE_PLUS,TokenType.PLUS);
+        transition(STATE_START,CLASS_MINUS,STATE_MINUS);
+        accept(STATE_MINUS,TokenType.MINUS);
+        transition(STATE_START,CLASS_STAR,STATE_MULTIPLY);
+        accept(STATE_MULTIPLY,TokenType.MULTIPLY);
+        transition(STATE_START,CLASS_PERCENT,STATE_MODULO);
+        accept(STATE_MODULO,TokenType.MODULO);
+        transition(STATE_START,CLASS_CARET,STATE_POWER);
+        accept(STATE_POWER,TokenType.POWER);
+        transition(STATE_START,CLASS_SEMI_COLON,STATE_SEMI_COLON);
+        accept(STATE_SEMI_COLON,TokenType.SEMI_COLON);
+        transition(STATE_START,CLASS_DOT,STATE_DOT);
+        transition(STATE_DOT,CLASS_DOT,STATE_CONCATENATE);
+        accept(STATE_CONCATENATE,TokenType.CONCATENATE);
+        
+        for(int i = 0; i < KEYWORDS.length; i++) {
+            String keyword = KEYWORDS[i];
+            int hash = keywordHash(keyword.length(),keyword.charAt(0),keyword.charAt(keyword.length() - 1));
+            if(KEYWORD_TABLE[hash] != null) {
+                throw new IllegalStateException("Keyword hash collision between " + keyword + " and " + new String(KEYWORD_TABLE[hash],StandardCharsets.US_ASCII));
+            }
+            KEYWORD_TABLE[hash] = keyword.getBytes(StandardCharsets.US_ASCII);
+            KEYWORD_TABLE_TOKEN_TYPES[hash] = KEYWORD_TOKEN_TYPES[i];
+        }
+    }
+    
+    // Returns the keyword spelled by the bytes from start to end, or null if it's just an ident
+    private TokenType keyword(int start, int end) {
+        int length = end - start;
+        if(length < 2) {
+            return null;
+        }
+        int hash = keywordHash(length,buffer.get(start),buffer.get(end - 1));
+        byte[] keyword = KEYWORD_TABLE[hash];
+        if(keyword == null || keyword.length != length) {
+            return null;
+        }
+        for(int i = 0; i < length; i++) {
+            if(buffer.get(start + i) != keyword[i]) {
+                return null;
+            }
+        }
+        return KEYWORD_TABLE_TOKEN_TYPES[hash];
+    }
+    
+    private static boolean isNewline(int character) {
+        return character == '\n' || character == '\r';
+    }
+    
+    private String spanToString(int start, int end) {
+        if(buffer.hasArray()) {
+            return new String(buffer.array(),buffer.arrayOffset() + start,end - start,StandardCharsets.US_ASCII);
+        }
+        if(scratch.length < end - start) {
+            scratch = new byte[Math.max(end - start,scratch.length * 2)];
+        }
+        buffer.get(start,scratch,0,end - start);
+        return new String(scratch,0,end - start,StandardCharsets.US_ASCII);
+    }
+    
+    private int parseInt(int start, int end) throws LexicalAnalyzerException {
+        int value = 0;
+        for(int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if(value > (Integer.MAX_VALUE - digit) / 10) {
+                error("Int value " + spanToString(start,end) + " is too large, at line " + currentLine + ", column " + (start - lineStart),start - lineStart);
+                return 0;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+    
+    // Pulls the next line out of the reader. Returns false once the reader runs dry.
+    private boolean readLine() throws IOException {
+        if(reader == null) {
+            return false;
+        }
+        String line = reader.readLine();
+        if(line == null) {
+            return false;
+        }
+        if(lineBytes.length < line.length() + 1) {
+            lineBytes = new byte[Math.max(line.length() + 1,lineBytes.length * 2)];
+            buffer = ByteBuffer.wrap(lineBytes);
+        }
+        for(int i = 0; i < line.length(); i++) {
+            lineBytes[i] = (byte) line.charAt(i);
+        }
+        lineBytes[line.length()] = '\n';
+        position = 0;
+        limit = line.length() + 1;
+        lineStart = 0;
+        return true;
+    }
+    
+    // If we're stuck in a block comment, then the only symbol that'll let us
+    // escape is */ so we search for that symbol only, keeping count of the lines
+    // we pass along the way.
+    private void skipBlockComment() {
+        while(position < limit) {
+            int character = buffer.get(position);
+            if(character == '*' && position + 1 < limit && buffer.get(position + 1) == '/') {
+                blockComment = false;
+                position = position + 2;
+                return;
+            } else if(isNewline(character)) {
+                if(character == '\r' && position + 1 < limit && buffer.get(position + 1) == '\n') {
+                    position++;
+                }
+                position++;
+                currentLine++;
+                lineStart = position;
+            } else {
+                position++;
+            }
+        }
+    }
+    
+    private TokenType scanned(TokenType tokenType, int column) {
+        tokenLine = currentLine;
+        tokenColumn = column;
+        tokenIntValue = 0;
+        tokenFloatValue = 0;
+        tokenStringValue = "";
+        tokenInternId = -1;
+        return tokenType;
+    }
+    
+    // Scans forward until one whole token has been read, pulling in new lines from the
+    // reader as needed, and returns its type. Once the input runs dry, every call
+    // returns EOF.
+    private TokenType scanToken() throws IOException,LexicalAnalyzerException {
         while(true) {
-            String line = reader.readLine();
-            if(line == null) {
-                break;
+            if(position >= limit) {
+                if(readLine()) {
+                    continue;
+                }
+                return scanned(TokenType.EOF,position - lineStart);
             }
             
-            currentLine++;
-            currentColumn = 0;
-            boolean lineComment = false;
+            if(blockComment) {
+                skipBlockComment();
+                continue;
+            }
             
-            while(true) {
-                if(currentColumn >= line.length() || lineComment) {
+            // Run the DFA from here for as long as it can go, remembering the last accepting state
+            int start = position;
+            int state = STATE_START;
+            int action = ACCEPT_NONE;
+            int end = start;
+            for(int i = start; i < limit; i++) {
+                state = TRANSITIONS[state * CLASS_COUNT + CHARACTER_CLASSES[buffer.get(i) & 0xff]];
+                if(state == STATE_DEAD) {
                     break;
                 }
-                
-                char character = line.charAt(currentColumn);
-                
-                // If we're stuck in a block comment, then the only symbol that'll let us
-                // escape is */ so we search for that symbol only. If we find it, then we
-                // can start processing symbols on the next cycle! Regardless, we won't be
-                // looking for any regular tokens this cycle.
-                if(blockComment) {
-                    if(character == '*' && isThisAWord(line,currentColumn,"*/")) {
-                        blockComment = false;
-                        currentColumn = currentColumn + 2;
-                    } else {
-                        currentColumn = currentColumn + 1;
-                    }
-                    continue;
+                if(ACCEPTS[state] != ACCEPT_NONE) {
+                    action = ACCEPTS[state];
+                    end = i + 1;
                 }
-                
-                switch(character) {
-                    case ' ':
-                        currentColumn++;
-                        break;
-                    case '/':
-                        if(isThisAWord(line,currentColumn,"//") && blockComment == false) {
-                            lineComment = true;
-                            break;
-                        } else if(isThisAWord(line,currentColumn,"/*")) {
-                            blockComment = true;
-                            currentColumn = currentColumn + 2;
-                            break;
-                        } else {
-                            // /
-                            tokens.add(new Token(TokenType.DIVIDE,currentLine,currentColumn));
-                            currentColumn++;
-                            break;
-                        }
-                    case '(':
-                        if(isThisAWord(line,currentColumn,"(int)")) {
-                            // (int)
-                            tokens.add(new Token(TokenType.UNARY_INT_CONVERSION,currentLine,currentColumn));
-                            currentColumn = currentColumn + 5;
-                            break;
-                        } else if (isThisAWord(line,currentColumn,"(float)")) {
-                            // (float)
-                            tokens.add(new Token(TokenType.UNARY_FLOAT_CONVERSION,currentLine,currentColumn));
-                            currentColumn = currentColumn + 7;
-                            break;
-                        } else if (isThisAWord(line,currentColumn,"(string)")) {
-                            // (string)
-                            tokens.add(new Token(TokenType.UNARY_STRING_CONVERSION,currentLine,currentColumn));
-                            currentColumn = currentColumn + 8;
-                            break;
-                        } else {
-                            // (
-                            tokens.add(new Token(TokenType.LEFT_PARENTHESES,currentLine,currentColumn));
-                            currentColumn = currentColumn + 1;
-                            break;
-                        }
-                    case ')':
-                        tokens.add(new Token(TokenType.RIGHT_PARENTHESES,currentLine,currentColumn));
-                        currentColumn++;
-                        break;
-                    case '{':
-                        tokens.add(new Token(TokenType.LEFT_CURLY_BRACKET,currentLine,currentColumn));
-                        currentColumn++;
-                        break;
-                    case '}':
-                        tokens.add(new Token(TokenType.RIGHT_CURLY_BRACKET,currentLine,currentColumn));
-                        currentColumn++;
-                        break;
-                    case '<':
-                        if(isThisAWord(line,currentColumn,"<=")) {
-                            // <=
-                            tokens.add(new Token(TokenType.LESS_THAN_OR_EQUAL,currentLine,currentColumn));
-                            currentColumn = currentColumn + 2;
-                            break;
-                        } else {
-                            // <
-                            tokens.add(new Token(TokenType.LESS_THAN,currentLine,currentColumn));
-                            currentColumn = currentColumn + 1;
-                            break;
-                        }
-                    case '>':
-                        if(isThisAWord(line,currentColumn,">=")) {
-                            // >=
-                            tokens.add(new Token(TokenType.GREATER_THAN_OR_EQUAL,currentLine,currentColumn));
-                            currentColumn = currentColumn + 2;
-                            break;
-                        } else {
-                            // >
-                            tokens.add(new Token(TokenType.GREATER_THAN,currentLine,currentColumn));
-                            currentColumn = currentColumn + 1;
-                            break;
-                        }
-                    case '!':
-                        if(isThisAWord(line,currentColumn,"!=")) {
-                            // !=
-                            tokens.add(new Token(TokenType.NOT_EQUAL,currentLine,currentColumn));
-                            currentColumn = currentColumn + 2;
-                            break;
-                        }
-                        throw new LexicalAnalyzerException("Unrecogized token starting with ! at line " + currentLine + ", column " + currentColumn);
-                    case '=':
-                        if(isThisAWord(line,currentColumn,"==")) {
-                            // ==
-                            tokens.add(new Token(TokenType.EQUAL,currentLine,currentColumn));
-                            currentColumn = currentColumn + 2;
-                            break;
-                        } else {
-                            // =
-                            tokens.add(new Token(TokenType.ASSIGNMENT,currentLine,currentColumn));
-                            currentColumn = currentColumn + 1;
-                            break;
-                        }
-                    case '+':
-                        // +
-                        tokens.add(new Token(TokenType.PLUS,currentLine,currentColumn));
-                        currentColumn++;
-                        break;
-                    case '-':
-                        // -
-                        tokens.add(new Token(TokenType.MINUS,currentLine,currentColumn));
-                        currentColumn++;
-                        break;
-                    case '*':
-                        // *
-                        tokens.add(new Token(TokenType.MULTIPLY,currentLine,currentColumn));
-                        currentColumn++;
-                        break;
-                    case '%':
-                        // %
-                        tokens.add(new Token(TokenType.MODULO,currentLine,currentColumn));
-                        currentColumn++;
-                        break;
-                    case '^':
-                        // ^
-                        tokens.add(new Token(TokenType.POWER,currentLine,currentColumn));
-                        currentColumn++;
-                        break;
-                    case '.':
-                        if(isThisAWord(line,currentColumn,"..")) {
-                            // ..
-                            tokens.add(new Token(TokenType.CONCATENATE,currentLine,currentColumn));
-                            currentColumn = currentColumn + 2;
-                            break;
-                        }
-                        throw new LexicalAnalyzerException("Unrecogized token starting with . at line " + currentLine + ", column " + currentColumn);
-                    case ';':
-                        // ;
-                        tokens.add(new Token(TokenType.SEMI_COLON,currentLine,currentColumn));
-                        currentColumn = currentColumn + 1;
-                        break;
-                    case '"':
-                        // Must be a string value token. We're going to scan characters until we find a closing quote.
-                        int originalColumn = currentColumn;
-                        while(true) {
-                            currentColumn++;
-                            // If we reached the end of the line, then throw a syntax error
-                            if(currentColumn < line.length()) {
-                                character = line.charAt(currentColumn);
-                                // If character is a quote symbol then end the token and submit the value without the quotes
-                                if(character == '"') {
-                                    tokens.add(new Token(TokenType.STRING_VALUE,currentLine,currentColumn,0,0,line.substring(originalColumn+1, currentColumn)));
-                                    currentColumn++;
-                                    break;
-                                }
-                            } else {
-                                throw new LexicalAnalyzerException("String value missing a closing quote symbol at line " + currentLine + ", column " + originalColumn);
-                            }
-                        }
-                        break;
-                    default:
-                        if((character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z')) {
-                            // Character is in the range a-z or A-Z
-                            // It could be an int, float, or string token (for variable declarations), or
-                            // it could be an ident token.
-                            if(isThisAWord(line,currentColumn,"int ")) {
-                                tokens.add(new Token(TokenType.INT_DECLARATION,currentLine,currentColumn));
-                                currentColumn = currentColumn + 4;
-                                break;
-                            } else if(isThisAWord(line,currentColumn,"float ")) {
-                                tokens.add(new Token(TokenType.FLOAT_DECLARATION,currentLine,currentColumn));
-                                currentColumn = currentColumn + 6;
-                                break;
-                            } else if(isThisAWord(line,currentColumn,"string ")) {
-                                tokens.add(new Token(TokenType.STRING_DECLARATION,currentLine,currentColumn));
-                                currentColumn = currentColumn + 7;
-                                break;
-                            } else if(isThisAWord(line,currentColumn,"for")) {
-                                tokens.add(new Token(TokenType.FOR,currentLine,currentColumn));
-                                currentColumn = currentColumn + 3;
-                                break;
-                            } else if(isThisAWord(line,currentColumn,"if")) {
-                                tokens.add(new Token(TokenType.IF,currentLine,currentColumn));
-                                currentColumn = currentColumn + 2;
-                                break;
-                            } else if(isThisAWord(line,currentColumn,"else")) {
-                                tokens.add(new Token(TokenType.ELSE,currentLine,currentColumn));
-                                currentColumn = currentColumn + 4;
-                                break;
-                            } else {
-                                // Must be an ident token. We're going to scan characters until we find a character
-                                // that isn't alphanumeric.
-                                originalColumn = currentColumn;
-                                while(true) {
-                                    currentColumn++;
-                                    // If we reached the end of the line, then stop scanning and submit the ident token.
-                                    if(currentColumn < line.length()) {
-                                        character = line.charAt(currentColumn);
-                                        // If the character isn't alphanumeric, then stop our scan and submit the ident token, not including this character.
-                                        if(!((character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z') || (character >= '0' && character <= '9'))) {
-                                            tokens.add(new Token(TokenType.IDENT,currentLine,originalColumn,0,0,line.substring(originalColumn, currentColumn)));
-                                            break;
-                                        }
-                                    } else {
-                                        tokens.add(new Token(TokenType.IDENT,currentLine,originalColumn,0,0,line.substring(originalColumn, currentColumn)));
-                                        break;
-                                    }
-                                }
-                                break;
-                            }
-                        } else if(character >= '0' && character <= '9') {
-                            // Must be a float or int value token. We're going to scan characters until we find a character
-                            // that isn't a digit or a dot.
-                            originalColumn = currentColumn;
-                            int dots = 0;
-                            while(true) {
-                                currentColumn++;
-                                // If we reached the end of the line, then stop scanning and submit the token.
-                                if(currentColumn < line.length()) {
-                                    character = line.charAt(currentColumn);
-                                    // If the character isn't a digit or a dot, then stop our scan and submit the token, not including this character.
-                                    if(!((character >= '0' && character <= '9') || character == '.')) {
-                                        // If there's 0 dots, it's an int. If there's 1 dot, it's a float. If there's more than 1 dot, it's a syntax error.
-                                        String tokenString = line.substring(originalColumn, currentColumn);
-                                        if(dots == 0) {
-                                            tokens.add(new Token(TokenType.INT_VALUE,currentLine,originalColumn,Integer.parseInt(tokenString),0,""));
-                                        } else if(dots == 1) {
-                                            tokens.add(new Token(TokenType.FLOAT_VALUE,currentLine,originalColumn,0,Double.parseDouble(tokenString),""));
-                                        } else {
-                                            throw new LexicalAnalyzerException("Unrecogized number value with multiple decimal points, " + tokenString + ", at line " + currentLine + ", column " + originalColumn);
-                                        }
-                                        break;
-                                    } else {
-                                        if(character == '.') {
-                                            dots++;
-                                        }
-                                    }
-                                } else {
-                                    
-                                }
-                            }
-                            break;
+            }
+            
+            int column = start - lineStart;
+            switch(action) {
+                case ACCEPT_NONE:
+                    // An unclosed string skips the rest of its line, and anything else
+                    // skips the one character
+                    if(buffer.get(start) == '"') {
+                        error("String value missing a closing quote symbol at line " + currentLine + ", column " + column,column);
+                        position = start + 1;
+                        while(position < limit && !isNewline(buffer.get(position))) {
+                            position++;
                         }
-                        throw new LexicalAnalyzerException("Unrecogized token starting with " + character + " at line " + currentLine + ", column " + currentColumn);
+                        continue;
+                    }
+                    error("Unrecogized token starting with " + (char) (buffer.get(start) & 0xff) + " at line " + currentLine + ", column " + column,column);
+                    position = start + 1;
+                    continue;
+                case ACCEPT_SKIP:
+                    position = end;
+                    continue;
+                case ACCEPT_NEWLINE:
+                    position = end;
+                    currentLine++;
+                    lineStart = end;
+                    continue;
+                case ACCEPT_BLOCK_COMMENT:
+                    position = end;
+                    blockComment = true;
+                    continue;
+                case ACCEPT_WORD:
+                    position = end;
+                    TokenType keyword = keyword(start,end);
+                    if(keyword != null) {
+                        return scanned(keyword,column);
+                    }
+                    scanned(TokenType.IDENT,column);
+                    tokenInternId = internPool.intern(buffer,start,end);
+                    tokenStringValue = internPool.getString(tokenInternId);
+                    return TokenType.IDENT;
+                case ACCEPT_CONVERSION:
+                    // (int), (float) or (string). Anything else in parentheses is just a (
+                    keyword = keyword(start + 1,end - 1);
+                    if(keyword == TokenType.INT_DECLARATION) {
+                        position = end;
+                        return scanned(TokenType.UNARY_INT_CONVERSION,column);
+                    } else if(keyword == TokenType.FLOAT_DECLARATION) {
+                        position = end;
+                        return scanned(TokenType.UNARY_FLOAT_CONVERSION,column);
+                    } else if(keyword == TokenType.STRING_DECLARATION) {
+                        position = end;
+                        return scanned(TokenType.UNARY_STRING_CONVERSION,column);
+                    }
+                    position = start + 1;
+                    return scanned(TokenType.LEFT_PARENTHESES,column);
+                case ACCEPT_INT:
+                    position = end;
+                    scanned(TokenType.INT_VALUE,column);
+                    tokenIntValue = parseInt(start,end);
+                    return TokenType.INT_VALUE;
+                case ACCEPT_FLOAT:
+                    position = end;
+                    scanned(TokenType.FLOAT_VALUE,column);
+                    tokenFloatValue = Double.parseDouble(spanToString(start,end));
+                    return TokenType.FLOAT_VALUE;
+                case ACCEPT_BAD_NUMBER:
+                    error("Unrecogized number value with multiple decimal points, " + spanToString(start,end) + ", at line " + currentLine + ", column " + column,column);
+                    position = end;
+                    return scanned(TokenType.FLOAT_VALUE,column);
+                case ACCEPT_STRING:
+                    // Submit the value without the quotes
+                    position = end;
+                    scanned(TokenType.STRING_VALUE,column);
+                    tokenInternId = internPool.intern(buffer,start + 1,end - 1);
+                    tokenStringValue = internPool.getString(tokenInternId);
+                    return TokenType.STRING_VALUE;
+                default:
+                    position = end;
+                    return scanned(TOKEN_TYPES[action - 1],column);
+            }
+        }
+    }
+    
+    private Token readToken() throws IOException,LexicalAnalyzerException {
+        TokenType tokenType = scanToken();
+        return new Token(tokenType,tokenLine,tokenColumn,tokenIntValue,tokenFloatValue,tokenStringValue,tokenInternId);
+    }
+    
+    @Override
+    public InternPool getInternPool() {
+        return internPool;
+    }
+    
+    // Lexes a single token on demand. Reader failures are rethrown unchecked, since
+    // the parser pulling on this source has no way to recover from them anyway.
+    @Override
+    public Token nextToken() throws LexicalAnalyzerException {
+        try {
+            return readToken();
+        } catch(IOException err) {
+            throw new UncheckedIOException(err);
+        }
+    }
+    
+    List<Token> readAllTokens() throws IOException,LexicalAnalyzerException {
+        TokenList tokens = new TokenList();
+        while(true) {
+            Token token = readToken();
+            if(token.getTokenType() == TokenType.EOF) {
+                tokens.setEnd(token.getLine(),token.getColumn());
+                break;
+            }
+            tokens.add(token);
+        }
+        return tokens;
+    }
+    
+    // Lexes straight into the columns of a token buffer, without a Token object per token
+    private TokenBuffer readAllTokens(TokenBuffer tokens) throws IOException,LexicalAnalyzerException {
+        while(true) {
+            TokenType tokenType = scanToken();
+            if(tokenType == TokenType.EOF) {
+                tokens.setEnd(tokenLine,tokenColumn);
+                break;
+            }
+            tokens.add(tokenType,tokenLine,tokenColumn,tokenIntValue,tokenFloatValue,tokenStringValue,tokenInternId);
+        }
+        return tokens;
+    }
+    
+    interface BufferRead<T> {
+        T read() throws IOException,LexicalAnalyzerException;
+    }
+    
+    // Runs a read of a lexer over a buffer. Buffers are never backed by a reader, so
+    // an IOException can't happen and is rethrown unchecked if it somehow does.
+    static <T> T readUnchecked(BufferRead<T> read) throws LexicalAnalyzerException {
+        try {
+            return read.read();
+        } catch(IOException err) {
+            throw new UncheckedIOException(err);
+        }
+    }
+    
+    public static List<Token> parseBufferedReader(BufferedReader reader) throws IOException,LexicalAnalyzerException {
+        return new LexicalAnalyzer(reader).readAllTokens();
+    }
+    
+    public static List<Token> parseBufferedReader(BufferedReader reader, InternPool internPool) throws IOException,LexicalAnalyzerException {
+        return new LexicalAnalyzer(reader,internPool).readAllTokens();
+    }
+    
+    public static List<Token> parseByteBuffer(ByteBuffer buffer) throws LexicalAnalyzerException {
+        return parseByteBuffer(buffer,new InternPool());
+    }
+    
+    public static List<Token> parseByteBuffer(ByteBuffer buffer, InternPool internPool) throws LexicalAnalyzerException {
+        return readUnchecked(() -> new LexicalAnalyzer(buffer,internPool).readAllTokens());
+    }
+    
+    // Maps the whole file into memory so it can be lexed without copying it line by line
+    public static ByteBuffer mapFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());
+        }
+    }
+    
+    public static List<Token> parsePath(Path path) throws IOException,LexicalAnalyzerException {
+        return parseByteBuffer(mapFile(path));
+    }
+    
+    public static List<Token> parsePath(Path path, InternPool internPool) throws IOException,LexicalAnalyzerException {
+        return parseByteBuffer(mapFile(path),internPool);
+    }
+    
+    public static TokenBuffer parseByteBufferToTokenBuffer(ByteBuffer buffer) throws LexicalAnalyzerException {
+        // A rough guess of one token per four bytes saves most of the regrowing
+        LexicalAnalyzer lexer = new LexicalAnalyzer(buffer);
+        return readUnchecked(() -> lexer.readAllTokens(new TokenBuffer(Math.max(16,buffer.remaining() / 4),lexer.getInternPool())));
+    }
+    
+    // Lexes onto the end of a buffer that's already there, such as one being reused
+    // between compilations, interning into the buffer's pool
+    public static TokenBuffer parseByteBufferToTokenBuffer(ByteBuffer buffer, TokenBuffer tokens) throws LexicalAnalyzerException {
+        return readUnchecked(() -> new LexicalAnalyzer(buffer,tokens.getInternPool()).readAllTokens(tokens));
+    }
+    
+    public static TokenBuffer parsePathToTokenBuffer(Path path) throws IOException,LexicalAnalyzerException {
+        return parseByteBufferToTokenBuffer(mapFile(path));
+    }
+    
+    // Parallel lexing splits the buffer into chunks that each start at the beginning
+    // of a line. No token ever spans a line, so the only state one chunk can hand to
+    // the next is whether it ended inside a block comment. Every chunk is lexed on
+    // the fork join pool assuming it doesn't start inside one, then the chunks are
+    // checked in order and any chunk that guessed wrong is lexed again. Block
+    // comments that cross a chunk boundary are rare, so this almost never happens.
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    
+    private static class Chunk {
+        private final int start;
+        private final int end;
+        
+        // What the chunk was lexed with. Line numbers are relative to firstLine
+        // until the chunk is stitched into place.
+        private boolean startsInBlockComment;
+        private int firstLine;
+        
+        private TokenBuffer tokens;
+        private int lineCount;
+        private boolean endsInBlockComment;
+        private LexicalAnalyzerException error;
+        
+        private Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+    
+    private static void lexChunk(ByteBuffer buffer, Chunk chunk, boolean blockComment, int firstLine) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(chunk.end);
+        slice.position(chunk.start);
+        LexicalAnalyzer lexer = new LexicalAnalyzer(slice,new InternPool(),firstLine,blockComment);
+        
+        chunk.startsInBlockComment = blockComment;
+        chunk.firstLine = firstLine;
+        chunk.error = null;
+        try {
+            chunk.tokens = readUnchecked(() -> lexer.readAllTokens(new TokenBuffer(Math.max(16,(chunk.end - chunk.start) / 4),lexer.getInternPool())));
+            chunk.lineCount = lexer.getCurrentLine() - firstLine;
+            chunk.endsInBlockComment = lexer.isInBlockComment();
+        } catch(LexicalAnalyzerException err) {
+            chunk.error = err;
+        }
+    }
+    
+    // Splits the buffer just after a newline roughly every chunkSize bytes
+    private static List<Chunk> splitIntoChunks(ByteBuffer buffer, int chunkSize) {
+        List<Chunk> chunks = new ArrayList<>();
+        int start = buffer.position();
+        while(start < buffer.limit()) {
+            int end = (int) Math.min((long) start + chunkSize,buffer.limit());
+            while(end < buffer.limit() && buffer.get(end - 1) != '\n') {
+                end++;
+            }
+            chunks.add(new Chunk(start,end));
+            start = end;
+        }
+        return chunks;
+    }
+    
+    public static TokenBuffer parseByteBufferToTokenBufferInParallel(ByteBuffer buffer) throws LexicalAnalyzerException {
+        // With only one processor, stitching the chunks back together is pure overhead
+        if(Runtime.getRuntime().availableProcessors() == 1) {
+            return parseByteBufferToTokenBuffer(buffer);
+        }
+        return parseByteBufferToTokenBufferInParallel(buffer,DEFAULT_CHUNK_SIZE);
+    }
+    
+    public static TokenBuffer parseByteBufferToTokenBufferInParallel(ByteBuffer buffer, int chunkSize) throws LexicalAnalyzerException {
+        List<Chunk> chunks = splitIntoChunks(buffer,chunkSize);
+        if(chunks.size() <= 1) {
+            return parseByteBufferToTokenBuffer(buffer);
+        }
+        
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks.size());
+        for(Chunk chunk : chunks) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> lexChunk(buffer,chunk,false,1)));
+        }
+        for(ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        
+        // Check each chunk against the state the one before it actually ended in. A
+        // chunk that guessed wrong, or that failed, is lexed again in place with its
+        // real starting state and line, so any error it throws reads the same as it
+        // would from the sequential lexer.
+        boolean blockComment = false;
+        int line = 1;
+        int tokenCount = 0;
+        for(Chunk chunk : chunks) {
+            if(chunk.startsInBlockComment != blockComment || chunk.error != null) {
+                lexChunk(buffer,chunk,blockComment,line);
+                if(chunk.error != null) {
+                    throw chunk.error;
                 }
             }
+            blockComment = chunk.endsInBlockComment;
+            line = line + chunk.lineCount;
+            tokenCount = tokenCount + chunk.tokens.size();
         }
+        
+        // Stitch the chunks together in order. Interning each chunk's names in the
+        // order its own pool first saw them hands out exactly the ids that lexing
+        // the whole buffer in one go would have.
+        InternPool internPool = new InternPool();
+        TokenBuffer tokens = new TokenBuffer(Math.max(16,tokenCount),internPool);
+        line = 1;
+        for(Chunk chunk : chunks) {
+            InternPool chunkPool = chunk.tokens.getInternPool();
+            int[] internIds = new int[chunkPool.size()];
+            for(int i = 0; i < internIds.length; i++) {
+                internIds[i] = internPool.intern(chunkPool.getString(i));
+            }
             
+            int lineOffset = line - chunk.firstLine;
+            TokenBuffer chunkTokens = chunk.tokens;
+            for(int i = 0; i < chunkTokens.size(); i++) {
+                int internId = chunkTokens.getInternId(i);
+                tokens.add(chunkTokens.getTokenType(i),chunkTokens.getLine(i) + lineOffset,chunkTokens.getColumn(i),
+                        chunkTokens.getIntValue(i),chunkTokens.getFloatValue(i),chunkTokens.getStringValue(i),
+                        internId >= 0 ? internIds[internId] : -1);
+            }
+            tokens.setEnd(chunkTokens.getEndLine() + lineOffset,chunkTokens.getEndColumn());
+            line = line + chunk.lineCount;
+        }
         return tokens;
     }
     
-}
\ No newline at end of file
+    public static TokenBuffer parsePathToTokenBufferInParallel(Path path) throws IOException,LexicalAnalyzerException {
+        return parseByteBufferToTokenBufferInParallel(mapFile(path));
+    }
+    
+}
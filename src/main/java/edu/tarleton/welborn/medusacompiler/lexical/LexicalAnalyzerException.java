@@ -45,4 +45,17 @@ public class LexicalAnalyzerException extends Exception {
     public LexicalAnalyzerException(String msg) {
         super(msg);
     }
+
+    /**
+     * Constructs an instance of <code>LexicalAnalyzerException</code> with the
+     * specified detail message, filling in the stack trace only if asked to.
+     * The lexer throws these without one: the message already gives the line
+     * and column, and capturing the stack is most of the cost of throwing.
+     *
+     * @param msg the detail message.
+     * @param writableStackTrace whether the stack trace should be filled in.
+     */
+    public LexicalAnalyzerException(String msg, boolean writableStackTrace) {
+        super(msg,null,false,writableStackTrace);
+    }
 }
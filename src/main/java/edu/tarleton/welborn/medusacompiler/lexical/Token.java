@@ -24,6 +24,8 @@
 
 package edu.tarleton.welborn.medusacompiler.lexical;
 
+import java.util.Objects;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -38,6 +40,10 @@ public class Token {
     private final double floatValue;
     private final String stringValue;
     
+    // The id of stringValue in the InternPool that lexed this token, or -1 if the
+    // token wasn't interned (or isn't an ident or string value)
+    private final int internId;
+    
     public TokenType getTokenType() {
         return tokenType;
     }
@@ -57,15 +63,21 @@ public class Token {
         this.intValue = 0;
         this.floatValue = 0.0;
         this.stringValue = "";
+        this.internId = -1;
     }
     
     public Token(TokenType tokenType, int line, int column, int intValue, double floatValue, String stringValue) {
+        this(tokenType,line,column,intValue,floatValue,stringValue,-1);
+    }
+    
+    public Token(TokenType tokenType, int line, int column, int intValue, double floatValue, String stringValue, int internId) {
         this.tokenType = tokenType;
         this.line = line;
         this.column = column;
         this.intValue = intValue;
         this.floatValue = floatValue;
         this.stringValue = stringValue;
+        this.internId = internId;
     }
 
     @Override
@@ -73,6 +85,29 @@ public class Token {
         return tokenType.toString();
     }
 
+    // Intern ids depend on which pool lexed the token, so they aren't part of equality
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof Token)) {
+            return false;
+        }
+        Token other = (Token) obj;
+        return tokenType == other.tokenType
+                && line == other.line
+                && column == other.column
+                && intValue == other.intValue
+                && Double.compare(floatValue,other.floatValue) == 0
+                && Objects.equals(stringValue,other.stringValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tokenType,line,column,intValue,floatValue,stringValue);
+    }
+
     public int getIntValue() {
         return intValue;
     }
@@ -84,5 +119,9 @@ public class Token {
     public String getStringValue() {
         return stringValue;
     }
+
+    public int getInternId() {
+        return internId;
+    }
     
 }
@@ -0,0 +1,231 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.lexical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact, struct-of-arrays alternative to a List of Tokens. Each token costs a
+ * byte for its type, a long for its packed line and column, and an int for its
+ * literal: int values are stored inline, float values are indexes into a side
+ * table, and idents and string values are their ids in the buffer's InternPool.
+ * Tokens that aren't literals don't pay for values they never use.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class TokenBuffer {
+    
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    
+    private byte[] tokenTypes;
+    private long[] positions;
+    private int[] literals;
+    private int size = 0;
+    
+    // Where the input ended. Lines start at 1, so 0 means the end was never set.
+    private int endLine = 0;
+    private int endColumn = 0;
+    
+    private double[] floatValues = new double[16];
+    private int floatValueCount = 0;
+    private final InternPool internPool;
+
+    public TokenBuffer() {
+        this(1024);
+    }
+    
+    public TokenBuffer(int capacity) {
+        this(capacity,new InternPool());
+    }
+    
+    public TokenBuffer(int capacity, InternPool internPool) {
+        this.internPool = internPool;
+        tokenTypes = new byte[capacity];
+        positions = new long[capacity];
+        literals = new int[capacity];
+    }
+    
+    public void add(TokenType tokenType, int line, int column, int intValue, double floatValue, String stringValue) {
+        add(tokenType,line,column,intValue,floatValue,stringValue,-1);
+    }
+    
+    // internId must come from this buffer's pool. Pass -1 to have the string interned here.
+    public void add(TokenType tokenType, int line, int column, int intValue, double floatValue, String stringValue, int internId) {
+        if(size == tokenTypes.length) {
+            int capacity = Math.max(16,size * 2);
+            tokenTypes = Arrays.copyOf(tokenTypes,capacity);
+            positions = Arrays.copyOf(positions,capacity);
+            literals = Arrays.copyOf(literals,capacity);
+        }
+        
+        int literal = 0;
+        switch(tokenType) {
+            case INT_VALUE:
+                literal = intValue;
+                break;
+            case FLOAT_VALUE:
+                if(floatValueCount == floatValues.length) {
+                    floatValues = Arrays.copyOf(floatValues,floatValueCount * 2);
+                }
+                literal = floatValueCount;
+                floatValues[floatValueCount++] = floatValue;
+                break;
+            case IDENT:
+            case STRING_VALUE:
+                literal = internId >= 0 ? internId : internPool.intern(stringValue);
+                break;
+        }
+        
+        tokenTypes[size] = (byte) tokenType.ordinal();
+        positions[size] = ((long) line << 32) | (column & 0xffffffffL);
+        literals[size] = literal;
+        size++;
+    }
+    
+    // The token's own intern id isn't trusted, since it may come from another pool
+    public void add(Token token) {
+        add(token.getTokenType(),token.getLine(),token.getColumn(),token.getIntValue(),token.getFloatValue(),token.getStringValue(),-1);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    // Empties the buffer, keeping its columns for the next tokens. The intern pool
+    // is shared with the rest of the compilation, so it's left for the caller.
+    public void clear() {
+        size = 0;
+        floatValueCount = 0;
+        endLine = 0;
+        endColumn = 0;
+    }
+    
+    public void setEnd(int line, int column) {
+        endLine = line;
+        endColumn = column;
+    }
+    
+    public int getEndLine() {
+        return endLine;
+    }
+    
+    public int getEndColumn() {
+        return endColumn;
+    }
+    
+    public TokenType getTokenType(int index) {
+        return TOKEN_TYPES[tokenTypes[index]];
+    }
+    
+    public int getLine(int index) {
+        return (int) (positions[index] >>> 32);
+    }
+    
+    public int getColumn(int index) {
+        return (int) positions[index];
+    }
+    
+    public int getIntValue(int index) {
+        return getTokenType(index) == TokenType.INT_VALUE ? literals[index] : 0;
+    }
+    
+    public double getFloatValue(int index) {
+        return getTokenType(index) == TokenType.FLOAT_VALUE ? floatValues[literals[index]] : 0;
+    }
+    
+    public String getStringValue(int index) {
+        switch(getTokenType(index)) {
+            case IDENT:
+            case STRING_VALUE:
+                return internPool.getString(literals[index]);
+            default:
+                return "";
+        }
+    }
+    
+    public int getInternId(int index) {
+        switch(getTokenType(index)) {
+            case IDENT:
+            case STRING_VALUE:
+                return literals[index];
+            default:
+                return -1;
+        }
+    }
+    
+    public InternPool getInternPool() {
+        return internPool;
+    }
+    
+    // Materializes a single token, for code that still wants Token objects
+    public Token getToken(int index) {
+        return new Token(getTokenType(index),getLine(index),getColumn(index),getIntValue(index),getFloatValue(index),getStringValue(index),getInternId(index));
+    }
+    
+    public List<Token> toList() {
+        TokenList tokens = new TokenList(size);
+        for(int i = 0; i < size; i++) {
+            tokens.add(getToken(i));
+        }
+        tokens.setEnd(endLine,endColumn);
+        return tokens;
+    }
+    
+    // Walks the buffer from the start. Only the token being handed out is ever
+    // materialized, so the parser can read the buffer without a full token list.
+    public TokenSource tokenSource() {
+        return new TokenSource() {
+            private int index = 0;
+            
+            @Override
+            public Token nextToken() {
+                if(index >= size) {
+                    if(endLine > 0) {
+                        return new Token(TokenType.EOF,endLine,endColumn);
+                    }
+                    if(size == 0) {
+                        return new Token(TokenType.EOF,1,0);
+                    }
+                    return new Token(TokenType.EOF,getLine(size - 1),getColumn(size - 1));
+                }
+                return getToken(index++);
+            }
+            
+            @Override
+            public InternPool getInternPool() {
+                return internPool;
+            }
+        };
+    }
+    
+    // The bytes held by the columns and the float table, not counting the intern
+    // pool, which is shared with the rest of the compilation
+    public long getFootprintInBytes() {
+        return tokenTypes.length + 8L * positions.length + 4L * literals.length + 8L * floatValues.length;
+    }
+    
+}
@@ -0,0 +1,67 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.lexical;
+
+import java.util.List;
+
+/**
+ * The result of an incremental re-lex: the spliced token list, and the range of it
+ * that changed. The tokens from start to oldEnd in the old list were replaced by
+ * the tokens from start to newEnd in the new one. Tokens after the range are the
+ * same tokens as before, just moved to new lines if the edit added or removed any.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class TokenEdit {
+    
+    private final List<Token> tokens;
+    private final int start;
+    private final int oldEnd;
+    private final int newEnd;
+    
+    public TokenEdit(List<Token> tokens, int start, int oldEnd, int newEnd) {
+        this.tokens = tokens;
+        this.start = start;
+        this.oldEnd = oldEnd;
+        this.newEnd = newEnd;
+    }
+
+    public List<Token> getTokens() {
+        return tokens;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getOldEnd() {
+        return oldEnd;
+    }
+
+    public int getNewEnd() {
+        return newEnd;
+    }
+    
+}
@@ -0,0 +1,62 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.lexical;
+
+import java.util.ArrayList;
+
+/**
+ * A list of tokens that remembers where its input ended, so the EOF handed out
+ * after the last token sits where the lexer actually found it.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class TokenList extends ArrayList<Token> {
+    
+    // Lines start at 1, so 0 means the end was never set
+    private int endLine = 0;
+    private int endColumn = 0;
+    
+    public TokenList() {
+        super();
+    }
+    
+    public TokenList(int capacity) {
+        super(capacity);
+    }
+    
+    public void setEnd(int line, int column) {
+        endLine = line;
+        endColumn = column;
+    }
+    
+    public int getEndLine() {
+        return endLine;
+    }
+    
+    public int getEndColumn() {
+        return endColumn;
+    }
+    
+}
@@ -0,0 +1,45 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.lexical;
+
+/**
+ * A pull-based stream of tokens. The SyntaxAnalyzer asks for one token at a time,
+ * so a source like the LexicalAnalyzer can lex on demand instead of building the
+ * entire token list up front. Once a source runs out of tokens, every further call
+ * to nextToken returns an EOF token.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public interface TokenSource {
+    
+    public Token nextToken() throws LexicalAnalyzerException;
+    
+    // The pool that the intern ids of this source's tokens refer to, or null if
+    // its tokens aren't interned
+    public default InternPool getInternPool() {
+        return null;
+    }
+    
+}
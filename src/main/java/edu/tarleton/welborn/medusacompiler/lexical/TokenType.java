@@ -60,6 +60,7 @@ public enum TokenType {
     FOR, // for
     IF, // if
     ELSE, // else
+    EOF, // *end of the token stream, never stored in a token list*
     ;
     
     @Override
@@ -129,6 +130,8 @@ public enum TokenType {
                 return "if";
             case ELSE:
                 return "else";
+            case EOF:
+                return "EOF";
         }
         return "unknown token";
     }
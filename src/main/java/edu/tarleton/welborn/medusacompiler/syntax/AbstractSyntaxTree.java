@@ -23,6 +23,8 @@
  */
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -31,14 +33,20 @@ public abstract class AbstractSyntaxTree {
     
     //public abstract ExpressionValue visitNode() throws SemanticAnalyzerException;
     
-    public abstract void printTree(int level);
+    public abstract void printTree(PrintWriter out, int level);
+    
+    public void printTree(int level) {
+        PrintWriter out = new PrintWriter(System.out);
+        printTree(out,level);
+        out.flush();
+    }
     
-    public void printClassIndented(String className,int level) {
-        System.out.println(" ".repeat(level*2)+className+" - "+level);
+    public void printClassIndented(PrintWriter out,String className,int level) {
+        out.println(" ".repeat(level*2)+className+" - "+level);
     }
     
-    public void printVariableIndented(String variable,String value,int level) {
-        System.out.println(" ".repeat((level+1)*2)+variable+": "+value);
+    public void printVariableIndented(PrintWriter out,String variable,String value,int level) {
+        out.println(" ".repeat((level+1)*2)+variable+": "+value);
     }
     
 }
@@ -25,6 +25,7 @@
 package edu.tarleton.welborn.medusacompiler.syntax;
 
 import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.io.PrintWriter;
 
 /**
  *
@@ -68,12 +69,12 @@ public class AddTree extends AbstractSyntaxTree {
     }*/
 
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("AddTree",level);
-        super.printVariableIndented("operator",operator.toString(),level);
-        termTree.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"AddTree",level);
+        super.printVariableIndented(out,"operator",operator.toString(),level);
+        termTree.printTree(out,level+1);
         if(addTree != null) {
-            addTree.printTree(level+1);
+            addTree.printTree(out,level+1);
         }
     }
 
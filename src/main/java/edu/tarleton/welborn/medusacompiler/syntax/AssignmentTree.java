@@ -24,6 +24,8 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -31,10 +33,14 @@ package edu.tarleton.welborn.medusacompiler.syntax;
 public class AssignmentTree extends StatementTree {
 
     private String ident;
+    private int identId;
     private ExpressionTree expression;
+    // The slot of the variable assigned to, filled in by the SemanticAnalyzer
+    private int slot = -1;
 
-    public AssignmentTree(String ident, ExpressionTree expression) {
+    public AssignmentTree(String ident, int identId, ExpressionTree expression) {
         this.ident = ident;
+        this.identId = identId;
         this.expression = expression;
     }
 
@@ -42,15 +48,32 @@ public class AssignmentTree extends StatementTree {
         return ident;
     }
 
+    public int getIdentId() {
+        return identId;
+    }
+
     public ExpressionTree getExpression() {
         return expression;
     }
 
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    @Override
+    public <R, E extends Exception> R accept(StatementVisitor<R,E> visitor) throws E {
+        return visitor.visitAssignment(this);
+    }
+
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("AssignmentTree",level);
-        super.printVariableIndented("ident",ident,level);
-        expression.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"AssignmentTree",level);
+        super.printVariableIndented(out,"ident",ident,level);
+        expression.printTree(out,level+1);
     }
     
     
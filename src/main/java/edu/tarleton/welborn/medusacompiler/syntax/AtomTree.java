@@ -25,6 +25,7 @@
 package edu.tarleton.welborn.medusacompiler.syntax;
 
 import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.io.PrintWriter;
 
 /**
  *
@@ -34,6 +35,8 @@ public class AtomTree extends AbstractSyntaxTree {
 
     private TokenType unaryOperator;
     private AtomValue atomValue;
+    // The data type of this atom, after any conversion, filled in by the SemanticAnalyzer
+    private TokenType dataType;
 
     public AtomTree(TokenType unaryOperator, AtomValue atomValue) {
         this.unaryOperator = unaryOperator;
@@ -52,14 +55,22 @@ public class AtomTree extends AbstractSyntaxTree {
         return atomValue;
     }
 
+    public TokenType getDataType() {
+        return dataType;
+    }
+
+    public void setDataType(TokenType dataType) {
+        this.dataType = dataType;
+    }
+
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("AtomTree",level);
-        super.printVariableIndented("unaryOperator",unaryOperator != null ? unaryOperator.toString() : "null",level);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"AtomTree",level);
+        super.printVariableIndented(out,"unaryOperator",unaryOperator != null ? unaryOperator.toString() : "null",level);
         if(atomValue.getType() == TokenType.LEFT_PARENTHESES) {
-            atomValue.getExpression().printTree(level+1);
+            atomValue.getExpression().printTree(out,level+1);
         } else {
-            super.printVariableIndented("atomValue",atomValue.toString(),level);
+            super.printVariableIndented(out,"atomValue",atomValue.toString(),level);
         }
     }
 
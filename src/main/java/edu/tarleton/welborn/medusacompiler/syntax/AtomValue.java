@@ -36,9 +36,14 @@ public class AtomValue {
     private int intValue;
     private double floatValue;
     private String stringValue;
+    private int internId = -1;
     private boolean ident;
     private ExpressionTree expression;
     private TokenType type;
+    // The data type of this value, before any conversion, filled in by the SemanticAnalyzer
+    private TokenType dataType;
+    // The slot of the variable, for idents, filled in by the SemanticAnalyzer
+    private int slot = -1;
 
     public AtomValue(TokenType type, int intValue) {
         this.type = type;
@@ -50,14 +55,16 @@ public class AtomValue {
         this.floatValue = floatValue;
     }
 
-    public AtomValue(TokenType type, String stringValue) {
+    public AtomValue(TokenType type, String stringValue, int internId) {
         this.type = type;
         this.stringValue = stringValue;
+        this.internId = internId;
     }
     
-    public AtomValue(TokenType type, String stringValue, boolean ident) {
+    public AtomValue(TokenType type, String stringValue, int internId, boolean ident) {
         this.type = type;
         this.stringValue = stringValue;
+        this.internId = internId;
         this.ident = ident;
     }
 
@@ -78,6 +85,11 @@ public class AtomValue {
         return stringValue;
     }
 
+    // The id of stringValue in the program's InternPool, for idents and string values
+    public int getInternId() {
+        return internId;
+    }
+
     public boolean isIdent() {
         return ident;
     }
@@ -94,6 +106,22 @@ public class AtomValue {
         this.type = type;
     }
     
+    public TokenType getDataType() {
+        return dataType;
+    }
+
+    public void setDataType(TokenType dataType) {
+        this.dataType = dataType;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     @Override
     public String toString() {
         switch(type) {
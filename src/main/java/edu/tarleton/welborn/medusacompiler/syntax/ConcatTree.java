@@ -24,6 +24,8 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -47,11 +49,11 @@ public class ConcatTree extends AbstractSyntaxTree {
     }
 
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("ConcatTree",level);
-        atom.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"ConcatTree",level);
+        atom.printTree(out,level+1);
         if(concat != null) {
-            concat.printTree(level+1);
+            concat.printTree(out,level+1);
         }
     }
 
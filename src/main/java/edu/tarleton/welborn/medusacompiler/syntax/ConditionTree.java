@@ -25,6 +25,7 @@
 package edu.tarleton.welborn.medusacompiler.syntax;
 
 import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.io.PrintWriter;
 
 /**
  *
@@ -55,11 +56,11 @@ public class ConditionTree extends AbstractSyntaxTree {
     }
 
     @Override
-    public void printTree(int level) {
-        System.out.println(" ".repeat(level*2)+"ConditionTree - "+level);
-        expression1.printTree(level+1);
-        System.out.println(" ".repeat(level*2)+"conditionalOperator: "+conditionalOperator);
-        expression2.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        out.println(" ".repeat(level*2)+"ConditionTree - "+level);
+        expression1.printTree(out,level+1);
+        out.println(" ".repeat(level*2)+"conditionalOperator: "+conditionalOperator);
+        expression2.printTree(out,level+1);
     }
     
 }
@@ -25,6 +25,7 @@
 package edu.tarleton.welborn.medusacompiler.syntax;
 
 import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.io.PrintWriter;
 
 /**
  *
@@ -34,16 +35,21 @@ public class DeclarationTree extends StatementTree {
 
     private TokenType dataType;
     private String ident;
+    private int identId;
     private ExpressionTree optionalExpression;
+    // The slot of the declared variable, filled in by the SemanticAnalyzer
+    private int slot = -1;
 
-    public DeclarationTree(TokenType dataType, String ident) {
+    public DeclarationTree(TokenType dataType, String ident, int identId) {
         this.dataType = dataType;
         this.ident = ident;
+        this.identId = identId;
     }
 
-    public DeclarationTree(TokenType dataType, String ident, ExpressionTree optionalAssignment) {
+    public DeclarationTree(TokenType dataType, String ident, int identId, ExpressionTree optionalAssignment) {
         this.dataType = dataType;
         this.ident = ident;
+        this.identId = identId;
         this.optionalExpression = optionalAssignment;
     }
 
@@ -55,17 +61,34 @@ public class DeclarationTree extends StatementTree {
         return ident;
     }
 
+    public int getIdentId() {
+        return identId;
+    }
+
     public ExpressionTree getOptionalExpression() {
         return optionalExpression;
     }
 
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    @Override
+    public <R, E extends Exception> R accept(StatementVisitor<R,E> visitor) throws E {
+        return visitor.visitDeclaration(this);
+    }
+
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("DeclarationTree",level);
-        super.printVariableIndented("dataType",dataType.toString(),level);
-        super.printVariableIndented("ident",ident,level);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"DeclarationTree",level);
+        super.printVariableIndented(out,"dataType",dataType.toString(),level);
+        super.printVariableIndented(out,"ident",ident,level);
         if(optionalExpression != null) {
-            optionalExpression.printTree(level+1);
+            optionalExpression.printTree(out,level+1);
         }
     }
     
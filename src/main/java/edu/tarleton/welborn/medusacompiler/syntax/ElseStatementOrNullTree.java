@@ -24,6 +24,8 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -41,10 +43,10 @@ public class ElseStatementOrNullTree extends AbstractSyntaxTree {
     }
     
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("ElseStatementOrNullTree", level);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"ElseStatementOrNullTree", level);
         if(statementBlock != null) {
-            statementBlock.printTree(level+1);
+            statementBlock.printTree(out,level+1);
         }
     }
     
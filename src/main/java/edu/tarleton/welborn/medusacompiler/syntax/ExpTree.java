@@ -24,6 +24,9 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -32,6 +35,8 @@ public class ExpTree extends AbstractSyntaxTree {
 
     private AtomTree atom;
     private ConcatTree concat;
+    // The data type of this exp, filled in by the SemanticAnalyzer
+    private TokenType dataType;
 
     public ExpTree(AtomTree atom, ConcatTree concat) {
         this.atom = atom;
@@ -46,12 +51,20 @@ public class ExpTree extends AbstractSyntaxTree {
         return concat;
     }
 
+    public TokenType getDataType() {
+        return dataType;
+    }
+
+    public void setDataType(TokenType dataType) {
+        this.dataType = dataType;
+    }
+
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("ExpTree",level);
-        atom.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"ExpTree",level);
+        atom.printTree(out,level+1);
         if(concat != null) {
-            concat.printTree(level+1);
+            concat.printTree(out,level+1);
         }
     }
 
@@ -24,6 +24,9 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -32,6 +35,8 @@ public class ExpressionTree extends AbstractSyntaxTree {
 
     private TermTree term;
     private AddTree add;
+    // The data type of this expression, filled in by the SemanticAnalyzer
+    private TokenType dataType;
 
     public ExpressionTree(TermTree term, AddTree add) {
         this.term = term;
@@ -46,12 +51,20 @@ public class ExpressionTree extends AbstractSyntaxTree {
         return add;
     }
     
+    public TokenType getDataType() {
+        return dataType;
+    }
+
+    public void setDataType(TokenType dataType) {
+        this.dataType = dataType;
+    }
+
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("ExpressionTree",level);
-        term.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"ExpressionTree",level);
+        term.printTree(out,level+1);
         if(add != null) {
-            add.printTree(level+1);
+            add.printTree(out,level+1);
         }
     }
     
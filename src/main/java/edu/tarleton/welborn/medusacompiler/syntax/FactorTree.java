@@ -24,6 +24,9 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -32,6 +35,8 @@ public class FactorTree extends AbstractSyntaxTree {
 
     private ExpTree exp;
     private PowerTree power;
+    // The data type of this factor, filled in by the SemanticAnalyzer
+    private TokenType dataType;
 
     public FactorTree(ExpTree exp, PowerTree power) {
         this.exp = exp;
@@ -46,12 +51,20 @@ public class FactorTree extends AbstractSyntaxTree {
         return power;
     }
 
+    public TokenType getDataType() {
+        return dataType;
+    }
+
+    public void setDataType(TokenType dataType) {
+        this.dataType = dataType;
+    }
+
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("FactorTree",level);
-        exp.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"FactorTree",level);
+        exp.printTree(out,level+1);
         if(power != null) {
-            power.printTree(level+1);
+            power.printTree(out,level+1);
         }
     }
     
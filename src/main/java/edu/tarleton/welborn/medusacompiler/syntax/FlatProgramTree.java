@@ -0,0 +1,284 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.syntax;
+
+import edu.tarleton.welborn.medusacompiler.lexical.InternPool;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.util.Arrays;
+
+/**
+ * An arena alternative to the ProgramTree. Every node is an index into a handful
+ * of primitive arrays: its kind, its payload, its first child and its next sibling,
+ * plus a data type where it has one and the slot of the variable it names. Expressions skip the wrapper nodes of the
+ * grammar, so a literal is a single node and an operator is a single node over its
+ * two operands. The whole tree is a few arrays instead of an object per node.
+ *
+ * Nodes are added children first, so the root is the last node in the arena.
+ * Missing children, types and slots are -1, null and -1.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class FlatProgramTree {
+    
+    private static final SyntaxNodeKind[] KINDS = SyntaxNodeKind.values();
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    
+    private byte[] kinds;
+    private int[] payloads;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private byte[] types;
+    private int[] slots;
+    private int size = 0;
+    private int root = -1;
+    
+    private double[] floatValues = new double[16];
+    private int floatValueCount = 0;
+    
+    private final InternPool internPool;
+    
+    // The data type of every variable, indexed by the intern id of its name
+    private TokenType[] symbolTypes;
+    // The name and data type of every variable, indexed by its slot
+    private String[] slotNames;
+    private TokenType[] slotTypes;
+    
+    public FlatProgramTree(InternPool internPool) {
+        this(internPool,256);
+    }
+    
+    public FlatProgramTree(InternPool internPool, int capacity) {
+        this.internPool = internPool;
+        kinds = new byte[capacity];
+        payloads = new int[capacity];
+        firstChildren = new int[capacity];
+        nextSiblings = new int[capacity];
+        types = new byte[capacity];
+        slots = new int[capacity];
+    }
+    
+    public int addNode(SyntaxNodeKind kind, int payload, int firstChild) {
+        if(size == kinds.length) {
+            int capacity = Math.max(16,size * 2);
+            kinds = Arrays.copyOf(kinds,capacity);
+            payloads = Arrays.copyOf(payloads,capacity);
+            firstChildren = Arrays.copyOf(firstChildren,capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings,capacity);
+            types = Arrays.copyOf(types,capacity);
+            slots = Arrays.copyOf(slots,capacity);
+        }
+        kinds[size] = (byte) kind.ordinal();
+        payloads[size] = payload;
+        firstChildren[size] = firstChild;
+        nextSiblings[size] = -1;
+        types[size] = -1;
+        slots[size] = -1;
+        return size++;
+    }
+    
+    public int addNode(SyntaxNodeKind kind, TokenType operator, int firstChild) {
+        return addNode(kind,operator.ordinal(),firstChild);
+    }
+    
+    public int addFloatValue(double floatValue) {
+        if(floatValueCount == floatValues.length) {
+            floatValues = Arrays.copyOf(floatValues,floatValueCount * 2);
+        }
+        floatValues[floatValueCount] = floatValue;
+        return addNode(SyntaxNodeKind.FLOAT_VALUE,floatValueCount++,-1);
+    }
+    
+    // Empties the arena, keeping its arrays for the next nodes
+    public void clear() {
+        size = 0;
+        floatValueCount = 0;
+        root = -1;
+    }
+    
+    public void setNextSibling(int node, int nextSibling) {
+        nextSiblings[node] = nextSibling;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int getRoot() {
+        return root;
+    }
+
+    public void setRoot(int root) {
+        this.root = root;
+    }
+    
+    public SyntaxNodeKind getKind(int node) {
+        return KINDS[kinds[node]];
+    }
+    
+    public int getPayload(int node) {
+        return payloads[node];
+    }
+    
+    public int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+    
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+    
+    // The second child of a node, for binary operators and conditions
+    public int getSecondChild(int node) {
+        return nextSiblings[firstChildren[node]];
+    }
+    
+    public TokenType getOperator(int node) {
+        return TOKEN_TYPES[payloads[node]];
+    }
+    
+    public int getIntValue(int node) {
+        return payloads[node];
+    }
+    
+    public double getFloatValue(int node) {
+        return floatValues[payloads[node]];
+    }
+    
+    // The name of an ident, declaration or assignment, or the text of a string value
+    public String getStringValue(int node) {
+        return internPool.getString(payloads[node]);
+    }
+    
+    public TokenType getType(int node) {
+        return types[node] < 0 ? null : TOKEN_TYPES[types[node]];
+    }
+    
+    public void setType(int node, TokenType type) {
+        types[node] = (byte) type.ordinal();
+    }
+    
+    // The slot of the variable an ident, declaration, assignment or for loop
+    // variable names
+    public int getSlot(int node) {
+        return slots[node];
+    }
+    
+    public void setSlot(int node, int slot) {
+        slots[node] = slot;
+    }
+    
+    // Binary operators of the same precedence chain together, just like the add,
+    // multiply, power and concat chains of the grammar
+    public static int getPrecedence(TokenType operator) {
+        switch(operator) {
+            case PLUS:
+            case MINUS:
+                return 0;
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULO:
+                return 1;
+            case POWER:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+    
+    private boolean isInChain(int node, int precedence) {
+        return getKind(node) == SyntaxNodeKind.BINARY && getPrecedence(getOperator(node)) == precedence;
+    }
+    
+    // The binary nodes of the operator chain rooted at a binary node, in source
+    // order. Power chains lean right and the others lean left, and parentheses
+    // start a new chain since they're a node of their own. Chains are found with
+    // loops, so a long chain doesn't recurse.
+    public int[] getChain(int node) {
+        int precedence = getPrecedence(getOperator(node));
+        boolean rightLeaning = getOperator(node) == TokenType.POWER;
+        int count = 0;
+        for(int link = node; isInChain(link,precedence); link = rightLeaning ? getSecondChild(link) : getFirstChild(link)) {
+            count++;
+        }
+        int[] chain = new int[count];
+        int link = node;
+        for(int i = 0; i < count; i++) {
+            chain[rightLeaning ? i : count - 1 - i] = link;
+            link = rightLeaning ? getSecondChild(link) : getFirstChild(link);
+        }
+        return chain;
+    }
+    
+    // The operands of an operator chain, in source order
+    public int[] getChainOperands(int[] chain) {
+        int[] operands = new int[chain.length + 1];
+        if(getOperator(chain[0]) == TokenType.POWER) {
+            for(int i = 0; i < chain.length; i++) {
+                operands[i] = getFirstChild(chain[i]);
+            }
+            operands[chain.length] = getSecondChild(chain[chain.length - 1]);
+        } else {
+            operands[0] = getFirstChild(chain[0]);
+            for(int i = 0; i < chain.length; i++) {
+                operands[i + 1] = getSecondChild(chain[i]);
+            }
+        }
+        return operands;
+    }
+    
+    public InternPool getInternPool() {
+        return internPool;
+    }
+
+    public TokenType[] getSymbolTypes() {
+        return symbolTypes;
+    }
+
+    public void setSymbolTypes(TokenType[] symbolTypes) {
+        this.symbolTypes = symbolTypes;
+    }
+
+    public String[] getSlotNames() {
+        return slotNames;
+    }
+
+    public void setSlotNames(String[] slotNames) {
+        this.slotNames = slotNames;
+    }
+
+    public TokenType[] getSlotTypes() {
+        return slotTypes;
+    }
+
+    public void setSlotTypes(TokenType[] slotTypes) {
+        this.slotTypes = slotTypes;
+    }
+    
+    // The bytes held by the node arrays and the float table
+    public long getFootprintInBytes() {
+        return kinds.length * 18L + 8L * floatValues.length;
+    }
+    
+}
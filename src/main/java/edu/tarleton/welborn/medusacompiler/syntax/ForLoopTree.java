@@ -24,6 +24,8 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -59,13 +61,18 @@ public class ForLoopTree extends StatementTree {
     }
 
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("ForLoopTree",level);
-        forLoopVariable.printTree(level+1);
-        condition.printTree(level+1);
-        assignment.printTree(level+1);
+    public <R, E extends Exception> R accept(StatementVisitor<R,E> visitor) throws E {
+        return visitor.visitForLoop(this);
+    }
+
+    @Override
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"ForLoopTree",level);
+        forLoopVariable.printTree(out,level+1);
+        condition.printTree(out,level+1);
+        assignment.printTree(out,level+1);
         if(statementBlock != null) {
-            statementBlock.printTree(level+1);
+            statementBlock.printTree(out,level+1);
         }
     }
     
@@ -25,6 +25,7 @@
 package edu.tarleton.welborn.medusacompiler.syntax;
 
 import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.io.PrintWriter;
 
 /**
  *
@@ -34,18 +35,28 @@ public class ForLoopVariableTree extends AbstractSyntaxTree {
 
     private TokenType dataType;
     private String ident;
+    private int identId;
     private ExpressionTree expression;
     private OptionalAssignmentTree optionalAssignment;
+    // Whether the variable is declared here, since the SemanticAnalyzer fills in
+    // the data type of a variable that was declared earlier
+    private final boolean declaration;
+    // The slot of the for loop variable, filled in by the SemanticAnalyzer
+    private int slot = -1;
 
-    public ForLoopVariableTree(TokenType dataType, String ident, ExpressionTree expression) {
+    public ForLoopVariableTree(TokenType dataType, String ident, int identId, ExpressionTree expression) {
         this.dataType = dataType;
         this.ident = ident;
+        this.identId = identId;
         this.expression = expression;
+        this.declaration = true;
     }
 
-    public ForLoopVariableTree(String ident, OptionalAssignmentTree optionalAssignment) {
+    public ForLoopVariableTree(String ident, int identId, OptionalAssignmentTree optionalAssignment) {
         this.ident = ident;
+        this.identId = identId;
         this.optionalAssignment = optionalAssignment;
+        this.declaration = false;
     }
 
     public TokenType getDataType() {
@@ -60,6 +71,14 @@ public class ForLoopVariableTree extends AbstractSyntaxTree {
         return ident;
     }
 
+    public int getIdentId() {
+        return identId;
+    }
+
+    public boolean isDeclaration() {
+        return declaration;
+    }
+
     public ExpressionTree getExpression() {
         return expression;
     }
@@ -68,13 +87,21 @@ public class ForLoopVariableTree extends AbstractSyntaxTree {
         return optionalAssignment;
     }
 
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("ForLoopVariableTree",level);
-        super.printVariableIndented("dataType",dataType.toString(),level);
-        super.printVariableIndented("ident",ident,level);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"ForLoopVariableTree",level);
+        super.printVariableIndented(out,"dataType",dataType.toString(),level);
+        super.printVariableIndented(out,"ident",ident,level);
         if(optionalAssignment != null) {
-            optionalAssignment.printTree(level+1);
+            optionalAssignment.printTree(out,level+1);
         }
     }
 
@@ -24,6 +24,8 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -53,14 +55,19 @@ public class IfTree extends StatementTree {
     }
     
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("IfTree", level);
-        conditionTree.printTree(level+1);
+    public <R, E extends Exception> R accept(StatementVisitor<R,E> visitor) throws E {
+        return visitor.visitIf(this);
+    }
+    
+    @Override
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"IfTree", level);
+        conditionTree.printTree(out,level+1);
         if(statementsTree != null) {
-            statementsTree.printTree(level+1);
+            statementsTree.printTree(out,level+1);
         }
         if(elseStatement != null) {
-            elseStatement.printTree(level+1);
+            elseStatement.printTree(out,level+1);
         }
     }
     
@@ -25,6 +25,7 @@
 package edu.tarleton.welborn.medusacompiler.syntax;
 
 import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.io.PrintWriter;
 
 /**
  *
@@ -55,11 +56,11 @@ public class MultiplyTree extends AbstractSyntaxTree {
     }
 
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("MultiplyTree",level);
-        factor.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"MultiplyTree",level);
+        factor.printTree(out,level+1);
         if(multiply != null) {
-            multiply.printTree(level+1);
+            multiply.printTree(out,level+1);
         }
     }
 
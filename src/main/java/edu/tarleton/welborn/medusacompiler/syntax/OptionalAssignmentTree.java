@@ -24,6 +24,8 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -41,9 +43,9 @@ public class OptionalAssignmentTree extends AbstractSyntaxTree {
     }
 
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("OptionalAssignmentTree", level);
-        expression.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"OptionalAssignmentTree", level);
+        expression.printTree(out,level+1);
     }
     
     
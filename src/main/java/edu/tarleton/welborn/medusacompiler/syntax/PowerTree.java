@@ -24,6 +24,8 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -47,11 +49,11 @@ public class PowerTree extends AbstractSyntaxTree {
     }
 
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("PowerTree",level);
-        exp.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"PowerTree",level);
+        exp.printTree(out,level+1);
         if(power != null) {
-            power.printTree(level+1);
+            power.printTree(out,level+1);
         }
     }
 
@@ -24,7 +24,9 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import edu.tarleton.welborn.medusacompiler.lexical.InternPool;
 import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.io.PrintWriter;
 import java.util.Map;
 
 /**
@@ -35,10 +37,17 @@ public class ProgramTree extends AbstractSyntaxTree {
 
     private StatementsTree statements;
     private Map<String,TokenType> symbolTable;
+    private InternPool internPool;
+    
+    // The data type of every variable, indexed by the intern id of its name
+    private TokenType[] symbolTypes;
+    // The name and data type of every variable, indexed by its slot
+    private String[] slotNames;
+    private TokenType[] slotTypes;
 
-    public ProgramTree(StatementsTree statements) {
+    public ProgramTree(StatementsTree statements, InternPool internPool) {
         this.statements = statements;
-        this.symbolTable = symbolTable;
+        this.internPool = internPool;
     }
 
     public StatementsTree getStatements() {
@@ -52,11 +61,41 @@ public class ProgramTree extends AbstractSyntaxTree {
     public void setSymbolTable(Map<String, TokenType> symbolTable) {
         this.symbolTable = symbolTable;
     }
+
+    public InternPool getInternPool() {
+        return internPool;
+    }
+
+    public TokenType[] getSymbolTypes() {
+        return symbolTypes;
+    }
+
+    public void setSymbolTypes(TokenType[] symbolTypes) {
+        this.symbolTypes = symbolTypes;
+    }
+
+    public String[] getSlotNames() {
+        return slotNames;
+    }
+
+    public void setSlotNames(String[] slotNames) {
+        this.slotNames = slotNames;
+    }
+
+    public TokenType[] getSlotTypes() {
+        return slotTypes;
+    }
+
+    public void setSlotTypes(TokenType[] slotTypes) {
+        this.slotTypes = slotTypes;
+    }
     
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("ProgramTree",level);
-        statements.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"ProgramTree",level);
+        if(statements != null) {
+            statements.printTree(out,level+1);
+        }
     }
     
 }
@@ -24,9 +24,16 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import edu.tarleton.welborn.medusacompiler.Diagnostic;
+import edu.tarleton.welborn.medusacompiler.Diagnostics;
 import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  *
@@ -34,168 +41,242 @@ import java.util.Map;
  */
 public class SemanticAnalyzer {
 
+    // Top level statements type checked by each task when checking in parallel
+    public static final int DEFAULT_STATEMENTS_PER_TASK = 1_024;
+    
     private ProgramTree programTree;
+    private FlatProgramTree flatTree;
+    
+    // I never specified scope in the document. Variables declared in the { } of an
+    // if, else or for loop (and a for loop's own variable) go out of scope at its
+    // end, and everything else is global. A name can't be declared again while
+    // it's still in scope, so nothing is ever shadowed.
+    // Every declared variable gets the next slot, so variables are numbered densely
+    // from 0 in the order they're declared. The intern id of a name gives its slot
+    // (-1 while it isn't in scope) and the slot gives its type, so looking a variable
+    // up is just array indexing. Slots are stored on the tree as well, for later
+    // passes to use as variable indexes.
+    // Since slots are handed out in order, a scope is just the slot count when it
+    // opened: everything declared since then is inside it.
+    private int[] slots;
+    private int[] slotIdents;
+    private String[] slotNames;
+    private TokenType[] slotTypes;
+    private int slotCount;
     
-    // I never specified scope in the document. For now, I guess I'll just go with a
-    // global scope for all variables: it's more simple to write, and evil for any
-    // programmer that dares to use the language >:)
-    private Map<String,TokenType> symbolTable;
+    // Set once every name in the tree has been resolved to a slot, so the types of
+    // idents come from the slots already on the tree instead of the scope
+    private boolean namesResolved;
+    
+    // Where errors go when collecting them instead of throwing the first
+    private Diagnostics diagnostics;
     
     public SemanticAnalyzer(ProgramTree programTree) {
         this.programTree = programTree;
     }
     
-    private TokenType getDataTypeOfConcat(ConcatTree concat) throws SemanticAnalyzerException {
-        if(concat.getConcat() != null) {
-            TokenType atomType = getDataTypeOfAtom(concat.getAtom());
-            TokenType concatType = getDataTypeOfConcat(concat.getConcat());
-            // Concatenation is only allowed between strings
-            if(atomType != TokenType.STRING_VALUE || concatType != TokenType.STRING_VALUE) {
-                throw new SemanticAnalyzerException("Concatenation is only allowed between strings");
-            } else {
-                return atomType; // They're both the same, doesn't matter which one we return
-            }
-        } else {
-            return getDataTypeOfAtom(concat.getAtom());
+    public SemanticAnalyzer(FlatProgramTree flatTree) {
+        this.flatTree = flatTree;
+    }
+    
+    // With diagnostics set, an error in a statement is reported there and checking
+    // carries on with the next statement. A declaration with the wrong type still
+    // declares its variable, so its uses aren't reported as well.
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+    
+    // Reports the error against the statement it's in, or throws it if we aren't
+    // collecting errors
+    private void report(SemanticAnalyzerException err, StatementTree statement) throws SemanticAnalyzerException {
+        if(diagnostics == null) {
+            throw err;
         }
+        diagnostics.report(Diagnostic.Phase.SEMANTIC,err.getMessage(),statement.getLine(),statement.getColumn());
     }
     
+    private void resolveIdent(AtomValue atomValue) throws SemanticAnalyzerException {
+        if(typeOf(atomValue.getInternId()) == null) {
+            throw new SemanticAnalyzerException("Reference made to undeclared variable "+atomValue.getStringValue(),false);
+        }
+        atomValue.setSlot(slots[atomValue.getInternId()]);
+    }
+    
+    // Every expression node gets its data type stored on it as it's worked out, so
+    // the compiler can read the types rather than working them out again
     private TokenType getDataTypeOfAtom(AtomTree atom) throws SemanticAnalyzerException {
-        // If we have a type conversion as our unary operator, then just return whatever
-        // datatype we're converting this atom into
+        AtomValue atomValue = atom.getAtomValue();
+        TokenType valueType;
+        switch(atomValue.getType()) {
+            // If atom is an expression, then get the datatype of that expression
+            case LEFT_PARENTHESES:
+                valueType = getDataTypeOfExpression(atomValue.getExpression());
+                break;
+            // If atom is an ident, then check if the variable exists in our symbol table,
+            // if it does, then return its data type.
+            case IDENT:
+                if(!namesResolved) {
+                    resolveIdent(atomValue);
+                }
+                valueType = slotTypes[atomValue.getSlot()];
+                break;
+            // Otherwise, return the atom's inherent data type
+            case INT_VALUE:
+            case FLOAT_VALUE:
+            case STRING_VALUE:
+                valueType = atomValue.getType();
+                break;
+            default:
+                throw new SemanticAnalyzerException("Could not determine data type of atom!",false);
+        }
+        atomValue.setDataType(valueType);
+        
+        // If we have a type conversion as our unary operator, then the atom is whatever
+        // datatype we're converting into. The value's own type is still kept, so the
+        // compiler knows what it's converting from.
+        TokenType dataType = valueType;
         if(atom.getUnaryOperator() != null) {
             switch(atom.getUnaryOperator()) {
                 case UNARY_INT_CONVERSION:
-                    return TokenType.INT_VALUE;
+                    dataType = TokenType.INT_VALUE;
+                    break;
                 case UNARY_FLOAT_CONVERSION:
-                    return TokenType.FLOAT_VALUE;
+                    dataType = TokenType.FLOAT_VALUE;
+                    break;
                 case UNARY_STRING_CONVERSION:
-                    return TokenType.STRING_VALUE;
+                    dataType = TokenType.STRING_VALUE;
+                    break;
             }
         }
-        
-        // If atom is an expression, then get the datatype of that expression
-        if(atom.getAtomValue().getType() == TokenType.LEFT_PARENTHESES) {
-            return getDataTypeOfExpression(atom.getAtomValue().getExpression());
+        atom.setDataType(dataType);
+        return dataType;
+    }
+    
+    // The operator chains are checked with loops rather than by recursing down the
+    // chain, so long expressions can't overflow the stack. The types of the operands
+    // are worked out left to right, then compared right to left, which reports the
+    // same error that recursing down the right recursive tree would.
+    private static void checkSameTypes(List<TokenType> types, String leftName, String rightName) throws SemanticAnalyzerException {
+        TokenType rightType = types.get(types.size() - 1);
+        for(int i = types.size() - 2; i >= 0; i--) {
+            if(types.get(i) != rightType) {
+                throw new SemanticAnalyzerException(leftName+" symbol with data type "+types.get(i)+" cannot operate with "+rightName+" symbol of data type "+rightType,false);
+            }
+            rightType = types.get(i);
+        }
+    }
+    
+    private TokenType getDataTypeOfExp(ExpTree exp) throws SemanticAnalyzerException {
+        TokenType atomType = getDataTypeOfAtom(exp.getAtom());
+        exp.setDataType(atomType);
+        if(exp.getConcat() == null) {
+            return atomType;
         }
         
-        // If atom is an ident, then check if the variable exists in our symbol table,
-        // if it does, then return its data type.
-        if(atom.getAtomValue().getType() == TokenType.IDENT) {
-            if(symbolTable.containsKey(atom.getAtomValue().getStringValue())) {
-                return symbolTable.get(atom.getAtomValue().getStringValue());
-            } else {
-                throw new SemanticAnalyzerException("Reference made to undeclared variable "+atom.getAtomValue().getStringValue());
+        // Concatenation is only allowed between strings
+        boolean allStrings = atomType == TokenType.STRING_VALUE;
+        for(ConcatTree concat = exp.getConcat(); concat != null; concat = concat.getConcat()) {
+            if(getDataTypeOfAtom(concat.getAtom()) != TokenType.STRING_VALUE) {
+                allStrings = false;
             }
         }
-        
-        // Otherwise, return the atom's inherent data type
-        switch(atom.getAtomValue().getType()) {
-            case INT_VALUE:
-            case FLOAT_VALUE:
-            case STRING_VALUE:
-                return atom.getAtomValue().getType();
-            default:
-                throw new SemanticAnalyzerException("Could not determine data type of atom!");
+        if(!allStrings) {
+            throw new SemanticAnalyzerException("Concatenation is only allowed between strings",false);
         }
+        return atomType;
     }
     
-    private TokenType getDataTypeOfPower(PowerTree power) throws SemanticAnalyzerException {
-        if(power.getPower() != null) {
-            TokenType expType = getDataTypeOfExp(power.getExp());
-            TokenType powerType = getDataTypeOfPower(power.getPower());
-            if(expType != powerType) {
-                throw new SemanticAnalyzerException("Exp symbol with data type "+expType+" cannot operate with power symbol of data type "+powerType);
-            } else {
-                return expType; // They're both the same, doesn't matter which one we return
-            }
-        } else {
-            return getDataTypeOfExp(power.getExp());
+    private TokenType getDataTypeOfFactor(FactorTree factor) throws SemanticAnalyzerException {
+        TokenType expType = getDataTypeOfExp(factor.getExp());
+        factor.setDataType(expType);
+        if(factor.getPower() == null) {
+            return expType;
         }
+        
+        List<TokenType> types = new ArrayList<>();
+        types.add(expType);
+        for(PowerTree power = factor.getPower(); power != null; power = power.getPower()) {
+            types.add(getDataTypeOfExp(power.getExp()));
+        }
+        checkSameTypes(types,"Exp","power");
+        return expType;
     }
     
-    private TokenType getDataTypeOfExp(ExpTree exp) throws SemanticAnalyzerException {
-        if(exp.getConcat() != null) {
-            TokenType atomType = getDataTypeOfAtom(exp.getAtom());
-            TokenType concatType = getDataTypeOfConcat(exp.getConcat());
-            // Concatenation is only allowed between strings
-            if(atomType != TokenType.STRING_VALUE || concatType != TokenType.STRING_VALUE) {
-                throw new SemanticAnalyzerException("Concatenation is only allowed between strings");
-            } else {
-                return atomType; // They're both the same, doesn't matter which one we return
-            }
-        } else {
-            return getDataTypeOfAtom(exp.getAtom());
+    private TokenType getDataTypeOfTerm(TermTree term) throws SemanticAnalyzerException {
+        TokenType factorType = getDataTypeOfFactor(term.getFactor());
+        term.setDataType(factorType);
+        if(term.getMultiply() == null) {
+            return factorType;
         }
+        
+        List<TokenType> types = new ArrayList<>();
+        types.add(factorType);
+        for(MultiplyTree multiply = term.getMultiply(); multiply != null; multiply = multiply.getMultiply()) {
+            types.add(getDataTypeOfFactor(multiply.getFactor()));
+        }
+        checkSameTypes(types,"Factor","multiply");
+        return factorType;
     }
     
-    private TokenType getDataTypeOfMultiply(MultiplyTree multiply) throws SemanticAnalyzerException {
-        if(multiply.getMultiply() != null) {
-            TokenType factorType = getDataTypeOfFactor(multiply.getFactor());
-            TokenType multiplyType = getDataTypeOfMultiply(multiply.getMultiply());
-            if(factorType != multiplyType) {
-                throw new SemanticAnalyzerException("Factor symbol with data type "+factorType+" cannot operate with multiply symbol of data type "+multiplyType);
-            } else {
-                return factorType; // They're both the same, doesn't matter which one we return
-            }
-        } else {
-            return getDataTypeOfFactor(multiply.getFactor());
+    private TokenType getDataTypeOfExpression(ExpressionTree expression) throws SemanticAnalyzerException {
+        TokenType termType = getDataTypeOfTerm(expression.getTerm());
+        expression.setDataType(termType);
+        if(expression.getAdd() == null) {
+            return termType;
+        }
+        
+        List<TokenType> types = new ArrayList<>();
+        types.add(termType);
+        for(AddTree add = expression.getAdd(); add != null; add = add.getAddTree()) {
+            types.add(getDataTypeOfTerm(add.getTermTree()));
         }
+        checkSameTypes(types,"Term","add");
+        return termType;
     }
     
-    private TokenType getDataTypeOfFactor(FactorTree factor) throws SemanticAnalyzerException {
-        if(factor.getPower() != null) {
-            TokenType expType = getDataTypeOfExp(factor.getExp());
-            TokenType powerType = getDataTypeOfPower(factor.getPower());
-            if(expType != powerType) {
-                throw new SemanticAnalyzerException("Exp symbol with data type "+expType+" cannot operate with power symbol of data type "+powerType);
-            } else {
-                return expType; // They're both the same, doesn't matter which one we return
-            }
-        } else {
-            return getDataTypeOfExp(factor.getExp());
-        }
+    private void resetSlots(int identCount) {
+        slots = new int[identCount];
+        Arrays.fill(slots,-1);
+        slotIdents = new int[16];
+        slotNames = new String[16];
+        slotTypes = new TokenType[16];
+        slotCount = 0;
     }
     
-    private TokenType getDataTypeOfAdd(AddTree add) throws SemanticAnalyzerException {
-        if(add.getAddTree() != null) {
-            TokenType termType = getDataTypeOfTerm(add.getTermTree());
-            TokenType addType = getDataTypeOfAdd(add.getAddTree());
-            if(termType != addType) {
-                throw new SemanticAnalyzerException("Term symbol with data type "+termType+" cannot operate with add symbol of data type "+addType);
-            } else {
-                return termType; // They're both the same, doesn't matter which one we return
-            }
-        } else {
-            return getDataTypeOfTerm(add.getTermTree());
+    // Makes room for names interned since the slots were sized
+    private void growSlots(int identCount) {
+        if(slots.length < identCount) {
+            int oldLength = slots.length;
+            slots = Arrays.copyOf(slots,Math.max(identCount,oldLength * 2));
+            Arrays.fill(slots,oldLength,slots.length,-1);
         }
     }
     
-    private TokenType getDataTypeOfTerm(TermTree term) throws SemanticAnalyzerException {
-        if(term.getMultiply() != null) {
-            TokenType factorType = getDataTypeOfFactor(term.getFactor());
-            TokenType multiplyType = getDataTypeOfMultiply(term.getMultiply());
-            if(factorType != multiplyType) {
-                throw new SemanticAnalyzerException("Factor symbol with data type "+factorType+" cannot operate with multiply symbol of data type "+multiplyType);
-            } else {
-                return factorType; // They're both the same, doesn't matter which one we return
-            }
-        } else {
-            return getDataTypeOfFactor(term.getFactor());
+    private TokenType typeOf(int identId) {
+        int slot = slots[identId];
+        return slot < 0 ? null : slotTypes[slot];
+    }
+    
+    // Gives the variable the next slot, and returns it
+    private int declare(int identId, String ident, TokenType dataType) {
+        if(slotCount == slotNames.length) {
+            slotIdents = Arrays.copyOf(slotIdents,slotCount * 2);
+            slotNames = Arrays.copyOf(slotNames,slotCount * 2);
+            slotTypes = Arrays.copyOf(slotTypes,slotCount * 2);
         }
+        slotIdents[slotCount] = identId;
+        slotNames[slotCount] = ident;
+        slotTypes[slotCount] = dataType;
+        slots[identId] = slotCount;
+        return slotCount++;
     }
     
-    private TokenType getDataTypeOfExpression(ExpressionTree expression) throws SemanticAnalyzerException {
-        if(expression.getAdd() != null) {
-            TokenType termType = getDataTypeOfTerm(expression.getTerm());
-            TokenType addType = getDataTypeOfAdd(expression.getAdd());
-            if(termType != addType) {
-                throw new SemanticAnalyzerException("Term symbol with data type "+termType+" cannot operate with add symbol of data type "+addType);
-            } else {
-                return termType; // They're both the same, doesn't matter which one we return
+    // Takes every variable declared since the scope opened back out of scope
+    private void closeScope(int firstSlot) {
+        for(int slot = firstSlot; slot < slotCount; slot++) {
+            if(slots[slotIdents[slot]] == slot) {
+                slots[slotIdents[slot]] = -1;
             }
-        } else {
-            return getDataTypeOfTerm(expression.getTerm());
         }
     }
     
@@ -208,44 +289,71 @@ public class SemanticAnalyzer {
         // for the benefit of the compiler.
         // If it doesn't, add our new declared variable to the symbol table.
         
-        if(forLoopVariable.getDataType() == null) {
-            if(symbolTable.containsKey(forLoopVariable.getIdent())) {
-                forLoopVariable.setDataType(symbolTable.get(forLoopVariable.getIdent()));
+        resolveForLoopVariable(forLoopVariable);
+        checkForLoopVariableTypes(forLoopVariable);
+    }
+    
+    private void resolveForLoopVariable(ForLoopVariableTree forLoopVariable) throws SemanticAnalyzerException {
+        if(!forLoopVariable.isDeclaration()) {
+            if(typeOf(forLoopVariable.getIdentId()) != null) {
+                forLoopVariable.setDataType(typeOf(forLoopVariable.getIdentId()));
+                forLoopVariable.setSlot(slots[forLoopVariable.getIdentId()]);
             } else {
-                throw new SemanticAnalyzerException("Reference made to undeclared variable "+forLoopVariable.getIdent());
+                throw new SemanticAnalyzerException("Reference made to undeclared variable "+forLoopVariable.getIdent(),false);
             }
+        } else if(typeOf(forLoopVariable.getIdentId()) != null) {
+            throw new SemanticAnalyzerException("Variable "+forLoopVariable.getIdent()+" cannot be declared twice!",false);
         } else {
-            symbolTable.put(forLoopVariable.getIdent(),forLoopVariable.getDataType());
+            forLoopVariable.setSlot(declare(forLoopVariable.getIdentId(),forLoopVariable.getIdent(),forLoopVariable.getDataType()));
         }
-        
+    }
+    
+    private void checkForLoopVariableTypes(ForLoopVariableTree forLoopVariable) throws SemanticAnalyzerException {
         // If there's an assignment, then check that the datatype of the variable and
         // the datatype of the expression are the same
         if(forLoopVariable.getOptionalAssignment() != null) {
             TokenType variableType = forLoopVariable.getDataType();
             TokenType expressionType = getDataTypeOfExpression(forLoopVariable.getOptionalAssignment().getExpression());
             if(variableType != expressionType) {
-                throw new SemanticAnalyzerException("Variable "+forLoopVariable.getIdent()+" declared as "+variableType+" cannot be assigned to "+expressionType);
+                throw new SemanticAnalyzerException("Variable "+forLoopVariable.getIdent()+" declared as "+variableType+" cannot be assigned to "+expressionType,false);
             }
         }
     }
     
     private void checkForLoop(ForLoopTree forLoop) throws SemanticAnalyzerException {
-        checkForLoopVariable(forLoop.getForLoopVariable());
-        checkCondition(forLoop.getCondition());
-        checkAssignment(forLoop.getAssignment());
+        int firstSlot = slotCount;
+        try {
+            checkForLoopVariable(forLoop.getForLoopVariable());
+            checkCondition(forLoop.getCondition());
+            checkAssignment(forLoop.getAssignment());
+        } catch(SemanticAnalyzerException err) {
+            report(err,forLoop);
+        }
         
         // statements can be null
         if(forLoop.getStatementBlock() != null) {
             checkStatements(forLoop.getStatementBlock());
         }
+        closeScope(firstSlot);
     }
     
     private void checkDeclaration(DeclarationTree declaration) throws SemanticAnalyzerException {
         // Check that the variable hasn't already been declared
-        if(symbolTable.containsKey(declaration.getIdent())) {
-            throw new SemanticAnalyzerException("Variable "+declaration.getIdent()+" cannot be declared twice!");
+        if(slots[declaration.getIdentId()] >= 0) {
+            throw new SemanticAnalyzerException("Variable "+declaration.getIdent()+" cannot be declared twice!",false);
+        }
+        
+        try {
+            checkDeclarationTypes(declaration);
+        } catch(SemanticAnalyzerException err) {
+            report(err,declaration);
         }
         
+        // Add it to the symbol table
+        declaration.setSlot(declare(declaration.getIdentId(),declaration.getIdent(),declaration.getDataType()));
+    }
+    
+    private void checkDeclarationTypes(DeclarationTree declaration) throws SemanticAnalyzerException {
         // If we have an optional assignment, then check that the datatype
         // of the assignment is the same datatype as the declaration.
         
@@ -253,24 +361,29 @@ public class SemanticAnalyzer {
             TokenType declarationType = declaration.getDataType();
             TokenType expressionType = getDataTypeOfExpression(declaration.getOptionalExpression());
             if(expressionType != declarationType) {
-                throw new SemanticAnalyzerException("Variable "+declaration.getIdent()+" declared as "+declarationType+" cannot be assigned to "+expressionType);
+                throw new SemanticAnalyzerException("Variable "+declaration.getIdent()+" declared as "+declarationType+" cannot be assigned to "+expressionType,false);
             }
         }
-        
-        // Add it to the symbol table
-        symbolTable.put(declaration.getIdent(),declaration.getDataType());
     }
     
     private void checkAssignment(AssignmentTree assignment) throws SemanticAnalyzerException {
         // Check that the variable referenced in the assignment exists
-        if(!symbolTable.containsKey(assignment.getIdent())) {
-            throw new SemanticAnalyzerException("Reference made to undeclared variable "+assignment.getIdent());
+        resolveAssignment(assignment);
+        checkAssignmentTypes(assignment);
+    }
+    
+    private void resolveAssignment(AssignmentTree assignment) throws SemanticAnalyzerException {
+        if(typeOf(assignment.getIdentId()) == null) {
+            throw new SemanticAnalyzerException("Reference made to undeclared variable "+assignment.getIdent(),false);
         }
-        
-        TokenType assignmentType = symbolTable.get(assignment.getIdent());
+        assignment.setSlot(slots[assignment.getIdentId()]);
+    }
+    
+    private void checkAssignmentTypes(AssignmentTree assignment) throws SemanticAnalyzerException {
+        TokenType assignmentType = slotTypes[assignment.getSlot()];
         TokenType expressionType = getDataTypeOfExpression(assignment.getExpression());
         if(assignmentType != expressionType) {
-            throw new SemanticAnalyzerException("Variable "+assignment.getIdent()+" declared as "+assignmentType+" cannot be assigned to "+expressionType);
+            throw new SemanticAnalyzerException("Variable "+assignment.getIdent()+" declared as "+assignmentType+" cannot be assigned to "+expressionType,false);
         }
     }
     
@@ -279,44 +392,526 @@ public class SemanticAnalyzer {
         TokenType condition1 = getDataTypeOfExpression(condition.getExpression1());
         TokenType condition2 = getDataTypeOfExpression(condition.getExpression2());
         if(condition1 != condition2) {
-            throw new SemanticAnalyzerException("Both sides of condition must be the same data type, cannot compare "+condition1+" with "+condition2);
+            throw new SemanticAnalyzerException("Both sides of condition must be the same data type, cannot compare "+condition1+" with "+condition2,false);
         }
     }
     
     private void checkIfTree(IfTree ifTree) throws SemanticAnalyzerException {
-        checkCondition(ifTree.getCondition());
+        try {
+            checkCondition(ifTree.getCondition());
+        } catch(SemanticAnalyzerException err) {
+            report(err,ifTree);
+        }
+        
+        int firstSlot = slotCount;
+        if(ifTree.getStatements() != null) {
+            checkStatements(ifTree.getStatements());
+        }
+        closeScope(firstSlot);
+        
+        ElseStatementOrNullTree elseStatement = ifTree.getElseStatement();
+        if(elseStatement != null) {
+            firstSlot = slotCount;
+            if(elseStatement.getStatementBlock() != null) {
+                checkStatements(elseStatement.getStatementBlock());
+            }
+            closeScope(firstSlot);
+        }
     }
     
-    private void checkStatement(StatementTree statement) throws SemanticAnalyzerException {
-        if(statement instanceof AssignmentTree) {
-            checkAssignment((AssignmentTree) statement);
-        } else if (statement instanceof DeclarationTree) {
-            checkDeclaration((DeclarationTree) statement);
-        } else if (statement instanceof ForLoopTree) {
-            checkForLoop((ForLoopTree) statement);
-        } else if (statement instanceof IfTree) {
-            checkIfTree((IfTree) statement);
+    private final StatementVisitor<Void,SemanticAnalyzerException> statementChecker = new StatementVisitor<>() {
+        @Override
+        public Void visitAssignment(AssignmentTree assignment) throws SemanticAnalyzerException {
+            checkAssignment(assignment);
+            return null;
         }
-    }
+
+        @Override
+        public Void visitDeclaration(DeclarationTree declaration) throws SemanticAnalyzerException {
+            checkDeclaration(declaration);
+            return null;
+        }
+
+        @Override
+        public Void visitForLoop(ForLoopTree forLoop) throws SemanticAnalyzerException {
+            checkForLoop(forLoop);
+            return null;
+        }
+
+        @Override
+        public Void visitIf(IfTree ifTree) throws SemanticAnalyzerException {
+            checkIfTree(ifTree);
+            return null;
+        }
+    };
     
     private void checkStatements(StatementsTree statements) throws SemanticAnalyzerException {
-        checkStatement(statements.getStatement());
-        if(statements.getStatements() != null) {
-            checkStatements(statements.getStatements());
+        for(; statements != null; statements = statements.getStatements()) {
+            try {
+                statements.getStatement().accept(statementChecker);
+            } catch(SemanticAnalyzerException err) {
+                report(err,statements.getStatement());
+            }
         }
     }
     
     private void checkProgramTree(ProgramTree programTree) throws SemanticAnalyzerException {
-        checkStatements(programTree.getStatements());
+        // An empty program has no statements to check
+        if(programTree.getStatements() != null) {
+            checkStatements(programTree.getStatements());
+        }
+    }
+    
+    // Checking in parallel splits the checks in two. Only declarations change what
+    // a name refers to, so one sequential sweep declares every variable and
+    // resolves every name to its slot, working out no types at all. With the slots
+    // fixed, the type of every expression depends on nothing but its own subtree,
+    // so the top level statements are type checked in parallel.
+    private void resolveExpression(ExpressionTree expression) throws SemanticAnalyzerException {
+        resolveTerm(expression.getTerm());
+        for(AddTree add = expression.getAdd(); add != null; add = add.getAddTree()) {
+            resolveTerm(add.getTermTree());
+        }
+    }
+    
+    private void resolveTerm(TermTree term) throws SemanticAnalyzerException {
+        resolveFactor(term.getFactor());
+        for(MultiplyTree multiply = term.getMultiply(); multiply != null; multiply = multiply.getMultiply()) {
+            resolveFactor(multiply.getFactor());
+        }
+    }
+    
+    private void resolveFactor(FactorTree factor) throws SemanticAnalyzerException {
+        resolveExp(factor.getExp());
+        for(PowerTree power = factor.getPower(); power != null; power = power.getPower()) {
+            resolveExp(power.getExp());
+        }
+    }
+    
+    private void resolveExp(ExpTree exp) throws SemanticAnalyzerException {
+        resolveAtom(exp.getAtom());
+        for(ConcatTree concat = exp.getConcat(); concat != null; concat = concat.getConcat()) {
+            resolveAtom(concat.getAtom());
+        }
+    }
+    
+    private void resolveAtom(AtomTree atom) throws SemanticAnalyzerException {
+        AtomValue atomValue = atom.getAtomValue();
+        if(atomValue.getType() == TokenType.LEFT_PARENTHESES) {
+            resolveExpression(atomValue.getExpression());
+        } else if(atomValue.getType() == TokenType.IDENT) {
+            resolveIdent(atomValue);
+        }
+    }
+    
+    private void resolveCondition(ConditionTree condition) throws SemanticAnalyzerException {
+        resolveExpression(condition.getExpression1());
+        resolveExpression(condition.getExpression2());
+    }
+    
+    private final StatementVisitor<Void,SemanticAnalyzerException> nameResolver = new StatementVisitor<>() {
+        @Override
+        public Void visitAssignment(AssignmentTree assignment) throws SemanticAnalyzerException {
+            resolveAssignment(assignment);
+            resolveExpression(assignment.getExpression());
+            return null;
+        }
+
+        @Override
+        public Void visitDeclaration(DeclarationTree declaration) throws SemanticAnalyzerException {
+            if(declaration.getOptionalExpression() != null) {
+                resolveExpression(declaration.getOptionalExpression());
+            }
+            if(slots[declaration.getIdentId()] >= 0) {
+                throw new SemanticAnalyzerException("Variable "+declaration.getIdent()+" cannot be declared twice!",false);
+            }
+            declaration.setSlot(declare(declaration.getIdentId(),declaration.getIdent(),declaration.getDataType()));
+            return null;
+        }
+
+        @Override
+        public Void visitForLoop(ForLoopTree forLoop) throws SemanticAnalyzerException {
+            int firstSlot = slotCount;
+            ForLoopVariableTree forLoopVariable = forLoop.getForLoopVariable();
+            resolveForLoopVariable(forLoopVariable);
+            if(forLoopVariable.getOptionalAssignment() != null) {
+                resolveExpression(forLoopVariable.getOptionalAssignment().getExpression());
+            }
+            resolveCondition(forLoop.getCondition());
+            visitAssignment(forLoop.getAssignment());
+            resolveStatements(forLoop.getStatementBlock());
+            closeScope(firstSlot);
+            return null;
+        }
+
+        @Override
+        public Void visitIf(IfTree ifTree) throws SemanticAnalyzerException {
+            resolveCondition(ifTree.getCondition());
+            int firstSlot = slotCount;
+            resolveStatements(ifTree.getStatements());
+            closeScope(firstSlot);
+            
+            ElseStatementOrNullTree elseStatement = ifTree.getElseStatement();
+            if(elseStatement != null) {
+                firstSlot = slotCount;
+                resolveStatements(elseStatement.getStatementBlock());
+                closeScope(firstSlot);
+            }
+            return null;
+        }
+    };
+    
+    private void resolveStatements(StatementsTree statements) throws SemanticAnalyzerException {
+        for(; statements != null; statements = statements.getStatements()) {
+            statements.getStatement().accept(nameResolver);
+        }
+    }
+    
+    // The type checks of checkStatements, for a tree whose names are resolved
+    private final StatementVisitor<Void,SemanticAnalyzerException> typeChecker = new StatementVisitor<>() {
+        @Override
+        public Void visitAssignment(AssignmentTree assignment) throws SemanticAnalyzerException {
+            checkAssignmentTypes(assignment);
+            return null;
+        }
+
+        @Override
+        public Void visitDeclaration(DeclarationTree declaration) throws SemanticAnalyzerException {
+            checkDeclarationTypes(declaration);
+            return null;
+        }
+
+        @Override
+        public Void visitForLoop(ForLoopTree forLoop) throws SemanticAnalyzerException {
+            checkForLoopVariableTypes(forLoop.getForLoopVariable());
+            checkCondition(forLoop.getCondition());
+            checkAssignmentTypes(forLoop.getAssignment());
+            typeCheckStatements(forLoop.getStatementBlock());
+            return null;
+        }
+
+        @Override
+        public Void visitIf(IfTree ifTree) throws SemanticAnalyzerException {
+            checkCondition(ifTree.getCondition());
+            typeCheckStatements(ifTree.getStatements());
+            if(ifTree.getElseStatement() != null) {
+                typeCheckStatements(ifTree.getElseStatement().getStatementBlock());
+            }
+            return null;
+        }
+    };
+    
+    private void typeCheckStatements(StatementsTree statements) throws SemanticAnalyzerException {
+        for(; statements != null; statements = statements.getStatements()) {
+            statements.getStatement().accept(typeChecker);
+        }
+    }
+    
+    // Type checks the top level statements from start up to end, returning the
+    // error rather than throwing it so the task always completes normally
+    private SemanticAnalyzerException typeCheckStatements(StatementTree[] statements, int start, int end) {
+        try {
+            for(int i = start; i < end; i++) {
+                statements[i].accept(typeChecker);
+            }
+            return null;
+        } catch(SemanticAnalyzerException err) {
+            return err;
+        }
+    }
+    
+    // The same checks over a FlatProgramTree, in the same order, so the same
+    // program fails with the same error either way. Types go in the tree's type
+    // column as they're worked out.
+    private TokenType getDataTypeOfFlatNode(int node) throws SemanticAnalyzerException {
+        TokenType dataType = resolveDataTypeOfFlatNode(node);
+        flatTree.setType(node,dataType);
+        return dataType;
+    }
+    
+    private TokenType resolveDataTypeOfFlatNode(int node) throws SemanticAnalyzerException {
+        switch(flatTree.getKind(node)) {
+            case IDENT:
+                if(typeOf(flatTree.getPayload(node)) != null) {
+                    flatTree.setSlot(node,slots[flatTree.getPayload(node)]);
+                    return typeOf(flatTree.getPayload(node));
+                } else {
+                    throw new SemanticAnalyzerException("Reference made to undeclared variable "+flatTree.getStringValue(node),false);
+                }
+            case INT_VALUE:
+                return TokenType.INT_VALUE;
+            case FLOAT_VALUE:
+                return TokenType.FLOAT_VALUE;
+            case STRING_VALUE:
+                return TokenType.STRING_VALUE;
+            case PARENTHESES:
+                return getDataTypeOfFlatNode(flatTree.getFirstChild(node));
+            case CONVERSION:
+                getDataTypeOfFlatNode(flatTree.getFirstChild(node));
+                switch(flatTree.getOperator(node)) {
+                    case UNARY_INT_CONVERSION:
+                        return TokenType.INT_VALUE;
+                    case UNARY_FLOAT_CONVERSION:
+                        return TokenType.FLOAT_VALUE;
+                    default:
+                        return TokenType.STRING_VALUE;
+                }
+            case BINARY:
+                return getDataTypeOfFlatChain(node);
+            default:
+                throw new SemanticAnalyzerException("Could not determine data type of atom!",false);
+        }
+    }
+    
+    private TokenType getDataTypeOfFlatChain(int node) throws SemanticAnalyzerException {
+        int[] chain = flatTree.getChain(node);
+        int[] operands = flatTree.getChainOperands(chain);
+        List<TokenType> types = new ArrayList<>(operands.length);
+        for(int operand : operands) {
+            types.add(getDataTypeOfFlatNode(operand));
+        }
+        
+        switch(flatTree.getOperator(node)) {
+            case CONCATENATE:
+                for(TokenType type : types) {
+                    if(type != TokenType.STRING_VALUE) {
+                        throw new SemanticAnalyzerException("Concatenation is only allowed between strings",false);
+                    }
+                }
+                break;
+            case POWER:
+                checkSameTypes(types,"Exp","power");
+                break;
+            case PLUS:
+            case MINUS:
+                checkSameTypes(types,"Term","add");
+                break;
+            default:
+                checkSameTypes(types,"Factor","multiply");
+                break;
+        }
+        for(int link : chain) {
+            flatTree.setType(link,types.get(0));
+        }
+        return types.get(0);
+    }
+    
+    private void checkFlatForLoopVariable(int forLoopVariable) throws SemanticAnalyzerException {
+        int identId = flatTree.getPayload(forLoopVariable);
+        if(flatTree.getKind(forLoopVariable) == SyntaxNodeKind.FOR_VARIABLE_DECLARATION) {
+            if(typeOf(identId) != null) {
+                throw new SemanticAnalyzerException("Variable "+flatTree.getStringValue(forLoopVariable)+" cannot be declared twice!",false);
+            }
+            flatTree.setSlot(forLoopVariable,declare(identId,flatTree.getStringValue(forLoopVariable),flatTree.getType(forLoopVariable)));
+            return;
+        }
+        
+        if(typeOf(identId) != null) {
+            flatTree.setType(forLoopVariable,typeOf(identId));
+            flatTree.setSlot(forLoopVariable,slots[identId]);
+        } else {
+            throw new SemanticAnalyzerException("Reference made to undeclared variable "+flatTree.getStringValue(forLoopVariable),false);
+        }
+        
+        int expression = flatTree.getFirstChild(forLoopVariable);
+        if(expression >= 0) {
+            TokenType variableType = typeOf(identId);
+            TokenType expressionType = getDataTypeOfFlatNode(expression);
+            if(variableType != expressionType) {
+                throw new SemanticAnalyzerException("Variable "+flatTree.getStringValue(forLoopVariable)+" declared as "+variableType+" cannot be assigned to "+expressionType,false);
+            }
+        }
+    }
+    
+    private void checkFlatDeclaration(int declaration) throws SemanticAnalyzerException {
+        int identId = flatTree.getPayload(declaration);
+        if(slots[identId] >= 0) {
+            throw new SemanticAnalyzerException("Variable "+flatTree.getStringValue(declaration)+" cannot be declared twice!",false);
+        }
+        
+        TokenType declarationType = flatTree.getType(declaration);
+        int expression = flatTree.getFirstChild(declaration);
+        if(expression >= 0) {
+            TokenType expressionType = getDataTypeOfFlatNode(expression);
+            if(expressionType != declarationType) {
+                throw new SemanticAnalyzerException("Variable "+flatTree.getStringValue(declaration)+" declared as "+declarationType+" cannot be assigned to "+expressionType,false);
+            }
+        }
+        flatTree.setSlot(declaration,declare(identId,flatTree.getStringValue(declaration),declarationType));
+    }
+    
+    private void checkFlatAssignment(int assignment) throws SemanticAnalyzerException {
+        TokenType assignmentType = typeOf(flatTree.getPayload(assignment));
+        if(assignmentType == null) {
+            throw new SemanticAnalyzerException("Reference made to undeclared variable "+flatTree.getStringValue(assignment),false);
+        }
+        flatTree.setSlot(assignment,slots[flatTree.getPayload(assignment)]);
+        
+        TokenType expressionType = getDataTypeOfFlatNode(flatTree.getFirstChild(assignment));
+        if(assignmentType != expressionType) {
+            throw new SemanticAnalyzerException("Variable "+flatTree.getStringValue(assignment)+" declared as "+assignmentType+" cannot be assigned to "+expressionType,false);
+        }
+    }
+    
+    private void checkFlatCondition(int condition) throws SemanticAnalyzerException {
+        TokenType condition1 = getDataTypeOfFlatNode(flatTree.getFirstChild(condition));
+        TokenType condition2 = getDataTypeOfFlatNode(flatTree.getSecondChild(condition));
+        if(condition1 != condition2) {
+            throw new SemanticAnalyzerException("Both sides of condition must be the same data type, cannot compare "+condition1+" with "+condition2,false);
+        }
+    }
+    
+    private void checkFlatBlock(int block) throws SemanticAnalyzerException {
+        int firstSlot = slotCount;
+        checkFlatStatements(flatTree.getFirstChild(block));
+        closeScope(firstSlot);
+    }
+    
+    // Checks a statement and every statement after it
+    private void checkFlatStatements(int statement) throws SemanticAnalyzerException {
+        for(; statement >= 0; statement = flatTree.getNextSibling(statement)) {
+            switch(flatTree.getKind(statement)) {
+                case DECLARATION:
+                    checkFlatDeclaration(statement);
+                    break;
+                case ASSIGNMENT:
+                    checkFlatAssignment(statement);
+                    break;
+                case IF:
+                    int ifCondition = flatTree.getFirstChild(statement);
+                    checkFlatCondition(ifCondition);
+                    for(int block = flatTree.getNextSibling(ifCondition); block >= 0; block = flatTree.getNextSibling(block)) {
+                        checkFlatBlock(block);
+                    }
+                    break;
+                case FOR:
+                    int firstSlot = slotCount;
+                    int forLoopVariable = flatTree.getFirstChild(statement);
+                    int condition = flatTree.getNextSibling(forLoopVariable);
+                    int assignment = flatTree.getNextSibling(condition);
+                    checkFlatForLoopVariable(forLoopVariable);
+                    checkFlatCondition(condition);
+                    checkFlatAssignment(assignment);
+                    checkFlatBlock(flatTree.getNextSibling(assignment));
+                    closeScope(firstSlot);
+                    break;
+            }
+        }
+    }
+    
+    // Checks one top level statement of a FlatProgramTree that's being parsed a
+    // statement at a time, keeping the variables declared by earlier statements.
+    // New names can be interned as the program is parsed, so the symbol types
+    // grow with the pool.
+    public void checkFlatStatement(int statement) throws SemanticAnalyzerException {
+        if(slots == null) {
+            resetSlots(0);
+        }
+        growSlots(flatTree.getInternPool().size());
+        checkFlatStatements(statement);
     }
     
     public void checkSemantics() throws SemanticAnalyzerException {
-        symbolTable = new HashMap<>();
-        checkProgramTree(programTree);
+        namesResolved = false;
+        if(flatTree != null) {
+            resetSlots(flatTree.getInternPool().size());
+            checkFlatStatements(flatTree.getFirstChild(flatTree.getRoot()));
+        } else {
+            resetSlots(programTree.getInternPool().size());
+            checkProgramTree(programTree);
+        }
     }
 
+    public void checkSemanticsInParallel() throws SemanticAnalyzerException {
+        // With only one processor, the second sweep over the tree is pure overhead
+        if(Runtime.getRuntime().availableProcessors() == 1) {
+            checkSemantics();
+            return;
+        }
+        checkSemanticsInParallel(DEFAULT_STATEMENTS_PER_TASK);
+    }
+    
+    // Checks a ProgramTree in two phases, type checking the given number of top
+    // level statements per task. A FlatProgramTree, or a tree whose errors are
+    // being collected, is checked sequentially.
+    public void checkSemanticsInParallel(int statementsPerTask) throws SemanticAnalyzerException {
+        if(flatTree != null || diagnostics != null) {
+            checkSemantics();
+            return;
+        }
+        
+        // Any error at all, from either phase, means the program is checked again
+        // sequentially. That throws whichever error comes first in the program,
+        // worded exactly as it would be, and failing is the rare case.
+        List<StatementTree> statements = new ArrayList<>();
+        try {
+            namesResolved = false;
+            resetSlots(programTree.getInternPool().size());
+            for(StatementsTree list = programTree.getStatements(); list != null; list = list.getStatements()) {
+                statements.add(list.getStatement());
+                list.getStatement().accept(nameResolver);
+            }
+        } catch(SemanticAnalyzerException err) {
+            // The sequential check is expected to throw its own error
+            checkSemantics();
+            throw new IllegalStateException("Parallel semantic check failed where the sequential check passed",err);
+        }
+        
+        namesResolved = true;
+        StatementTree[] statementArray = statements.toArray(new StatementTree[0]);
+        List<ForkJoinTask<SemanticAnalyzerException>> tasks = new ArrayList<>();
+        for(int start = 0; start < statementArray.length; start += statementsPerTask) {
+            int end = Math.min(start + statementsPerTask,statementArray.length);
+            int taskStart = start;
+            tasks.add(ForkJoinPool.commonPool().submit(() -> typeCheckStatements(statementArray,taskStart,end)));
+        }
+        // Every task finishes before any checking again, so none is still writing
+        // types to the tree
+        SemanticAnalyzerException firstError = null;
+        for(ForkJoinTask<SemanticAnalyzerException> task : tasks) {
+            SemanticAnalyzerException err = task.join();
+            if(firstError == null) {
+                firstError = err;
+            }
+        }
+        if(firstError != null) {
+            // The sequential check is expected to throw its own error
+            checkSemantics();
+            throw new IllegalStateException("Parallel semantic check failed where the sequential check passed",firstError);
+        }
+    }
+    
+    // The type of every variable still in scope by name, for callers that still
+    // want a map
     public Map<String, TokenType> getSymbolTable() {
+        Map<String,TokenType> symbolTable = new HashMap<>();
+        for(int slot : slots) {
+            if(slot >= 0) {
+                symbolTable.put(slotNames[slot],slotTypes[slot]);
+            }
+        }
         return symbolTable;
     }
+
+    // The type of every variable still in scope, indexed by the intern id of its name
+    public TokenType[] getSymbolTypes() {
+        TokenType[] symbolTypes = new TokenType[slots.length];
+        for(int identId = 0; identId < slots.length; identId++) {
+            symbolTypes[identId] = typeOf(identId);
+        }
+        return symbolTypes;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public String[] getSlotNames() {
+        return Arrays.copyOf(slotNames,slotCount);
+    }
+
+    public TokenType[] getSlotTypes() {
+        return Arrays.copyOf(slotTypes,slotCount);
+    }
     
 }
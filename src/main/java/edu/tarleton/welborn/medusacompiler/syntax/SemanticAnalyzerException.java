@@ -45,4 +45,17 @@ public class SemanticAnalyzerException extends Exception {
     public SemanticAnalyzerException(String msg) {
         super(msg);
     }
+
+    /**
+     * Constructs an instance of <code>SemanticAnalyzerException</code> with the
+     * specified detail message, filling in the stack trace only if asked to.
+     * The semantic analyzer leaves it out, so a file full of errors doesn't pay
+     * for a stack walk per error.
+     *
+     * @param msg the detail message.
+     * @param writableStackTrace whether the stack trace should be filled in.
+     */
+    public SemanticAnalyzerException(String msg, boolean writableStackTrace) {
+        super(msg,null,false,writableStackTrace);
+    }
 }
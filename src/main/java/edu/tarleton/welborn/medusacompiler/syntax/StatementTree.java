@@ -24,15 +24,39 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
  */
-public class StatementTree extends AbstractSyntaxTree {
+public abstract class StatementTree extends AbstractSyntaxTree {
+    
+    // Where the statement starts in the source, filled in by the SyntaxAnalyzer
+    private int line;
+    private int column;
+    
+    // Statements can only be declared in this package, so a StatementVisitor
+    // covers every one of them
+    StatementTree() {
+    }
+    
+    public int getLine() {
+        return line;
+    }
 
-    @Override
-    public void printTree(int level) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    public int getColumn() {
+        return column;
+    }
+    
+    void setPosition(int line, int column) {
+        this.line = line;
+        this.column = column;
     }
     
+    public abstract <R, E extends Exception> R accept(StatementVisitor<R,E> visitor) throws E;
+
+    @Override
+    public abstract void printTree(PrintWriter out, int level);
+    
 }
@@ -0,0 +1,47 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.syntax;
+
+/**
+ * A pass over the statements of a ProgramTree. Every kind of statement calls its
+ * own method through StatementTree.accept, so a pass doesn't need a chain of
+ * instanceof checks, and a new kind of statement won't compile until every pass
+ * handles it.
+ *
+ * @param <R> what the pass returns for a statement, Void if nothing
+ * @param <E> the exception the pass throws, RuntimeException if none
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public interface StatementVisitor<R, E extends Exception> {
+    
+    R visitAssignment(AssignmentTree assignment) throws E;
+    
+    R visitDeclaration(DeclarationTree declaration) throws E;
+    
+    R visitForLoop(ForLoopTree forLoop) throws E;
+    
+    R visitIf(IfTree ifTree) throws E;
+    
+}
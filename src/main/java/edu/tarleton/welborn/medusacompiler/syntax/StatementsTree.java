@@ -24,6 +24,8 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -46,12 +48,13 @@ public class StatementsTree extends AbstractSyntaxTree {
         return statements;
     }
 
+    // The rest of the statements are printed at the same level with a loop, so a
+    // long program neither overflows the stack nor indents itself off the page
     @Override
-    public void printTree(int level) {
-        printClassIndented("StatementsTree",level);
-        statement.printTree(level+1);
-        if(statements != null) {
-            statements.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        for(StatementsTree link = this; link != null; link = link.statements) {
+            printClassIndented(out,"StatementsTree",level);
+            link.statement.printTree(out,level+1);
         }
     }
     
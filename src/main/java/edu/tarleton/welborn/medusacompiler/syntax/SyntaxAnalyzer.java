@@ -24,9 +24,19 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import edu.tarleton.welborn.medusacompiler.Diagnostic;
+import edu.tarleton.welborn.medusacompiler.Diagnostics;
+import edu.tarleton.welborn.medusacompiler.lexical.InternPool;
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzerException;
 import edu.tarleton.welborn.medusacompiler.lexical.Token;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenBuffer;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenList;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenSource;
 import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -35,40 +45,51 @@ import java.util.List;
  */
 public class SyntaxAnalyzer {
     
-    private List<Token> tokenList;
+    private TokenSource tokenSource;
+    
+    // One token of lookahead, pulled from the token source as soon as the previous
+    // token is consumed.
     private Token currentToken;
     
-    private void consumeToken() throws SyntaxAnalyzerException {
-        if(tokenList.isEmpty()) {
-            throw new SyntaxAnalyzerException("Token expected, found EOF");
+    // Every ident and string value in the tree carries its id in this pool. If the
+    // token source didn't come with a pool, the names are interned here instead.
+    private final InternPool internPool;
+    private final boolean trustInternIds;
+    
+    // Where errors go while getProgramTree is collecting them
+    private Diagnostics diagnostics;
+    
+    private int internId(Token token) {
+        if(trustInternIds && token.getInternId() >= 0) {
+            return token.getInternId();
         }
-        tokenList.remove(0);
-        if(tokenList.isEmpty() == false) {
-            currentToken = tokenList.get(0);
+        return internPool.intern(token.getStringValue());
+    }
+    
+    private void consumeToken() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        if(currentToken.getTokenType() == TokenType.EOF) {
+            throw new SyntaxAnalyzerException("Token expected, found EOF",false);
         }
+        currentToken = tokenSource.nextToken();
     }
     
-    private void consumeToken(TokenType tokenType) throws SyntaxAnalyzerException {
+    private void consumeToken(TokenType tokenType) throws SyntaxAnalyzerException, LexicalAnalyzerException {
         if(currentToken.getTokenType() == tokenType) {
             consumeToken();
         } else {
-            throw new SyntaxAnalyzerException(tokenType + " expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn());
+            throw new SyntaxAnalyzerException(tokenType + " expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
         }
     }
     
     // program -> statements
-    private ProgramTree programTree() throws SyntaxAnalyzerException {
-        StatementsTree statements = statementsTree();
+    private ProgramTree programTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        StatementsTree statements = statementsTree(TokenType.EOF);
         
-        return new ProgramTree(statements);
+        return new ProgramTree(statements,internPool);
     }
     
-    // statements -> statement statements
-    // statements -> epsilon
-    private StatementsTree statementsTree() throws SyntaxAnalyzerException {
-        // If the next token is FIRST of statement, then the production is statements -> statement statements
-        // otherwise, the production is statements -> epsilon
-        switch(currentToken.getTokenType()) {
+    private boolean isFirstOfStatement(TokenType tokenType) {
+        switch(tokenType) {
             // statement -> declaration ;
             case INT_DECLARATION:
             case FLOAT_DECLARATION:
@@ -79,21 +100,99 @@ public class SyntaxAnalyzer {
             case IF:
             // statement -> forLoop ;
             case FOR:
-                break;
+                return true;
             default:
-                return null;
+                return false;
+        }
+    }
+    
+    // statements -> statement statements
+    // statements -> epsilon
+    // The chains in the grammar (statements, add, multiply, power and concat) are
+    // all parsed with a loop, and the right recursive tree is linked together from
+    // the back afterwards. That way a long program or expression doesn't recurse
+    // once per element and overflow the stack.
+    // The statements end at the given token, EOF or the } that closes a block
+    private StatementsTree statementsTree(TokenType end) throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        // While the next token is FIRST of statement, the production is statements -> statement statements
+        // otherwise, the production is statements -> epsilon
+        List<StatementTree> statementList = new ArrayList<>();
+        statementList(statementList,end);
+        return linkStatements(statementList);
+    }
+    
+    private void statementList(List<StatementTree> statementList, TokenType end) throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        if(diagnostics == null) {
+            while(isFirstOfStatement(currentToken.getTokenType())) {
+                statementList.add(statementTree());
+            }
+            return;
         }
-        StatementTree statement = statementTree();
-        StatementsTree statements = statementsTree();
         
-        return new StatementsTree(statement,statements);
+        // When collecting errors, a statement that doesn't parse is reported and
+        // skipped, and the statements carry on up to the end of the block. A token
+        // that can't start a statement is reported as the end that was expected
+        // there, just as it is when the statements stop at it.
+        while(currentToken.getTokenType() != TokenType.EOF && currentToken.getTokenType() != TokenType.RIGHT_CURLY_BRACKET) {
+            try {
+                if(!isFirstOfStatement(currentToken.getTokenType())) {
+                    throw new SyntaxAnalyzerException(end + " expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
+                }
+                statementList.add(statementTree());
+            } catch(SyntaxAnalyzerException err) {
+                diagnostics.report(Diagnostic.Phase.SYNTAX,err.getMessage(),currentToken.getLine(),currentToken.getColumn());
+                skipStatement();
+            }
+        }
+    }
+    
+    // Skips the rest of a statement that didn't parse: up to and including the
+    // next ; or the } that closes an if or for loop (and any else after it), or
+    // up to the } that closes the block the statement is in. Blocks on the way
+    // are skipped whole.
+    private void skipStatement() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        int depth = 0;
+        while(currentToken.getTokenType() != TokenType.EOF) {
+            switch(currentToken.getTokenType()) {
+                case SEMI_COLON:
+                    if(depth == 0) {
+                        consumeToken();
+                        return;
+                    }
+                    break;
+                case LEFT_CURLY_BRACKET:
+                    depth++;
+                    break;
+                case RIGHT_CURLY_BRACKET:
+                    if(depth == 0) {
+                        return;
+                    }
+                    consumeToken();
+                    depth--;
+                    if(depth == 0 && currentToken.getTokenType() != TokenType.ELSE) {
+                        return;
+                    }
+                    continue;
+            }
+            consumeToken();
+        }
+    }
+    
+    private static StatementsTree linkStatements(List<StatementTree> statementList) {
+        StatementsTree statements = null;
+        for(int i = statementList.size() - 1; i >= 0; i--) {
+            statements = new StatementsTree(statementList.get(i),statements);
+        }
+        return statements;
     }
     
     // statement -> declaration ;
     // statement -> assignment ;
     // statement -> ifStatement ;
     // statement -> forLoop ;
-    private StatementTree statementTree() throws SyntaxAnalyzerException {
+    // Every statement remembers where it starts, for reporting errors in it
+    private StatementTree statementTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        Token firstToken = currentToken;
         StatementTree statement = null;
         switch(currentToken.getTokenType()) {
             // statement -> declaration ;
@@ -102,29 +201,33 @@ public class SyntaxAnalyzer {
             case STRING_DECLARATION:
                 statement = declarationTree();
                 consumeToken(TokenType.SEMI_COLON);
-                return statement;
+                break;
                 
             // statement -> assignment ;
             case IDENT:
                 statement = assignmentTree();
                 consumeToken(TokenType.SEMI_COLON);
-                return statement;
+                break;
                 
             // statement -> ifStatement
             case IF:
-                return ifTree();
+                statement = ifTree();
+                break;
                 
             // statement -> forLoop
             case FOR:
-                return forLoopTree();
+                statement = forLoopTree();
+                break;
                 
             default:
-                throw new SyntaxAnalyzerException("Statement expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn());
+                throw new SyntaxAnalyzerException("Statement expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
         }
+        statement.setPosition(firstToken.getLine(),firstToken.getColumn());
+        return statement;
     }
     
     // declaration -> dataType ident optionalAssignment ;
-    private DeclarationTree declarationTree() throws SyntaxAnalyzerException {
+    private DeclarationTree declarationTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
         TokenType dataType = null;
         switch(currentToken.getTokenType()) {
             case INT_DECLARATION:
@@ -137,35 +240,37 @@ public class SyntaxAnalyzer {
                 dataType = TokenType.STRING_VALUE;
                 break;
             default:
-                throw new SyntaxAnalyzerException("DataType expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn());
+                throw new SyntaxAnalyzerException("DataType expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
         }
         consumeToken();
-        String ident = currentToken.getStringValue();
+        Token identToken = currentToken;
         consumeToken(TokenType.IDENT);
+        String ident = identToken.getStringValue();
+        int identId = internId(identToken);
         if(currentToken.getTokenType() == TokenType.ASSIGNMENT) {
             consumeToken();
             ExpressionTree expression = expressionTree();
-            return new DeclarationTree(dataType,ident,expression);
+            return new DeclarationTree(dataType,ident,identId,expression);
         } else {
-            return new DeclarationTree(dataType,ident);
+            return new DeclarationTree(dataType,ident,identId);
         }
     }
     
     // assignment -> ident = expression
-    private AssignmentTree assignmentTree() throws SyntaxAnalyzerException {
-        String ident = currentToken.getStringValue();
+    private AssignmentTree assignmentTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        Token identToken = currentToken;
         consumeToken(TokenType.IDENT);
         consumeToken(TokenType.ASSIGNMENT);
         ExpressionTree expression = expressionTree();
-        return new AssignmentTree(ident,expression);
+        return new AssignmentTree(identToken.getStringValue(),internId(identToken),expression);
     }
     
-    private ElseStatementOrNullTree elseStatementOrNullTree() throws SyntaxAnalyzerException {
+    private ElseStatementOrNullTree elseStatementOrNullTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
         if(currentToken.getTokenType() == TokenType.ELSE) {
             consumeToken();
             consumeToken(TokenType.LEFT_CURLY_BRACKET);
         
-            StatementsTree statements = statementsTree();
+            StatementsTree statements = statementsTree(TokenType.RIGHT_CURLY_BRACKET);
 
             consumeToken(TokenType.RIGHT_CURLY_BRACKET);
             
@@ -175,7 +280,7 @@ public class SyntaxAnalyzer {
         }
     }
     
-    private IfTree ifTree() throws SyntaxAnalyzerException {
+    private IfTree ifTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
         consumeToken(TokenType.IF);
         consumeToken(TokenType.LEFT_PARENTHESES);
         
@@ -184,7 +289,7 @@ public class SyntaxAnalyzer {
         consumeToken(TokenType.RIGHT_PARENTHESES);
         consumeToken(TokenType.LEFT_CURLY_BRACKET);
         
-        StatementsTree statements = statementsTree();
+        StatementsTree statements = statementsTree(TokenType.RIGHT_CURLY_BRACKET);
         
         consumeToken(TokenType.RIGHT_CURLY_BRACKET);
         
@@ -194,7 +299,7 @@ public class SyntaxAnalyzer {
     }
     
     // forLoop -> for ( forLoopVariable ; condition ; assignment ) { statements }
-    private ForLoopTree forLoopTree() throws SyntaxAnalyzerException {
+    private ForLoopTree forLoopTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
         consumeToken(TokenType.FOR);
         consumeToken(TokenType.LEFT_PARENTHESES);
         
@@ -211,7 +316,7 @@ public class SyntaxAnalyzer {
         consumeToken(TokenType.RIGHT_PARENTHESES);
         consumeToken(TokenType.LEFT_CURLY_BRACKET);
         
-        StatementsTree statements = statementsTree();
+        StatementsTree statements = statementsTree(TokenType.RIGHT_CURLY_BRACKET);
         
         consumeToken(TokenType.RIGHT_CURLY_BRACKET);
         
@@ -220,7 +325,7 @@ public class SyntaxAnalyzer {
     
     // forLoopVariable -> dataType ident = expression
     // forLoopVariable -> ident optionalAssignment
-    private ForLoopVariableTree forLoopVariableTree() throws SyntaxAnalyzerException {
+    private ForLoopVariableTree forLoopVariableTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
         if(currentToken.getTokenType() == TokenType.INT_DECLARATION || currentToken.getTokenType() == TokenType.FLOAT_DECLARATION || currentToken.getTokenType() == TokenType.STRING_DECLARATION) {
             TokenType dataType = null;
             switch(currentToken.getTokenType()) {
@@ -235,24 +340,25 @@ public class SyntaxAnalyzer {
                     break;
             }
             consumeToken();
-            String ident = currentToken.getStringValue();
+            Token identToken = currentToken;
             consumeToken(TokenType.IDENT);
             consumeToken(TokenType.ASSIGNMENT);
             ExpressionTree expression = expressionTree();
-            return new ForLoopVariableTree(dataType,ident,expression);
+            return new ForLoopVariableTree(dataType,identToken.getStringValue(),internId(identToken),expression);
         } else if(currentToken.getTokenType() == TokenType.IDENT) {
             String ident = currentToken.getStringValue();
+            int identId = internId(currentToken);
             consumeToken();
             OptionalAssignmentTree optionalAssignment = optionalAssignmentTree();
-            return new ForLoopVariableTree(ident,optionalAssignment);
+            return new ForLoopVariableTree(ident,identId,optionalAssignment);
         } else {
-            throw new SyntaxAnalyzerException("Ident or DataType expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn());
+            throw new SyntaxAnalyzerException("Ident or DataType expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
         }
     }
     
     // optionalAssignment -> = expression
     // optionalAssignment -> epsilon
-    private OptionalAssignmentTree optionalAssignmentTree() throws SyntaxAnalyzerException {
+    private OptionalAssignmentTree optionalAssignmentTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
         if(currentToken.getTokenType() == TokenType.ASSIGNMENT) {
             consumeToken();
             ExpressionTree expression = expressionTree();
@@ -263,7 +369,7 @@ public class SyntaxAnalyzer {
     }
     
     // condition -> expression conditionalOperator expression
-    private ConditionTree conditionTree() throws SyntaxAnalyzerException {
+    private ConditionTree conditionTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
         ExpressionTree expression1 = expressionTree();
         switch(currentToken.getTokenType()) {
             case LESS_THAN:
@@ -274,7 +380,7 @@ public class SyntaxAnalyzer {
             case NOT_EQUAL:
                 break;
             default:
-                throw new SyntaxAnalyzerException("Conditional operator expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn());
+                throw new SyntaxAnalyzerException("Conditional operator expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
         }
         TokenType conditionalOperator = currentToken.getTokenType();
         consumeToken();
@@ -283,14 +389,14 @@ public class SyntaxAnalyzer {
     }
     
     // expression -> term add
-    private ExpressionTree expressionTree() throws SyntaxAnalyzerException {
+    private ExpressionTree expressionTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
         TermTree term = termTree();
         AddTree add = addTree();
         return new ExpressionTree(term,add);
     }
     
     // term -> factor multiply
-    private TermTree termTree() throws SyntaxAnalyzerException {
+    private TermTree termTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
         FactorTree factorTree = factorTree();
         MultiplyTree multiplyTree = multiplyTree();
         return new TermTree(factorTree,multiplyTree);
@@ -299,20 +405,27 @@ public class SyntaxAnalyzer {
     // add -> + term add
     // add -> - term add
     // add -> epsilon
-    private AddTree addTree() throws SyntaxAnalyzerException {
-        if(currentToken.getTokenType() == TokenType.PLUS || currentToken.getTokenType() == TokenType.MINUS) {
-            TokenType operator = currentToken.getTokenType();
-            consumeToken();
-            TermTree termTree = termTree();
-            AddTree addTree = addTree();
-            return new AddTree(operator,termTree,addTree);
-        } else {
+    private AddTree addTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        if(currentToken.getTokenType() != TokenType.PLUS && currentToken.getTokenType() != TokenType.MINUS) {
             return null;
         }
+        List<TokenType> operators = new ArrayList<>();
+        List<TermTree> termTrees = new ArrayList<>();
+        while(currentToken.getTokenType() == TokenType.PLUS || currentToken.getTokenType() == TokenType.MINUS) {
+            operators.add(currentToken.getTokenType());
+            consumeToken();
+            termTrees.add(termTree());
+        }
+        
+        AddTree addTree = null;
+        for(int i = termTrees.size() - 1; i >= 0; i--) {
+            addTree = new AddTree(operators.get(i),termTrees.get(i),addTree);
+        }
+        return addTree;
     }
     
     // factor -> exp power
-    private FactorTree factorTree() throws SyntaxAnalyzerException {
+    private FactorTree factorTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
         ExpTree expTree = expTree();
         PowerTree powerTree = powerTree();
         return new FactorTree(expTree,powerTree);
@@ -320,35 +433,48 @@ public class SyntaxAnalyzer {
     
     // power -> ^ exp power
     // power -> epsilon
-    private PowerTree powerTree() throws SyntaxAnalyzerException {
-        if(currentToken.getTokenType() == TokenType.POWER) {
-            consumeToken();
-            ExpTree expTree = expTree();
-            PowerTree powerTree = powerTree();
-            return new PowerTree(expTree,powerTree);
-        } else {
+    private PowerTree powerTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        if(currentToken.getTokenType() != TokenType.POWER) {
             return null;
         }
+        List<ExpTree> expTrees = new ArrayList<>();
+        while(currentToken.getTokenType() == TokenType.POWER) {
+            consumeToken();
+            expTrees.add(expTree());
+        }
+        
+        PowerTree powerTree = null;
+        for(int i = expTrees.size() - 1; i >= 0; i--) {
+            powerTree = new PowerTree(expTrees.get(i),powerTree);
+        }
+        return powerTree;
     }
     
     // multiply -> * factor multiply
     // multiply -> / factor multiply
     // multiply -> % factor multiply
     // multiply -> epsilon
-    private MultiplyTree multiplyTree() throws SyntaxAnalyzerException {
-        if(currentToken.getTokenType() == TokenType.MULTIPLY || currentToken.getTokenType() == TokenType.DIVIDE || currentToken.getTokenType() == TokenType.MODULO) {
-            TokenType operator = currentToken.getTokenType();
-            consumeToken();
-            FactorTree factorTree = factorTree();
-            MultiplyTree multiplyTree = multiplyTree();
-            return new MultiplyTree(operator,factorTree,multiplyTree);
-        } else {
+    private MultiplyTree multiplyTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        if(currentToken.getTokenType() != TokenType.MULTIPLY && currentToken.getTokenType() != TokenType.DIVIDE && currentToken.getTokenType() != TokenType.MODULO) {
             return null;
         }
+        List<TokenType> operators = new ArrayList<>();
+        List<FactorTree> factorTrees = new ArrayList<>();
+        while(currentToken.getTokenType() == TokenType.MULTIPLY || currentToken.getTokenType() == TokenType.DIVIDE || currentToken.getTokenType() == TokenType.MODULO) {
+            operators.add(currentToken.getTokenType());
+            consumeToken();
+            factorTrees.add(factorTree());
+        }
+        
+        MultiplyTree multiplyTree = null;
+        for(int i = factorTrees.size() - 1; i >= 0; i--) {
+            multiplyTree = new MultiplyTree(operators.get(i),factorTrees.get(i),multiplyTree);
+        }
+        return multiplyTree;
     }
     
     // exp -> atom concat
-    private ExpTree expTree() throws SyntaxAnalyzerException {
+    private ExpTree expTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
         AtomTree atomTree = atomTree();
         ConcatTree concatTree = concatTree();
         return new ExpTree(atomTree,concatTree);
@@ -356,20 +482,26 @@ public class SyntaxAnalyzer {
     
     // concat -> .. atom concat
     // concat -> epsilon
-    private ConcatTree concatTree() throws SyntaxAnalyzerException {
-        if(currentToken.getTokenType() == TokenType.CONCATENATE) {
-            consumeToken();
-            AtomTree atomTree = atomTree();
-            ConcatTree concatTree = concatTree();
-            return new ConcatTree(atomTree,concatTree);
-        } else {
+    private ConcatTree concatTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        if(currentToken.getTokenType() != TokenType.CONCATENATE) {
             return null;
         }
+        List<AtomTree> atomTrees = new ArrayList<>();
+        while(currentToken.getTokenType() == TokenType.CONCATENATE) {
+            consumeToken();
+            atomTrees.add(atomTree());
+        }
+        
+        ConcatTree concatTree = null;
+        for(int i = atomTrees.size() - 1; i >= 0; i--) {
+            concatTree = new ConcatTree(atomTrees.get(i),concatTree);
+        }
+        return concatTree;
     }
     
     // atom -> unaryOperator atomValue
     // atom -> atomValue
-    private AtomTree atomTree() throws SyntaxAnalyzerException {
+    private AtomTree atomTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
         TokenType operator = null;
         if(currentToken.getTokenType() == TokenType.UNARY_FLOAT_CONVERSION || currentToken.getTokenType() == TokenType.UNARY_INT_CONVERSION || currentToken.getTokenType() == TokenType.UNARY_STRING_CONVERSION) {
             operator = currentToken.getTokenType();
@@ -379,7 +511,7 @@ public class SyntaxAnalyzer {
         AtomValue atomValue;
         switch(currentToken.getTokenType()) {
             case IDENT:
-                atomValue = new AtomValue(currentToken.getTokenType(),currentToken.getStringValue(),true);
+                atomValue = new AtomValue(currentToken.getTokenType(),currentToken.getStringValue(),internId(currentToken),true);
                 consumeToken();
                 break;
             case INT_VALUE:
@@ -391,7 +523,7 @@ public class SyntaxAnalyzer {
                 consumeToken();
                 break;
             case STRING_VALUE:
-                atomValue = new AtomValue(currentToken.getTokenType(),currentToken.getStringValue());
+                atomValue = new AtomValue(currentToken.getTokenType(),currentToken.getStringValue(),internId(currentToken));
                 consumeToken();
                 break;
             case LEFT_PARENTHESES:
@@ -400,7 +532,7 @@ public class SyntaxAnalyzer {
                 consumeToken(TokenType.RIGHT_PARENTHESES);
                 break;
             default:
-                throw new SyntaxAnalyzerException("AtomValue expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn());
+                throw new SyntaxAnalyzerException("AtomValue expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
         }
         
         if(operator != null) {
@@ -421,22 +553,476 @@ public class SyntaxAnalyzer {
     // For further semantic analysis and code generation, we need to know the datatype,
     // so the semantic analyzer will check if the declared variable exists, and if it
     // does, then it will give the datatype to the AST.
-    public ProgramTree getProgramTree() throws SyntaxAnalyzerException, SemanticAnalyzerException {
+    public ProgramTree getProgramTree() throws SyntaxAnalyzerException, SemanticAnalyzerException, LexicalAnalyzerException {
+        ProgramTree programTree = parseProgramTree();
+        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(programTree);
+        semanticAnalyzer.checkSemantics();
+        return storeSymbols(programTree,semanticAnalyzer);
+    }
+    
+    // The same as getProgramTree, but the semantic checks run in parallel, with
+    // SemanticAnalyzer.DEFAULT_STATEMENTS_PER_TASK top level statements type checked
+    // per task. Any error is the one getProgramTree would throw.
+    public ProgramTree getProgramTreeCheckedInParallel() throws SyntaxAnalyzerException, SemanticAnalyzerException, LexicalAnalyzerException {
+        ProgramTree programTree = parseProgramTree();
+        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(programTree);
+        semanticAnalyzer.checkSemanticsInParallel();
+        return storeSymbols(programTree,semanticAnalyzer);
+    }
+    
+    // The same, with the given number of top level statements per task
+    public ProgramTree getProgramTreeCheckedInParallel(int statementsPerTask) throws SyntaxAnalyzerException, SemanticAnalyzerException, LexicalAnalyzerException {
+        ProgramTree programTree = parseProgramTree();
+        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(programTree);
+        semanticAnalyzer.checkSemanticsInParallel(statementsPerTask);
+        return storeSymbols(programTree,semanticAnalyzer);
+    }
+    
+    // Parses and checks the whole program like getProgramTree, but every error is
+    // reported to the diagnostics instead of stopping at the first. Lexical errors
+    // are collected too when the tokens come straight from a LexicalAnalyzer.
+    // Semantic checks only run on a program that parsed cleanly, since a program
+    // missing statements would only turn up errors that aren't really there.
+    // Returns null if any errors were found.
+    public ProgramTree getProgramTree(Diagnostics diagnostics) throws SyntaxAnalyzerException, SemanticAnalyzerException, LexicalAnalyzerException {
+        int errorCount = diagnostics.size();
+        if(tokenSource instanceof LexicalAnalyzer) {
+            ((LexicalAnalyzer) tokenSource).setDiagnostics(diagnostics);
+        }
+        this.diagnostics = diagnostics;
+        try {
+            currentToken = tokenSource.nextToken();
+            List<StatementTree> statementList = new ArrayList<>();
+            statementList(statementList,TokenType.EOF);
+            // Only a stray } can stop the statements before the end
+            while(currentToken.getTokenType() != TokenType.EOF) {
+                diagnostics.report(Diagnostic.Phase.SYNTAX,"EOF expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),currentToken.getLine(),currentToken.getColumn());
+                consumeToken();
+                statementList(statementList,TokenType.EOF);
+            }
+            ProgramTree programTree = new ProgramTree(linkStatements(statementList),internPool);
+            if(diagnostics.size() > errorCount) {
+                return null;
+            }
+            
+            SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(programTree);
+            semanticAnalyzer.setDiagnostics(diagnostics);
+            semanticAnalyzer.checkSemantics();
+            if(diagnostics.size() > errorCount) {
+                return null;
+            }
+            return storeSymbols(programTree,semanticAnalyzer);
+        } finally {
+            this.diagnostics = null;
+        }
+    }
+    
+    private ProgramTree parseProgramTree() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        currentToken = tokenSource.nextToken();
         ProgramTree programTree = programTree();
-        if(tokenList.isEmpty() == false) {
-            throw new SyntaxAnalyzerException("EOF expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn());
+        if(currentToken.getTokenType() != TokenType.EOF) {
+            throw new SyntaxAnalyzerException("EOF expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
+        }
+        return programTree;
+    }
+    
+    private static ProgramTree storeSymbols(ProgramTree programTree, SemanticAnalyzer semanticAnalyzer) {
+        programTree.setSymbolTable(semanticAnalyzer.getSymbolTable());
+        programTree.setSymbolTypes(semanticAnalyzer.getSymbolTypes());
+        programTree.setSlotNames(semanticAnalyzer.getSlotNames());
+        programTree.setSlotTypes(semanticAnalyzer.getSlotTypes());
+        return programTree;
+    }
+
+    // The same grammar again, parsed straight into a FlatProgramTree. Expressions
+    // only get a node for each operator and operand, never for the levels of the
+    // grammar they pass through.
+    private FlatProgramTree flatTree;
+    
+    private static TokenType dataTypeOfDeclaration(TokenType declaration) {
+        switch(declaration) {
+            case INT_DECLARATION:
+                return TokenType.INT_VALUE;
+            case FLOAT_DECLARATION:
+                return TokenType.FLOAT_VALUE;
+            case STRING_DECLARATION:
+                return TokenType.STRING_VALUE;
+            default:
+                return null;
+        }
+    }
+    
+    // Links each statement to the next, returning the first one (or -1 for epsilon)
+    private int flatStatements() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        int first = -1;
+        int last = -1;
+        while(isFirstOfStatement(currentToken.getTokenType())) {
+            int statement = flatStatement();
+            if(last < 0) {
+                first = statement;
+            } else {
+                flatTree.setNextSibling(last,statement);
+            }
+            last = statement;
+        }
+        return first;
+    }
+    
+    // { statements }
+    private int flatBlock() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        consumeToken(TokenType.LEFT_CURLY_BRACKET);
+        int statements = flatStatements();
+        consumeToken(TokenType.RIGHT_CURLY_BRACKET);
+        return flatTree.addNode(SyntaxNodeKind.BLOCK,0,statements);
+    }
+    
+    private int flatStatement() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        int statement;
+        switch(currentToken.getTokenType()) {
+            case INT_DECLARATION:
+            case FLOAT_DECLARATION:
+            case STRING_DECLARATION:
+                statement = flatDeclaration();
+                consumeToken(TokenType.SEMI_COLON);
+                return statement;
+            case IDENT:
+                statement = flatAssignment();
+                consumeToken(TokenType.SEMI_COLON);
+                return statement;
+            case IF:
+                return flatIf();
+            case FOR:
+                return flatForLoop();
+            default:
+                throw new SyntaxAnalyzerException("Statement expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
+        }
+    }
+    
+    private int flatDeclaration() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        TokenType dataType = dataTypeOfDeclaration(currentToken.getTokenType());
+        consumeToken();
+        Token identToken = currentToken;
+        consumeToken(TokenType.IDENT);
+        int expression = -1;
+        if(currentToken.getTokenType() == TokenType.ASSIGNMENT) {
+            consumeToken();
+            expression = flatExpression();
+        }
+        int declaration = flatTree.addNode(SyntaxNodeKind.DECLARATION,internId(identToken),expression);
+        flatTree.setType(declaration,dataType);
+        return declaration;
+    }
+    
+    private int flatAssignment() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        Token identToken = currentToken;
+        consumeToken(TokenType.IDENT);
+        consumeToken(TokenType.ASSIGNMENT);
+        int expression = flatExpression();
+        return flatTree.addNode(SyntaxNodeKind.ASSIGNMENT,internId(identToken),expression);
+    }
+    
+    private int flatIf() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        consumeToken(TokenType.IF);
+        consumeToken(TokenType.LEFT_PARENTHESES);
+        int condition = flatCondition();
+        consumeToken(TokenType.RIGHT_PARENTHESES);
+        int block = flatBlock();
+        flatTree.setNextSibling(condition,block);
+        if(currentToken.getTokenType() == TokenType.ELSE) {
+            consumeToken();
+            flatTree.setNextSibling(block,flatBlock());
+        }
+        return flatTree.addNode(SyntaxNodeKind.IF,0,condition);
+    }
+    
+    private int flatForLoop() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        consumeToken(TokenType.FOR);
+        consumeToken(TokenType.LEFT_PARENTHESES);
+        int forLoopVariable = flatForLoopVariable();
+        consumeToken(TokenType.SEMI_COLON);
+        int condition = flatCondition();
+        consumeToken(TokenType.SEMI_COLON);
+        int assignment = flatAssignment();
+        consumeToken(TokenType.RIGHT_PARENTHESES);
+        int block = flatBlock();
+        flatTree.setNextSibling(forLoopVariable,condition);
+        flatTree.setNextSibling(condition,assignment);
+        flatTree.setNextSibling(assignment,block);
+        return flatTree.addNode(SyntaxNodeKind.FOR,0,forLoopVariable);
+    }
+    
+    private int flatForLoopVariable() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        TokenType dataType = dataTypeOfDeclaration(currentToken.getTokenType());
+        if(dataType != null) {
+            consumeToken();
+            Token identToken = currentToken;
+            consumeToken(TokenType.IDENT);
+            consumeToken(TokenType.ASSIGNMENT);
+            int expression = flatExpression();
+            int forLoopVariable = flatTree.addNode(SyntaxNodeKind.FOR_VARIABLE_DECLARATION,internId(identToken),expression);
+            flatTree.setType(forLoopVariable,dataType);
+            return forLoopVariable;
+        } else if(currentToken.getTokenType() == TokenType.IDENT) {
+            int identId = internId(currentToken);
+            consumeToken();
+            int expression = -1;
+            if(currentToken.getTokenType() == TokenType.ASSIGNMENT) {
+                consumeToken();
+                expression = flatExpression();
+            }
+            return flatTree.addNode(SyntaxNodeKind.FOR_VARIABLE,identId,expression);
+        } else {
+            throw new SyntaxAnalyzerException("Ident or DataType expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
+        }
+    }
+    
+    private int flatCondition() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        int expression1 = flatExpression();
+        switch(currentToken.getTokenType()) {
+            case LESS_THAN:
+            case GREATER_THAN:
+            case LESS_THAN_OR_EQUAL:
+            case GREATER_THAN_OR_EQUAL:
+            case EQUAL:
+            case NOT_EQUAL:
+                break;
+            default:
+                throw new SyntaxAnalyzerException("Conditional operator expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
+        }
+        TokenType conditionalOperator = currentToken.getTokenType();
+        consumeToken();
+        int expression2 = flatExpression();
+        flatTree.setNextSibling(expression1,expression2);
+        return flatTree.addNode(SyntaxNodeKind.CONDITION,conditionalOperator,expression1);
+    }
+    
+    private int flatBinary(TokenType operator, int left, int right) {
+        flatTree.setNextSibling(left,right);
+        return flatTree.addNode(SyntaxNodeKind.BINARY,operator,left);
+    }
+    
+    private static boolean isBinaryOperator(TokenType tokenType) {
+        switch(tokenType) {
+            case PLUS:
+            case MINUS:
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULO:
+            case POWER:
+            case CONCATENATE:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    // The operands and operators still waiting for their right hand side. They're
+    // shared by every expression, each one using the part of the stacks above
+    // where it started, so parentheses just stack on top.
+    private int[] operandStack = new int[16];
+    private int operandCount = 0;
+    private TokenType[] operatorStack = new TokenType[16];
+    private int operatorCount = 0;
+    
+    private void pushOperand(int operand) {
+        if(operandCount == operandStack.length) {
+            operandStack = Arrays.copyOf(operandStack,operandCount * 2);
+        }
+        operandStack[operandCount++] = operand;
+    }
+    
+    private void pushOperator(TokenType operator) {
+        if(operatorCount == operatorStack.length) {
+            operatorStack = Arrays.copyOf(operatorStack,operatorCount * 2);
+        }
+        operatorStack[operatorCount++] = operator;
+    }
+    
+    // Joins the top two operands with the top operator
+    private void reduce() {
+        int right = operandStack[--operandCount];
+        int left = operandStack[--operandCount];
+        pushOperand(flatBinary(operatorStack[--operatorCount],left,right));
+    }
+    
+    // Parses an expression by precedence climbing rather than descending through
+    // term, factor and exp for every operand. From loosest to tightest the levels
+    // are + and -, then *, / and %, then ^, then .., which is the same tree the
+    // grammar gives: every level leans left except ^, which leans right. An
+    // operator waits on the stack until one that binds no tighter comes along
+    // (or, for ^, one that binds looser), so long chains of any operator don't
+    // recurse.
+    private int flatExpression() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        int operatorBase = operatorCount;
+        pushOperand(flatAtom());
+        while(isBinaryOperator(currentToken.getTokenType())) {
+            TokenType operator = currentToken.getTokenType();
+            int precedence = FlatProgramTree.getPrecedence(operator);
+            consumeToken();
+            while(operatorCount > operatorBase) {
+                int stackedPrecedence = FlatProgramTree.getPrecedence(operatorStack[operatorCount - 1]);
+                if(stackedPrecedence > precedence || (stackedPrecedence == precedence && operator != TokenType.POWER)) {
+                    reduce();
+                } else {
+                    break;
+                }
+            }
+            pushOperator(operator);
+            pushOperand(flatAtom());
+        }
+        while(operatorCount > operatorBase) {
+            reduce();
+        }
+        return operandStack[--operandCount];
+    }
+    
+    private int flatAtom() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        TokenType operator = null;
+        if(currentToken.getTokenType() == TokenType.UNARY_FLOAT_CONVERSION || currentToken.getTokenType() == TokenType.UNARY_INT_CONVERSION || currentToken.getTokenType() == TokenType.UNARY_STRING_CONVERSION) {
+            operator = currentToken.getTokenType();
+            consumeToken();
         }
         
-        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(programTree);
+        int atom;
+        switch(currentToken.getTokenType()) {
+            case IDENT:
+                atom = flatTree.addNode(SyntaxNodeKind.IDENT,internId(currentToken),-1);
+                consumeToken();
+                break;
+            case INT_VALUE:
+                atom = flatTree.addNode(SyntaxNodeKind.INT_VALUE,currentToken.getIntValue(),-1);
+                consumeToken();
+                break;
+            case FLOAT_VALUE:
+                atom = flatTree.addFloatValue(currentToken.getFloatValue());
+                consumeToken();
+                break;
+            case STRING_VALUE:
+                atom = flatTree.addNode(SyntaxNodeKind.STRING_VALUE,internId(currentToken),-1);
+                consumeToken();
+                break;
+            case LEFT_PARENTHESES:
+                consumeToken();
+                atom = flatTree.addNode(SyntaxNodeKind.PARENTHESES,0,flatExpression());
+                consumeToken(TokenType.RIGHT_PARENTHESES);
+                break;
+            default:
+                throw new SyntaxAnalyzerException("AtomValue expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
+        }
+        
+        if(operator != null) {
+            return flatTree.addNode(SyntaxNodeKind.CONVERSION,operator,atom);
+        } else {
+            return atom;
+        }
+    }
+    
+    // Parses the whole program into a FlatProgramTree and checks it, exactly like
+    // getProgramTree does for the ProgramTree
+    public FlatProgramTree getFlatProgramTree() throws SyntaxAnalyzerException, SemanticAnalyzerException, LexicalAnalyzerException {
+        return getFlatProgramTree(new FlatProgramTree(internPool));
+    }
+    
+    // Parses into a tree that's already there, emptying it first, so its arrays can
+    // be reused between compilations. The tree has to share our intern pool.
+    public FlatProgramTree getFlatProgramTree(FlatProgramTree programTree) throws SyntaxAnalyzerException, SemanticAnalyzerException, LexicalAnalyzerException {
+        if(programTree.getInternPool() != internPool) {
+            throw new IllegalArgumentException("The tree must share the intern pool of the tokens");
+        }
+        currentToken = tokenSource.nextToken();
+        flatTree = programTree;
+        flatTree.clear();
+        operandCount = 0;
+        operatorCount = 0;
+        int statements = flatStatements();
+        flatTree.setRoot(flatTree.addNode(SyntaxNodeKind.PROGRAM,0,statements));
+        if(currentToken.getTokenType() != TokenType.EOF) {
+            throw new SyntaxAnalyzerException("EOF expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
+        }
+        
+        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(flatTree);
         semanticAnalyzer.checkSemantics();
-        programTree.setSymbolTable(semanticAnalyzer.getSymbolTable());
+        flatTree.setSymbolTypes(semanticAnalyzer.getSymbolTypes());
+        flatTree.setSlotNames(semanticAnalyzer.getSlotNames());
+        flatTree.setSlotTypes(semanticAnalyzer.getSlotTypes());
         
+        flatTree = null;
         return programTree;
     }
-
+    
+    // Parses the program one statement at a time, for compiling in one pass. Every
+    // statement is parsed into the same FlatProgramTree, which is emptied first,
+    // so only the statement being compiled is ever held in memory.
+    public FlatProgramTree beginFlatStatements() throws LexicalAnalyzerException {
+        currentToken = tokenSource.nextToken();
+        flatTree = new FlatProgramTree(internPool);
+        operandCount = 0;
+        operatorCount = 0;
+        return flatTree;
+    }
+    
+    // The next statement, or -1 once the whole program has been parsed
+    public int nextFlatStatement() throws SyntaxAnalyzerException, LexicalAnalyzerException {
+        flatTree.clear();
+        if(isFirstOfStatement(currentToken.getTokenType())) {
+            return flatStatement();
+        }
+        if(currentToken.getTokenType() != TokenType.EOF) {
+            throw new SyntaxAnalyzerException("EOF expected, found " + currentToken.getTokenType() + " at line " + currentToken.getLine() + ", column " + currentToken.getColumn(),false);
+        }
+        return -1;
+    }
+    
+    // Walks the list with a cursor, so parsing stays linear in the number of tokens
+    // (whatever kind of list it is) and the caller's list is left intact to be
+    // parsed again. A list that doesn't know where its input ended puts EOF at its
+    // last token.
+    private static TokenSource listTokenSource(List<Token> tokenList, InternPool internPool) {
+        return new TokenSource() {
+            private final Iterator<Token> cursor = tokenList.iterator();
+            private Token lastToken = new Token(TokenType.EOF,0,0);
+            
+            @Override
+            public Token nextToken() {
+                if(!cursor.hasNext()) {
+                    if(tokenList instanceof TokenList && ((TokenList) tokenList).getEndLine() > 0) {
+                        return new Token(TokenType.EOF,((TokenList) tokenList).getEndLine(),((TokenList) tokenList).getEndColumn());
+                    }
+                    return new Token(TokenType.EOF,lastToken.getLine(),lastToken.getColumn());
+                }
+                lastToken = cursor.next();
+                return lastToken;
+            }
+            
+            @Override
+            public InternPool getInternPool() {
+                return internPool;
+            }
+        };
+    }
+    
+    // There's no telling which pool lexed a bare list of tokens, so every name is
+    // interned again by its string
     public SyntaxAnalyzer(List<Token> tokenList) {
-        this.tokenList = tokenList;
-        this.currentToken = tokenList.get(0);
+        this(listTokenSource(tokenList,null));
+    }
+    
+    // The tokens must have been lexed with the given pool
+    public SyntaxAnalyzer(List<Token> tokenList, InternPool internPool) {
+        this(listTokenSource(tokenList,internPool));
+    }
+    
+    // Tokens are lexed on demand, so lexing and parsing overlap and only the
+    // lookahead token is ever held in memory
+    public SyntaxAnalyzer(TokenSource tokenSource) {
+        this.tokenSource = tokenSource;
+        this.trustInternIds = tokenSource.getInternPool() != null;
+        this.internPool = trustInternIds ? tokenSource.getInternPool() : new InternPool();
+    }
+    
+    // Tokens are read straight out of the buffer's columns as they're consumed
+    public SyntaxAnalyzer(TokenBuffer tokenBuffer) {
+        this(tokenBuffer.tokenSource());
     }
     
 }
@@ -45,4 +45,17 @@ public class SyntaxAnalyzerException extends Exception {
     public SyntaxAnalyzerException(String msg) {
         super(msg);
     }
+
+    /**
+     * Constructs an instance of <code>SyntaxAnalyzerException</code> with the
+     * specified detail message, filling in the stack trace only if asked to.
+     * The parser leaves it out, since where in the parser the error was found
+     * says nothing about the program being parsed.
+     *
+     * @param msg the detail message.
+     * @param writableStackTrace whether the stack trace should be filled in.
+     */
+    public SyntaxAnalyzerException(String msg, boolean writableStackTrace) {
+        super(msg,null,false,writableStackTrace);
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.syntax;
+
+/**
+ * The kinds of node in a FlatProgramTree. Next to each kind is what its payload
+ * holds and what its children are, in order.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public enum SyntaxNodeKind {
+    PROGRAM, // *children: statements*
+    BLOCK, // *children: statements, for the body of an if, else or for loop*
+    DECLARATION, // *payload: ident id, type: data type, children: optional expression*
+    ASSIGNMENT, // *payload: ident id, children: expression*
+    IF, // *children: condition, block, optional else block*
+    FOR, // *children: for loop variable, condition, assignment, block*
+    FOR_VARIABLE_DECLARATION, // *payload: ident id, type: data type, children: expression*
+    FOR_VARIABLE, // *payload: ident id, children: optional expression*
+    CONDITION, // *payload: conditional operator, children: two expressions*
+    BINARY, // *payload: operator, children: left and right expressions*
+    CONVERSION, // *payload: unary conversion operator, children: expression*
+    PARENTHESES, // *children: expression*
+    INT_VALUE, // *payload: the value*
+    FLOAT_VALUE, // *payload: index of the value*
+    STRING_VALUE, // *payload: intern id of the value*
+    IDENT // *payload: intern id of the name*
+}
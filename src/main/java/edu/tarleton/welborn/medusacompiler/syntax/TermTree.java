@@ -24,6 +24,9 @@
 
 package edu.tarleton.welborn.medusacompiler.syntax;
 
+import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import java.io.PrintWriter;
+
 /**
  *
  * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
@@ -32,6 +35,8 @@ public class TermTree extends AbstractSyntaxTree {
 
     private FactorTree factor;
     private MultiplyTree multiply;
+    // The data type of this term, filled in by the SemanticAnalyzer
+    private TokenType dataType;
 
     public TermTree(FactorTree factor, MultiplyTree multiply) {
         this.factor = factor;
@@ -46,17 +51,25 @@ public class TermTree extends AbstractSyntaxTree {
         return multiply;
     }
 
+    public TokenType getDataType() {
+        return dataType;
+    }
+
+    public void setDataType(TokenType dataType) {
+        this.dataType = dataType;
+    }
+
     /*@Override
     public ExpressionValue visitNode() {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }*/
 
     @Override
-    public void printTree(int level) {
-        super.printClassIndented("TermTree",level);
-        factor.printTree(level+1);
+    public void printTree(PrintWriter out, int level) {
+        super.printClassIndented(out,"TermTree",level);
+        factor.printTree(out,level+1);
         if(multiply != null) {
-            multiply.printTree(level+1);
+            multiply.printTree(out,level+1);
         }
     }
 
@@ -23,20 +23,57 @@
  */
 package edu.tarleton.welborn.medusacompiler;
 
+import edu.tarleton.welborn.medusacompiler.benchmark.ProgramGenerator;
+import edu.tarleton.welborn.medusacompiler.compiler.CompilerContext;
+import edu.tarleton.welborn.medusacompiler.compiler.ConstantFolder;
+import edu.tarleton.welborn.medusacompiler.compiler.CopyPropagator;
+import edu.tarleton.welborn.medusacompiler.compiler.OperandKind;
+import edu.tarleton.welborn.medusacompiler.compiler.OperandPool;
+import edu.tarleton.welborn.medusacompiler.compiler.PackedCode;
 import edu.tarleton.welborn.medusacompiler.compiler.ThreeAddressCode;
+import edu.tarleton.welborn.medusacompiler.compiler.ThreeAddressCodeOperator;
+import edu.tarleton.welborn.medusacompiler.lexical.IncrementalLexer;
+import edu.tarleton.welborn.medusacompiler.lexical.InternPool;
 import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
 import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzerException;
 import edu.tarleton.welborn.medusacompiler.lexical.Token;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenBuffer;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenEdit;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import edu.tarleton.welborn.medusacompiler.syntax.AssignmentTree;
+import edu.tarleton.welborn.medusacompiler.syntax.AtomTree;
+import edu.tarleton.welborn.medusacompiler.syntax.DeclarationTree;
+import edu.tarleton.welborn.medusacompiler.syntax.FlatProgramTree;
 import edu.tarleton.welborn.medusacompiler.syntax.ProgramTree;
+import edu.tarleton.welborn.medusacompiler.syntax.StatementsTree;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxNodeKind;
 import edu.tarleton.welborn.medusacompiler.syntax.SemanticAnalyzerException;
 import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzer;
 import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzerException;
+import edu.tarleton.welborn.medusacompiler.syntax.TermTree;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -65,6 +102,31 @@ public class MainTest {
         }
     }
     
+    private List<String> compileMedusaFileStreaming(String fileName) throws IOException,LexicalAnalyzerException,SyntaxAnalyzerException,SemanticAnalyzerException {
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(fileName),Charset.forName("US-ASCII"))) {
+            SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(new LexicalAnalyzer(reader));
+            ProgramTree programTree = syntaxAnalyzer.getProgramTree();
+            List<String> code = new ArrayList<>();
+            for(ThreeAddressCode TAC : edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromProgramTree(programTree)) {
+                code.add(TAC.toString());
+            }
+            return code;
+        }
+    }
+    
+    private List<String> compileMedusaFile(String fileName) throws IOException,LexicalAnalyzerException,SyntaxAnalyzerException,SemanticAnalyzerException {
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(fileName),Charset.forName("US-ASCII"))) {
+            List<Token> tokens = LexicalAnalyzer.parseBufferedReader(reader);
+            SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(tokens);
+            ProgramTree programTree = syntaxAnalyzer.getProgramTree();
+            List<String> code = new ArrayList<>();
+            for(ThreeAddressCode TAC : edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromProgramTree(programTree)) {
+                code.add(TAC.toString());
+            }
+            return code;
+        }
+    }
+    
     @org.junit.jupiter.api.Test
     public void testVariableDeclaration() throws Exception {
         testMedusaFile("src/test/java/edu/tarleton/welborn/medusacompiler/TestCases/variableDeclaration.med");
@@ -170,4 +232,933 @@ public class MainTest {
             fail("SyntaxAnalyzerException expected");
         } catch(LexicalAnalyzerException err) {}
     }
+    
+    @org.junit.jupiter.api.Test
+    public void testStreamingTokenSource() throws Exception {
+        // Lexing on demand has to produce exactly the same program as lexing up front
+        String[] fileNames = {"variableDeclaration","ifStatement","forLoop","stringConcatenation","floatStringConversion",
+            "floatIntConversion","intStringConversion","simpleExpression","concatenateWithConversion","concatenateWithConversion2"};
+        for(String fileName : fileNames) {
+            String path = "src/test/java/edu/tarleton/welborn/medusacompiler/TestCases/"+fileName+".med";
+            assertEquals(compileMedusaFile(path),compileMedusaFileStreaming(path),fileName);
+        }
+    }
+    
+    private static String parseError(SyntaxAnalyzer syntaxAnalyzer) throws Exception {
+        try {
+            syntaxAnalyzer.getProgramTree();
+            fail("Expected a SyntaxAnalyzerException");
+            return null;
+        } catch(SyntaxAnalyzerException err) {
+            return err.getMessage();
+        }
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testErrorAtEof() throws Exception {
+        // EOF sits where the input really ended, whichever way the tokens reach the parser
+        String source = "int a = (1 + 2\n\n";
+        String expected = parseError(new SyntaxAnalyzer(new LexicalAnalyzer(ByteBuffer.wrap(source.getBytes()))));
+        assertTrue(expected.endsWith("found EOF at line 3, column 0"),expected);
+        assertEquals(expected,parseError(new SyntaxAnalyzer(LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap(source.getBytes())))));
+        TokenBuffer tokenBuffer = LexicalAnalyzer.parseByteBufferToTokenBuffer(ByteBuffer.wrap(source.getBytes()));
+        assertEquals(expected,parseError(new SyntaxAnalyzer(tokenBuffer)));
+        assertEquals(expected,parseError(new SyntaxAnalyzer(tokenBuffer.toList())));
+        assertEquals(expected,parseError(new SyntaxAnalyzer(LexicalAnalyzer.parseByteBufferToTokenBufferInParallel(ByteBuffer.wrap(source.getBytes()),4))));
+        assertEquals("SyntaxAnalyzerException: "+expected,compileWith(new MedusaCompiler(),source));
+    }
+    
+    // Returns either the tokens or the lexer's error message
+    private Object lexWithReader(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path,Charset.forName("US-ASCII"))) {
+            return LexicalAnalyzer.parseBufferedReader(reader);
+        } catch(LexicalAnalyzerException err) {
+            return err.getMessage();
+        }
+    }
+    
+    private Object lexMappedFile(Path path) throws IOException {
+        try {
+            return LexicalAnalyzer.parsePath(path);
+        } catch(LexicalAnalyzerException err) {
+            return err.getMessage();
+        }
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testMappedLexerMatchesReaderLexer() throws Exception {
+        // Every test case, including the broken ones, has to lex to the same tokens (or the same error)
+        // whether it's read line by line or scanned straight out of a mapped file
+        try (Stream<Path> paths = Files.walk(Paths.get("src/test/java/edu/tarleton/welborn/medusacompiler/TestCases"))) {
+            for(Path path : (Iterable<Path>) paths.filter(path -> path.toString().endsWith(".med"))::iterator) {
+                assertEquals(lexWithReader(path),lexMappedFile(path),path.toString());
+            }
+        }
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testKeywordsMatchWholeWords() throws Exception {
+        // Keywords are only recognized when they make up the whole word, and type
+        // conversions only when the parentheses hold exactly a data type
+        List<Token> tokens = LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap("format = (iffy) + (int) elsewhere;".getBytes("US-ASCII")));
+        List<TokenType> tokenTypes = new ArrayList<>();
+        for(Token token : tokens) {
+            tokenTypes.add(token.getTokenType());
+        }
+        assertEquals(List.of(TokenType.IDENT,TokenType.ASSIGNMENT,TokenType.LEFT_PARENTHESES,TokenType.IDENT,TokenType.RIGHT_PARENTHESES,
+                TokenType.PLUS,TokenType.UNARY_INT_CONVERSION,TokenType.IDENT,TokenType.SEMI_COLON),tokenTypes);
+        assertEquals("format",tokens.get(0).getStringValue());
+        assertEquals("iffy",tokens.get(3).getStringValue());
+        assertEquals(10,tokens.get(3).getColumn());
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testTokenBuffer() throws Exception {
+        // The compact buffer has to hold exactly the tokens of the list, and the parser
+        // has to build the same program from it
+        String[] fileNames = {"variableDeclaration","forLoop","floatStringConversion","simpleExpression","concatenateWithConversion2"};
+        for(String fileName : fileNames) {
+            Path path = Path.of("src/test/java/edu/tarleton/welborn/medusacompiler/TestCases/"+fileName+".med");
+            TokenBuffer tokenBuffer = LexicalAnalyzer.parsePathToTokenBuffer(path);
+            assertEquals(LexicalAnalyzer.parsePath(path),tokenBuffer.toList(),fileName);
+            
+            List<String> code = new ArrayList<>();
+            for(ThreeAddressCode TAC : edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromProgramTree(new SyntaxAnalyzer(tokenBuffer).getProgramTree())) {
+                code.add(TAC.toString());
+            }
+            assertEquals(compileMedusaFile(path.toString()),code,fileName);
+        }
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testInternPool() throws Exception {
+        // Every copy of a name gets the same id and shares one String, and strings
+        // with the same text as an ident share its id too
+        ByteBuffer source = ByteBuffer.wrap("string abc = \"abc\"; abc = abc + \"xyz\"; int xyz = 1;".getBytes());
+        InternPool internPool = new InternPool();
+        List<Token> tokens = LexicalAnalyzer.parseByteBuffer(source,internPool);
+        Token declared = tokens.get(1);
+        Token literal = tokens.get(3);
+        Token assigned = tokens.get(5);
+        Token referenced = tokens.get(7);
+        Token declaredLater = tokens.get(12);
+        assertEquals(TokenType.IDENT,declared.getTokenType());
+        assertEquals(declared.getInternId(),assigned.getInternId());
+        assertEquals(declared.getInternId(),referenced.getInternId());
+        assertEquals(declared.getInternId(),literal.getInternId());
+        assertSame(declared.getStringValue(),referenced.getStringValue());
+        assertEquals(tokens.get(9).getInternId(),declaredLater.getInternId());
+        assertNotEquals(declared.getInternId(),declaredLater.getInternId());
+        assertEquals(2,internPool.size());
+        assertEquals("xyz",internPool.getString(declaredLater.getInternId()));
+        
+        // The parser has to resolve variables by id, whichever pool the ids came from
+        ProgramTree programTree = new SyntaxAnalyzer(tokens,internPool).getProgramTree();
+        assertEquals(TokenType.STRING_VALUE,programTree.getSymbolTypes()[declared.getInternId()]);
+        assertEquals(TokenType.INT_VALUE,programTree.getSymbolTypes()[declaredLater.getInternId()]);
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testParallelLexerMatchesSequentialLexer() throws Exception {
+        // Tiny chunks put boundaries inside the generated block comments, so those
+        // chunks have to be lexed again with the right state
+        ByteBuffer source = ByteBuffer.wrap(ProgramGenerator.generate(50).getBytes());
+        TokenBuffer expected = LexicalAnalyzer.parseByteBufferToTokenBuffer(source);
+        for(int chunkSize : new int[] {7,64,1000,LexicalAnalyzer.DEFAULT_CHUNK_SIZE}) {
+            TokenBuffer tokens = LexicalAnalyzer.parseByteBufferToTokenBufferInParallel(source,chunkSize);
+            assertEquals(expected.toList(),tokens.toList(),"chunk size "+chunkSize);
+            for(int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getInternId(i),tokens.getInternId(i),"chunk size "+chunkSize);
+            }
+        }
+        
+        // Errors have to report the same line as the sequential lexer
+        ByteBuffer badSource = ByteBuffer.wrap((ProgramGenerator.generate(5)+"int x = 1 # 2;\n"+ProgramGenerator.generate(5)).getBytes());
+        String expectedError = null;
+        try {
+            LexicalAnalyzer.parseByteBufferToTokenBuffer(badSource);
+            fail("Expected a LexicalAnalyzerException");
+        } catch(LexicalAnalyzerException err) {
+            expectedError = err.getMessage();
+        }
+        try {
+            LexicalAnalyzer.parseByteBufferToTokenBufferInParallel(badSource,16);
+            fail("Expected a LexicalAnalyzerException");
+        } catch(LexicalAnalyzerException err) {
+            assertEquals(expectedError,err.getMessage());
+        }
+    }
+    
+    private static List<Token> lexString(String text) throws LexicalAnalyzerException {
+        return LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap(text.getBytes()));
+    }
+    
+    private static String replaceLines(String text, int firstLine, int lastLine, String replacement) {
+        List<String> lines = new ArrayList<>(List.of(text.split("\n",-1)));
+        lines.subList(firstLine - 1,lastLine).clear();
+        if(!replacement.isEmpty()) {
+            lines.addAll(firstLine - 1,List.of(replacement.split("\n",-1)));
+        }
+        return String.join("\n",lines);
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testIncrementalLexer() throws Exception {
+        String text = "int a = 1;\nfloat b = 2.5;\nstring c = \"x\";\na = a + 1;\nb = b * 2.0;";
+        IncrementalLexer lexer = new IncrementalLexer(text);
+        assertEquals(lexString(text),lexer.getTokens());
+        
+        // Each edit has to leave exactly the tokens that lexing the new text from
+        // scratch would give
+        int[][] ranges = {{2,2},{2,1},{3,4},{1,1},{6,6},{2,3},{1,0}};
+        String[] replacements = {
+            "float b = 3.5; /* opens a comment",
+            "int inserted = 7;",
+            "still in the comment\nstill */ int d = 4;",
+            "/* int a",
+            "a = 2;",
+            "",
+            "*/ int z = 0;"
+        };
+        for(int i = 0; i < ranges.length; i++) {
+            int oldSize = lexer.getTokens().size();
+            TokenEdit edit = lexer.edit(ranges[i][0],ranges[i][1],replacements[i]);
+            text = replaceLines(text,ranges[i][0],ranges[i][1],replacements[i]);
+            assertEquals(lexString(text),lexer.getTokens(),"edit "+i);
+            assertEquals(oldSize - (edit.getOldEnd() - edit.getStart()) + (edit.getNewEnd() - edit.getStart()),edit.getTokens().size(),"edit "+i);
+        }
+        
+        // An edit that can't change any other line only re-lexes its own line
+        TokenEdit edit = lexer.edit(lexer.getLineCount(),lexer.getLineCount(),"b = 1.0;");
+        assertEquals(lexer.getTokens().size() - 4,edit.getStart());
+        assertEquals(lexer.getTokens().size(),edit.getNewEnd());
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testParsingLeavesTokenListIntact() throws Exception {
+        // The same list has to parse twice into the same code
+        Path path = Path.of("src/test/java/edu/tarleton/welborn/medusacompiler/TestCases/forLoop.med");
+        List<Token> tokens = LexicalAnalyzer.parsePath(path);
+        List<Token> original = new ArrayList<>(tokens);
+        List<String> firstParse = new ArrayList<>();
+        for(ThreeAddressCode TAC : edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromProgramTree(new SyntaxAnalyzer(tokens).getProgramTree())) {
+            firstParse.add(TAC.toString());
+        }
+        assertEquals(original,tokens);
+        
+        List<String> secondParse = new ArrayList<>();
+        for(ThreeAddressCode TAC : edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromProgramTree(new SyntaxAnalyzer(tokens).getProgramTree())) {
+            secondParse.add(TAC.toString());
+        }
+        assertEquals(firstParse,secondParse);
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testMillionStatementProgram() throws Exception {
+        // Statement lists and operator chains are walked with loops, so a huge
+        // program compiles on the default stack
+        int statementCount = 1_000_000;
+        StringBuilder program = new StringBuilder(statementCount * 12);
+        program.append("int a = 0;\n");
+        for(int i = 1; i < statementCount; i++) {
+            program.append("a = a + 1;\n");
+        }
+        program.append("a = 1");
+        for(int i = 0; i < 100_000; i++) {
+            program.append(" + 1");
+        }
+        program.append(";\n");
+        
+        SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(new LexicalAnalyzer(ByteBuffer.wrap(program.toString().getBytes())));
+        List<ThreeAddressCode> code = edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromProgramTree(syntaxAnalyzer.getProgramTree());
+        
+        // 1 instruction for the declaration, 2 per increment, then 1 per addition and 1 for the final assign
+        assertEquals(1 + 2 * (statementCount - 1) + 100_000 + 1,code.size());
+    }
+    
+    // Compiles the source through either tree, returning the code or the error
+    private static String compileSource(String source, boolean flat) {
+        try {
+            SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap(source.getBytes())));
+            List<ThreeAddressCode> code;
+            if(flat) {
+                FlatProgramTree flatProgramTree = syntaxAnalyzer.getFlatProgramTree();
+                code = edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromFlatProgramTree(flatProgramTree);
+            } else {
+                ProgramTree programTree = syntaxAnalyzer.getProgramTree();
+                code = edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromProgramTree(programTree);
+            }
+            return code.toString();
+        } catch(Exception err) {
+            return err.getClass().getSimpleName()+": "+err.getMessage();
+        }
+    }
+    
+    private static String compileSourceInOnePass(String source) {
+        try {
+            SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap(source.getBytes())));
+            return edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeInOnePass(syntaxAnalyzer).toString();
+        } catch(Exception err) {
+            return err.getClass().getSimpleName()+": "+err.getMessage();
+        }
+    }
+    
+    private static String compileSourceCheckedInParallel(String source, int statementsPerTask) {
+        try {
+            SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap(source.getBytes())));
+            ProgramTree programTree = syntaxAnalyzer.getProgramTreeCheckedInParallel(statementsPerTask);
+            return edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromProgramTree(programTree).toString();
+        } catch(Exception err) {
+            return err.getClass().getSimpleName()+": "+err.getMessage();
+        }
+    }
+    
+    // Every test case, a generated program, and some awkward programs of our own,
+    // for checking that the ways of compiling agree
+    private static List<String> sampleSources() throws IOException {
+        List<String> sources = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(Paths.get("src/test/java/edu/tarleton/welborn/medusacompiler/TestCases"))) {
+            for(Path path : (Iterable<Path>) paths.filter(path -> path.toString().endsWith(".med"))::iterator) {
+                sources.add(Files.readString(path));
+            }
+        }
+        sources.add(ProgramGenerator.generate(50));
+        sources.add("int a = 2 ^ 3 ^ 2 * 4 / 2 % 3 + 1 - 2 + (3 - 1) * 2 ^ 2;\n"
+                + "float b = 1.5 * 2.0 ^ 2.0 ^ 1.0 - 0.5 + (float) a * (float) (a);\n"
+                + "string c = \"x\" .. \"y\" .. (string) a .. (string) b .. \"z\";\n"
+                + "for(int i = 0; i < 10 ^ 2 ^ 1; i = i + 1 + 1 - 1) { a = a * 2 * 3 * 4; }\n"
+                + "for(a = 1; a < 3; a = a + 1) { }\n"
+                + "if(c == \"q\" .. \"r\") { c = c .. c .. c; } else { b = b ^ 2.0 ^ 3.0; }\n"
+                + "if(a > 1) { } else { }\n");
+        sources.add("int a = 1 + 2.0 + 3;");
+        sources.add("float a = 1.0 ^ 2 ^ 3.0;");
+        sources.add("int a = 1 + 2 * 3.0 + \"x\";");
+        sources.add("string s = \"a\" .. q .. 1;");
+        sources.add("int a; int a;");
+        sources.add("for(i = 0; i < 1; i = i + 1) { }");
+        
+        // Long chains mixing every precedence level
+        StringBuilder mixed = new StringBuilder("int b = 2; int a = 1");
+        StringBuilder concatenated = new StringBuilder("int b = 2; string s = \"a\"");
+        for(int i = 0; i < 5_000; i++) {
+            mixed.append(" ^ 2 ^ (3 - b) * 4 - 5 % 6 + (int) 7.5 / 8");
+            concatenated.append(" .. (string) b .. \"b\" .. (string) 1.5");
+        }
+        sources.add(mixed.append(";").toString());
+        sources.add(concatenated.append(";").toString());
+        return sources;
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testFlatProgramTreeMatchesProgramTree() throws Exception {
+        for(String source : sampleSources()) {
+            assertEquals(compileSource(source,false),compileSource(source,true),source);
+        }
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testOnePassMatchesProgramTree() throws Exception {
+        for(String source : sampleSources()) {
+            assertEquals(compileSource(source,false),compileSourceInOnePass(source),source);
+        }
+        
+        // A semantic error is found before a later syntax error
+        assertEquals("SyntaxAnalyzerException: EOF expected, found ; at line 1, column 19",compileSource("int a = 1.0; int b;;",false));
+        assertEquals("SemanticAnalyzerException: Variable a declared as intValue cannot be assigned to floatValue",compileSourceInOnePass("int a = 1.0; int b;;"));
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testResolvedTypes() throws Exception {
+        List<Token> tokens = lexString("int a = 1;\nfloat f = (float) (a + 1) * 2.0;\n");
+        ProgramTree programTree = new SyntaxAnalyzer(tokens).getProgramTree();
+        DeclarationTree declaration = (DeclarationTree) programTree.getStatements().getStatements().getStatement();
+        TermTree term = declaration.getOptionalExpression().getTerm();
+        AtomTree conversion = term.getFactor().getExp().getAtom();
+        assertEquals(TokenType.FLOAT_VALUE,declaration.getOptionalExpression().getDataType());
+        assertEquals(TokenType.FLOAT_VALUE,term.getDataType());
+        assertEquals(TokenType.FLOAT_VALUE,conversion.getDataType());
+        assertEquals(TokenType.INT_VALUE,conversion.getAtomValue().getDataType());
+        
+        // The type being converted from is the resolved one, even for parentheses,
+        // in both trees
+        for(boolean flat : new boolean[] {false,true}) {
+            assertTrue(compileSource("int a = 1; float f = (float) (a + 1);",flat).contains("INT_TO_FLOAT("));
+            assertEquals("SemanticAnalyzerException: Reference made to undeclared variable q",compileSource("string s = (string) q;",flat));
+        }
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testVariableSlots() throws Exception {
+        String source = "string s = \"x\";\nfloat f;\nint i = 2;\ni = i + 1;\n";
+        ProgramTree programTree = new SyntaxAnalyzer(lexString(source)).getProgramTree();
+        assertEquals(List.of("s","f","i"),List.of(programTree.getSlotNames()));
+        assertEquals(List.of(TokenType.STRING_VALUE,TokenType.FLOAT_VALUE,TokenType.INT_VALUE),List.of(programTree.getSlotTypes()));
+        
+        StatementsTree statements = programTree.getStatements();
+        assertEquals(0,((DeclarationTree) statements.getStatement()).getSlot());
+        assertEquals(1,((DeclarationTree) statements.getStatements().getStatement()).getSlot());
+        AssignmentTree assignment = (AssignmentTree) statements.getStatements().getStatements().getStatements().getStatement();
+        assertEquals(2,assignment.getSlot());
+        assertEquals(2,assignment.getExpression().getTerm().getFactor().getExp().getAtom().getAtomValue().getSlot());
+        
+        // The flat tree numbers its variables the same way
+        FlatProgramTree flatProgramTree = new SyntaxAnalyzer(lexString(source)).getFlatProgramTree();
+        assertEquals(List.of("s","f","i"),List.of(flatProgramTree.getSlotNames()));
+        for(int node = 0; node < flatProgramTree.size(); node++) {
+            if(flatProgramTree.getKind(node) == SyntaxNodeKind.IDENT || flatProgramTree.getKind(node) == SyntaxNodeKind.ASSIGNMENT) {
+                assertEquals(2,flatProgramTree.getSlot(node));
+            }
+        }
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testBlockScopes() throws Exception {
+        String source = "int a = 1;\n"
+                + "for(int i = 0; i < 3; i = i + 1) { int t = i; a = a + t; }\n"
+                + "if(a > 1) { string t = \"x\"; } else { float t = 1.0; float u = t; }\n"
+                + "int t = a;\n";
+        ProgramTree programTree = new SyntaxAnalyzer(lexString(source)).getProgramTree();
+        assertEquals(List.of("a","i","t","t","t","u","t"),List.of(programTree.getSlotNames()));
+        assertEquals(List.of("a","i","t","t","t","u","t"),List.of(new SyntaxAnalyzer(lexString(source)).getFlatProgramTree().getSlotNames()));
+        
+        // Only the variables declared outside any block are left in scope
+        assertEquals(2,programTree.getSymbolTable().size());
+        assertEquals(TokenType.INT_VALUE,programTree.getSymbolTable().get("t"));
+        
+        // Each slot is a variable of its own in the code, even where names repeat
+        String blocks = "if(1 < 2) { int a = 1; } else { float a = 1.5; }";
+        List<List<ThreeAddressCode>> codes = List.of(
+                edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromProgramTree(new SyntaxAnalyzer(lexString(blocks)).getProgramTree()),
+                edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromFlatProgramTree(new SyntaxAnalyzer(lexString(blocks)).getFlatProgramTree()));
+        for(List<ThreeAddressCode> code : codes) {
+            assertEquals("[_t0 = 1 < 2, JMP to label0 if _t0 is false, a = 1, JMP to label1, label0:, a = 1.5, label1:]",code.toString());
+            assertEquals(OperandPool.variable(0),code.get(2).getOperand1());
+            assertEquals(OperandPool.variable(1),code.get(5).getOperand1());
+            assertEquals(2,code.get(2).getPool().getVariableCount());
+        }
+        
+        for(boolean flat : new boolean[] {false,true}) {
+            assertEquals(compileSource(source,false),compileSource(source,true));
+            assertEquals("SemanticAnalyzerException: Reference made to undeclared variable i",compileSource(source+"i = 1;",flat));
+            assertEquals("SemanticAnalyzerException: Variable a cannot be declared twice!",compileSource("int a; if(1 < 2) { int a; }",flat));
+            assertEquals("SemanticAnalyzerException: Variable i cannot be declared twice!",compileSource("int i = 5; for(int i = 0; i < 3; i = i + 1) { } i = 2;",flat));
+            assertEquals("SemanticAnalyzerException: Variable s cannot be declared twice!",compileSource("string s = \"a\"; for(int s = 0; s < 3; s = s + 1) { } s = s .. \"b\";",flat));
+            assertEquals("SemanticAnalyzerException: Variable i cannot be declared twice!",compileSource("for(int i = 0; i < 3; i = i + 1) { for(int i = 0; i < 3; i = i + 1) { } }",flat));
+            assertTrue(compileSource("for(int i = 0; i < 3; i = i + 1) { } for(int i = 0; i < 3; i = i + 1) { }",flat).startsWith("["));
+            assertEquals("SemanticAnalyzerException: Variable s declared as stringValue cannot be assigned to intValue",compileSource("if(1 < 2) { } else { string s = 1; }",flat));
+        }
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testParallelSemanticsMatchesSequential() throws Exception {
+        for(String source : sampleSources()) {
+            assertEquals(compileSource(source,false),compileSourceCheckedInParallel(source,1),source);
+            assertEquals(compileSource(source,false),compileSourceCheckedInParallel(source,7),source);
+        }
+        
+        // The first error in the program is reported, whichever phase finds it
+        String[] sources = {
+            "int a = 1.0; b = 1;",
+            "int a = 1; a = \"x\"; int a;",
+            "int a = 1; if(a < 2) { int b = 1; } b = 2; a = 1.5;",
+            "int a = 1; float f = 1.0; for(i = 0; i < 1; i = i + 1) { } f = a;",
+            "int a = 1; a = (a + (a * 2.0)); for(int i = 0; i < q; i = i + 1) { }",
+            "int i = 5; for(int i = 0; i < 3; i = i + 1) { } i = 2.0;"
+        };
+        for(String source : sources) {
+            assertEquals(compileSource(source,false),compileSourceCheckedInParallel(source,1),source);
+        }
+        assertEquals("SemanticAnalyzerException: Variable a declared as intValue cannot be assigned to floatValue",compileSourceCheckedInParallel("int a = 1.0; b = 1;",1));
+        assertEquals("SemanticAnalyzerException: Variable i cannot be declared twice!",compileSourceCheckedInParallel("int i = 5; for(int i = 0; i < 3; i = i + 1) { } i = 2.0;",7));
+    }
+    
+    // Compiles the source collecting its errors, lexing straight from the bytes
+    private static List<String> collectErrors(String source) throws Exception {
+        Diagnostics diagnostics = new Diagnostics();
+        ProgramTree programTree = new SyntaxAnalyzer(new LexicalAnalyzer(ByteBuffer.wrap(source.getBytes()))).getProgramTree(diagnostics);
+        assertEquals(diagnostics.hasErrors(),programTree == null);
+        List<String> errors = new ArrayList<>();
+        for(Diagnostic diagnostic : diagnostics.getDiagnostics()) {
+            errors.add(diagnostic.toString());
+        }
+        return errors;
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testDiagnostics() throws Exception {
+        assertEquals(List.of(
+                "1:10: LEXICAL: Unrecogized token starting with $ at line 1, column 10",
+                "2:8: LEXICAL: Int value 99999999999 is too large, at line 2, column 8",
+                "3:11: LEXICAL: String value missing a closing quote symbol at line 3, column 11",
+                "4:0: SYNTAX: AtomValue expected, found EOF at line 4, column 0"),
+                collectErrors("int a = 1 $;\nint b = 99999999999;\nstring s = \"abc;\n"));
+        
+        assertEquals(List.of(
+                "1:8: SYNTAX: AtomValue expected, found ; at line 1, column 8",
+                "3:7: SYNTAX: AtomValue expected, found ) at line 3, column 7",
+                "4:6: SYNTAX: ; expected, found intValue at line 4, column 6",
+                "5:0: SYNTAX: EOF expected, found } at line 5, column 0"),
+                collectErrors("int a = ;\nint b = 2;\nif(b < ) { b = 1; } else { b = 2; }\nb = 3 3;\n}\nb = 4;\n"));
+        
+        // A stray token where a statement list ends reads the same as it does without diagnostics
+        assertEquals(List.of(
+                "2:0: SYNTAX: EOF expected, found intValue at line 2, column 0",
+                "3:19: SYNTAX: } expected, found intValue at line 3, column 19"),
+                collectErrors("int a = 1;\n5;\nif(a < 2) { a = 1; 5; }\n"));
+        assertEquals("SyntaxAnalyzerException: EOF expected, found intValue at line 2, column 0",compileSource("int a = 1;\n5;\n",false));
+        assertEquals("SyntaxAnalyzerException: } expected, found intValue at line 1, column 19",compileSource("if(1 < 2) { a = 1; 5; }\n",false));
+        
+        String source = "int a = 1.0;\n"
+                + "b = 2;\n"
+                + "int a;\n"
+                + "if(a < \"x\") { a = 2.0; }\n"
+                + "for(i = 0; i < 1; i = i + 1) { a = \"s\"; }\n"
+                + "a = a + 1;\n";
+        assertEquals(List.of(
+                "1:0: SEMANTIC: Variable a declared as intValue cannot be assigned to floatValue",
+                "2:0: SEMANTIC: Reference made to undeclared variable b",
+                "3:0: SEMANTIC: Variable a cannot be declared twice!",
+                "4:0: SEMANTIC: Both sides of condition must be the same data type, cannot compare intValue with stringValue",
+                "4:14: SEMANTIC: Variable a declared as intValue cannot be assigned to floatValue",
+                "5:0: SEMANTIC: Reference made to undeclared variable i",
+                "5:31: SEMANTIC: Variable a declared as intValue cannot be assigned to stringValue"),
+                collectErrors(source));
+        // The first error collected is the one thrown without diagnostics
+        assertEquals("SemanticAnalyzerException: Variable a declared as intValue cannot be assigned to floatValue",compileSource(source,false));
+        
+        // A clean program compiles the same either way, and a faulty one reports
+        // the error it would have thrown first
+        for(String sample : sampleSources()) {
+            Diagnostics diagnostics = new Diagnostics();
+            ProgramTree programTree = new SyntaxAnalyzer(new LexicalAnalyzer(ByteBuffer.wrap(sample.getBytes()))).getProgramTree(diagnostics);
+            if(programTree != null) {
+                assertEquals(compileSource(sample,false),edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromProgramTree(programTree).toString());
+            } else {
+                assertTrue(compileSource(sample,false).endsWith(diagnostics.getDiagnostics().get(0).getMessage()),sample);
+            }
+        }
+    }
+    
+    private static String compileWith(MedusaCompiler compiler, String source) {
+        try {
+            return compiler.compile(source).getCode().toString();
+        } catch(Exception err) {
+            return err.getClass().getSimpleName()+": "+err.getMessage();
+        }
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testMedusaCompiler() throws Exception {
+        MedusaCompiler codeOnly = new MedusaCompiler();
+        MedusaCompiler everything = new MedusaCompiler(MedusaCompiler.Output.values());
+        List<String> sources = sampleSources();
+        List<String> expected = new ArrayList<>();
+        for(String source : sources) {
+            expected.add(compileSource(source,false));
+            assertEquals(expected.get(expected.size() - 1),compileWith(codeOnly,source),source);
+            assertEquals(expected.get(expected.size() - 1),compileWith(everything,source),source);
+        }
+        
+        // Only what was asked for comes back, and the symbol table is the same from
+        // either pipeline
+        String source = "int a = 1; float b; if(a < 2) { string s; }";
+        CompilationResult result = everything.compile(source);
+        assertEquals(LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap(source.getBytes())),result.getTokens());
+        assertEquals(Map.of("a",TokenType.INT_VALUE,"b",TokenType.FLOAT_VALUE),result.getSymbolTable());
+        assertEquals(3,result.getProgramTree().getSlotNames().length);
+        CompilationResult symbolsOnly = new MedusaCompiler(MedusaCompiler.Output.SYMBOL_TABLE).compile(source);
+        assertEquals(result.getSymbolTable(),symbolsOnly.getSymbolTable());
+        assertEquals(null,symbolsOnly.getCode());
+        assertEquals(null,symbolsOnly.getTokens());
+        assertEquals(null,new MedusaCompiler(MedusaCompiler.Output.TOKENS).compile("int a = q;").getSymbolTable());
+        
+        // A failed compilation leaves the workspace fit for the next one, and a
+        // result isn't disturbed by the compilations after it
+        List<ThreeAddressCode> code = codeOnly.compile(source).getCode();
+        String codeText = code.toString();
+        assertEquals("SemanticAnalyzerException: Reference made to undeclared variable q",compileWith(codeOnly,"int a = q;"));
+        codeOnly.compile(sources.get(0));
+        assertEquals(codeText,code.toString());
+        assertEquals(codeText,compileWith(codeOnly,source));
+        
+        // Many threads sharing one compiler
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for(int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    List<String> actual = new ArrayList<>();
+                    for(String sample : sources) {
+                        actual.add(compileWith(codeOnly,sample));
+                    }
+                    return actual;
+                }));
+            }
+            for(Future<List<String>> future : futures) {
+                assertEquals(expected,future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testCommandLine() throws Exception {
+        Path directory = Files.createTempDirectory("medusa");
+        Path sources = Files.createDirectories(directory.resolve("src/nested"));
+        Path output = directory.resolve("out");
+        Files.writeString(directory.resolve("src/a.med"),"int a = 1; a = a + 2;");
+        Files.writeString(sources.resolve("a.med"),"float f = 1.5;");
+        Files.writeString(directory.resolve("src/notes.txt"),"not a program");
+        
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        assertEquals(0,Main.run(new String[] {"-o",output.toString(),"--dump-tokens",directory.resolve("src").toString()},new PrintStream(stdout),new PrintStream(stderr)));
+        assertEquals("",stdout.toString());
+        assertEquals(compileSource("int a = 1; a = a + 2;",false),"["+String.join(", ",Files.readAllLines(output.resolve("a.tac")))+"]");
+        assertEquals(compileSource("float f = 1.5;",false),"["+String.join(", ",Files.readAllLines(output.resolve("nested/a.tac")))+"]");
+        assertTrue(Files.readString(output.resolve("nested/a.tokens")).startsWith("floatDeclaration at line 1, column 0"));
+        assertTrue(Files.notExists(output.resolve("notes.tac")));
+        
+        // Symbols to standard out, with a bad program reported and skipped
+        Files.writeString(directory.resolve("bad.med"),"int a = q;");
+        stdout.reset();
+        assertEquals(1,Main.run(new String[] {"--format","symbols",directory.resolve("bad.med").toString(),directory.resolve("src/a.med").toString()},new PrintStream(stdout),new PrintStream(stderr)));
+        assertEquals("== "+directory.resolve("src/a.med")+" =="+System.lineSeparator()+"a: intValue"+System.lineSeparator(),stdout.toString());
+        assertTrue(stderr.toString().contains("bad.med: Reference made to undeclared variable q"));
+        
+        assertEquals(2,Main.run(new String[] {"--format","xml","a.med"},new PrintStream(stdout),new PrintStream(stderr)));
+        assertEquals(2,Main.run(new String[] {},new PrintStream(stdout),new PrintStream(stderr)));
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testPackedCode() throws Exception {
+        for(String source : sampleSources()) {
+            List<ThreeAddressCode> code;
+            try {
+                SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap(source.getBytes())));
+                code = edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromFlatProgramTree(syntaxAnalyzer.getFlatProgramTree());
+            } catch(LexicalAnalyzerException | SyntaxAnalyzerException | SemanticAnalyzerException err) {
+                continue;
+            }
+            PackedCode packedCode = PackedCode.fromThreeAddressCode(code);
+            assertEquals(code.size(),packedCode.size());
+            assertEquals(code.toString(),packedCode.toThreeAddressCode().toString(),source);
+        }
+        
+        // _t0 = 1, a = _t0, _t1 = 1.5, _t2 = "s", JMP_IF_FALSE to label3 if _t1, label3:
+        List<ThreeAddressCode> code = new ArrayList<>();
+        code.add(new ThreeAddressCode("_t0",ThreeAddressCodeOperator.ASSIGN,"1"));
+        code.add(new ThreeAddressCode("a",ThreeAddressCodeOperator.ASSIGN,"_t0"));
+        code.add(new ThreeAddressCode("_t1",ThreeAddressCodeOperator.ASSIGN,"1.5"));
+        code.add(new ThreeAddressCode("_t2",ThreeAddressCodeOperator.ASSIGN,"\"s\""));
+        code.add(new ThreeAddressCode("label3",ThreeAddressCodeOperator.JMP_IF_FALSE,"_t1"));
+        code.add(new ThreeAddressCode("label3",ThreeAddressCodeOperator.LABEL));
+        PackedCode packedCode = PackedCode.fromThreeAddressCode(code);
+        assertEquals(OperandKind.TEMP,PackedCode.getOperandKind(packedCode.getOperand(0,1)));
+        assertEquals(0,PackedCode.getOperandIndex(packedCode.getOperand(0,1)));
+        assertEquals(OperandKind.INT_CONSTANT,PackedCode.getOperandKind(packedCode.getOperand(0,2)));
+        assertEquals(1,packedCode.getIntConstant(packedCode.getOperand(0,2)));
+        assertEquals(OperandKind.NONE,PackedCode.getOperandKind(packedCode.getOperand(0,3)));
+        assertEquals(OperandKind.VARIABLE,PackedCode.getOperandKind(packedCode.getOperand(1,1)));
+        assertEquals("a",packedCode.getVariableName(packedCode.getOperand(1,1)));
+        assertEquals(1.5,packedCode.getFloatConstant(packedCode.getOperand(2,2)));
+        assertEquals("s",packedCode.getStringConstant(packedCode.getOperand(3,2)));
+        assertEquals(PackedCode.label(3),packedCode.getOperand(4,1));
+        assertEquals(PackedCode.label(3),packedCode.getOperand(5,1));
+        assertEquals(ThreeAddressCodeOperator.LABEL,packedCode.getOperator(5));
+        
+        // Addresses that only look like temps, labels or constants stay names
+        code.clear();
+        code.add(new ThreeAddressCode("label1",ThreeAddressCodeOperator.ASSIGN,"007"));
+        code.add(new ThreeAddressCode("_t",ThreeAddressCodeOperator.ASSIGN,"_t01"));
+        code.add(new ThreeAddressCode("end",ThreeAddressCodeOperator.LABEL));
+        code.add(new ThreeAddressCode("x",ThreeAddressCodeOperator.ADD,"-0","1.50"));
+        code.add(new ThreeAddressCode("y",ThreeAddressCodeOperator.ASSIGN,"99999999999"));
+        packedCode = PackedCode.fromThreeAddressCode(code);
+        assertEquals(code.toString(),packedCode.toThreeAddressCode().toString());
+        assertEquals(OperandKind.VARIABLE,PackedCode.getOperandKind(packedCode.getOperand(0,1)));
+        assertEquals(OperandKind.VARIABLE,PackedCode.getOperandKind(packedCode.getOperand(0,2)));
+        assertEquals(OperandKind.VARIABLE,PackedCode.getOperandKind(packedCode.getOperand(2,1)));
+        assertEquals(OperandKind.VARIABLE,PackedCode.getOperandKind(packedCode.getOperand(3,3)));
+        
+        // Equal constants share one operand, and floats are told apart by their bits
+        OperandPool pool = new OperandPool();
+        for(int i = 0; i < 100; i++) {
+            pool.intConstant(i);
+            pool.floatConstant(i);
+        }
+        assertEquals(pool.intConstant(7),pool.intConstant(7));
+        assertEquals(7,pool.getIntConstant(pool.intConstant(7)));
+        assertNotEquals(pool.intConstant(7),pool.intConstant(8));
+        assertEquals(pool.floatConstant(1.5),pool.floatConstant(1.5));
+        assertEquals(pool.floatConstant(Double.NaN),pool.floatConstant(Double.NaN));
+        assertNotEquals(pool.floatConstant(0.0),pool.floatConstant(-0.0));
+        assertEquals(pool.stringConstant("s"),pool.stringConstant("s"));
+        assertEquals(pool.stringConstant(3,"t"),pool.stringConstant("t"));
+        assertEquals("t",pool.getStringConstant(pool.stringConstant("t")));
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testNumberedTempsAndLabels() throws Exception {
+        SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(lexString("int a = 1; if(a < 2) { a = 3; } else { a = 4; }"));
+        CompilerContext context = new CompilerContext();
+        List<ThreeAddressCode> code = edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromFlatProgramTree(syntaxAnalyzer.getFlatProgramTree(),context);
+        
+        // Temps and labels are each numbered from 0
+        assertEquals("[a = 1, _t0 = a < 2, JMP to label0 if _t0 is false, a = 3, JMP to label1, label0:, a = 4, label1:]",code.toString());
+        assertEquals(1,context.getTempCount());
+        assertEquals(2,context.getLabelCount());
+        
+        // and are kept as operands rather than names, as are variables, every use
+        // of a variable being the same operand
+        assertEquals(OperandKind.VARIABLE,PackedCode.getOperandKind(code.get(0).getOperand1()));
+        assertEquals(code.get(0).getOperand1(),code.get(1).getOperand2());
+        assertEquals(code.get(0).getOperand1(),code.get(6).getOperand1());
+        assertEquals(1,code.get(0).getPool().getVariableCount());
+        assertEquals(PackedCode.temp(0),code.get(1).getOperand1());
+        assertEquals(PackedCode.label(0),code.get(2).getOperand1());
+        assertEquals(PackedCode.temp(0),code.get(2).getOperand2());
+        assertEquals(PackedCode.label(1),code.get(7).getOperand1());
+        
+        // A cleared context numbers them from 0 again
+        context.clear();
+        code = edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromFlatProgramTree(new SyntaxAnalyzer(lexString("int b = (5);")).getFlatProgramTree(),context);
+        assertEquals("[_t0 = 5, b = _t0]",code.toString());
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testImmediateOperands() throws Exception {
+        // Literals are used in place, without a temp of their own
+        String source = "int a = 1; a = a + 1; float f = 1.5 * (float) 2; string s = \"x\" .. \"y\";";
+        assertEquals("[a = 1, _t0 = a ADD 1, a = _t0, _t1 = INT_TO_FLOAT(2), _t2 = 1.5 MUL _t1, f = _t2, _t3 = \"x\" CONCAT \"y\", s = _t3]",
+                compileSource(source,true));
+        assertEquals(compileSource(source,false),compileSource(source,true));
+        
+        SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(lexString(source));
+        List<ThreeAddressCode> code = edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromFlatProgramTree(syntaxAnalyzer.getFlatProgramTree());
+        
+        // The values are kept as they are, in the pool the code shares with the
+        // PackedCode made from it, and a string literal is numbered by its text
+        assertEquals(1,code.get(0).getPool().getIntConstant(code.get(0).getOperand2()));
+        assertEquals(code.get(0).getOperand2(),code.get(1).getOperand3());
+        assertEquals(1.5,code.get(0).getPool().getFloatConstant(code.get(4).getOperand2()));
+        PackedCode packedCode = PackedCode.fromThreeAddressCode(code);
+        assertSame(code.get(0).getPool(),packedCode.getPool());
+        assertEquals(code.get(6).getOperand3(),packedCode.getOperand(6,3));
+        code = edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromFlatProgramTree(new SyntaxAnalyzer(lexString("string s = \"x\" .. \"x\";")).getFlatProgramTree());
+        assertEquals(code.get(0).getOperand2(),code.get(0).getOperand3());
+        assertEquals(OperandKind.INT_CONSTANT,PackedCode.getOperandKind(packedCode.getOperand(0,2)));
+        assertEquals(OperandKind.INT_CONSTANT,PackedCode.getOperandKind(packedCode.getOperand(1,3)));
+        assertEquals(OperandKind.FLOAT_CONSTANT,PackedCode.getOperandKind(packedCode.getOperand(4,2)));
+        assertEquals(OperandKind.STRING_CONSTANT,PackedCode.getOperandKind(packedCode.getOperand(6,3)));
+        assertEquals("y",packedCode.getStringConstant(packedCode.getOperand(6,3)));
+    }
+    
+    private static String compileOptimized(String source, MedusaCompiler.Optimization... optimizations) throws Exception {
+        MedusaCompiler compiler = new MedusaCompiler(EnumSet.of(optimizations[0],optimizations),MedusaCompiler.Output.CODE);
+        return compiler.compile(source).getCode().toString();
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testConstantFolding() throws Exception {
+        String source = "int a = 2 ^ 3 ^ 2;\n"
+                + "float f = (float) 5 / 2.0;\n"
+                + "string s = \"a\" .. \"b\" .. (string) 1.5;\n"
+                + "if(1 < 2) { a = a + 1; } else { a = 10 / 0; }\n"
+                + "for(a = 0; a < 3; a = a + 1) { a = a * (2 + 3); }\n"
+                + "int b = (int) \"42\" % 5;\n";
+        assertEquals("[a = 512, f = 2.5, s = \"ab1.5\", _t8 = a ADD 1, a = _t8, JMP to label1, label0:, _t9 = 10 DIV 0, a = _t9, label1:, "
+                + "a = 0, _t10 = a < 3, JMP to label3 if _t10 is false, label2:, _t13 = a MUL 5, a = _t13, _t14 = a ADD 1, a = _t14, "
+                + "_t15 = a < 3, JMP to label2 if _t15 is true, label3:, b = 2]",
+                compileOptimized(source,MedusaCompiler.Optimization.CONSTANT_FOLDING));
+        
+        // Ints wrap around, a jump on a condition that always holds becomes a plain
+        // jump, and one that's never taken goes away
+        assertEquals("[a = -2147483648, a = a, label0:, a = a, JMP to label0, label1:, label2:]",
+                compileOptimized("int a = 2147483647 + 1; for(a = a; 1 == 1; a = a) { } if(\"x\" != \"y\") { }",MedusaCompiler.Optimization.CONSTANT_FOLDING));
+        
+        // Whatever would fail or has no literal is left to run
+        assertEquals("[_t0 = 2 POW -1, a = _t0]",ConstantFolder.foldConstants(List.of(new ThreeAddressCode("_t0",ThreeAddressCodeOperator.POW,"2","-1"),
+                new ThreeAddressCode("a",ThreeAddressCodeOperator.ASSIGN,"_t0"))).toString());
+        assertEquals("[_t0 = STRING_TO_INT(\"1x\"), i = _t0, _t1 = STRING_TO_FLOAT(\"1e999\"), g = _t1, "
+                + "_t2 = \"a\" < \"b\", JMP to label0 if _t2 is false, label0:, _t3 = 1.0E300 MUL 1.0E300, f = _t3]",
+                compileOptimized("int i = (int) \"1x\"; float g = (float) \"1e999\"; if(\"a\" < \"b\") { } float f = 1" + "0".repeat(300) + ".0 * 1" + "0".repeat(300) + ".0;",MedusaCompiler.Optimization.CONSTANT_FOLDING));
+        
+        // Folding every sample leaves nothing to fold a second time
+        for(String sample : sampleSources()) {
+            String code = compileSource(sample,true);
+            if(code.startsWith("[")) {
+                String folded = compileOptimized(sample,MedusaCompiler.Optimization.CONSTANT_FOLDING);
+                SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap(sample.getBytes())));
+                List<ThreeAddressCode> once = ConstantFolder.foldConstants(edu.tarleton.welborn.medusacompiler.compiler.Compiler.generateCodeFromFlatProgramTree(syntaxAnalyzer.getFlatProgramTree()));
+                assertEquals(folded,once.toString());
+                assertEquals(folded,ConstantFolder.foldConstants(once).toString());
+            }
+        }
+    }
+    
+    private static Object valueOf(Map<String,Object> values, String address) {
+        if(address.startsWith("\"")) {
+            return address.substring(1,address.length() - 1);
+        } else if(Character.isDigit(address.charAt(0)) || address.charAt(0) == '-') {
+            return address.contains(".") ? (Object) Double.parseDouble(address) : (Object) Integer.parseInt(address);
+        }
+        // The for loop variable's declaration isn't generated, so it starts at 0
+        return values.getOrDefault(address,0);
+    }
+    
+    private static Object arithmetic(ThreeAddressCodeOperator operator, Object a, Object b) {
+        if(a instanceof Integer && b instanceof Integer) {
+            int x = (Integer) a;
+            int y = (Integer) b;
+            switch(operator) {
+                case ADD: return x + y;
+                case SUB: return x - y;
+                case MUL: return x * y;
+                case DIV: return x / y;
+                case MOD: return x % y;
+                default:
+                    int result = 1;
+                    for(int i = 0; i < y; i++) {
+                        result *= x;
+                    }
+                    return result;
+            }
+        }
+        double x = ((Number) a).doubleValue();
+        double y = ((Number) b).doubleValue();
+        switch(operator) {
+            case ADD: return x + y;
+            case SUB: return x - y;
+            case MUL: return x * y;
+            case DIV: return x / y;
+            case MOD: return x % y;
+            default: return Math.pow(x,y);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static boolean compare(ThreeAddressCodeOperator operator, Object a, Object b) {
+        int comparison = a instanceof String ? ((String) a).compareTo((String) b) : Double.compare(((Number) a).doubleValue(),((Number) b).doubleValue());
+        switch(operator) {
+            case IS_GREATER_THAN: return comparison > 0;
+            case IS_LESS_THAN: return comparison < 0;
+            case IS_GREATER_THAN_OR_EQUAL: return comparison >= 0;
+            case IS_LESS_THAN_OR_EQUAL: return comparison <= 0;
+            case IS_EQUAL: return comparison == 0;
+            default: return comparison != 0;
+        }
+    }
+    
+    // Runs three address code, returning the variables it leaves behind, or the
+    // error it stops with
+    private static String runCode(List<ThreeAddressCode> code) {
+        Map<String,Integer> labels = new HashMap<>();
+        for(int i = 0; i < code.size(); i++) {
+            if(code.get(i).getOperator() == ThreeAddressCodeOperator.LABEL) {
+                labels.put(code.get(i).getAddress1(),i);
+            }
+        }
+        Map<String,Object> values = new HashMap<>();
+        try {
+            for(int i = 0, steps = 0; i < code.size() && steps < 1_000_000; i++, steps++) {
+                ThreeAddressCode instruction = code.get(i);
+                ThreeAddressCodeOperator operator = instruction.getOperator();
+                Object a = instruction.getAddress2() == null ? null : valueOf(values,instruction.getAddress2());
+                Object b = instruction.getAddress3() == null ? null : valueOf(values,instruction.getAddress3());
+                switch(operator) {
+                    case LABEL:
+                        continue;
+                    case JMP:
+                        i = labels.get(instruction.getAddress1());
+                        continue;
+                    case JMP_IF_TRUE:
+                    case JMP_IF_FALSE:
+                        if(((Integer) a != 0) == (operator == ThreeAddressCodeOperator.JMP_IF_TRUE)) {
+                            i = labels.get(instruction.getAddress1());
+                        }
+                        continue;
+                    case ASSIGN:
+                        break;
+                    case CONCAT:
+                        a = (String) a + (String) b;
+                        break;
+                    case CONVERT_INT_TO_FLOAT:
+                        a = (double) (Integer) a;
+                        break;
+                    case CONVERT_FLOAT_TO_INT:
+                        a = (int) (double) (Double) a;
+                        break;
+                    case CONVERT_INT_TO_STRING:
+                    case CONVERT_FLOAT_TO_STRING:
+                        a = String.valueOf(a);
+                        break;
+                    case CONVERT_STRING_TO_INT:
+                        a = Integer.parseInt((String) a);
+                        break;
+                    case CONVERT_STRING_TO_FLOAT:
+                        a = Double.parseDouble((String) a);
+                        break;
+                    case ADD:
+                    case SUB:
+                    case MUL:
+                    case DIV:
+                    case MOD:
+                    case POW:
+                        a = arithmetic(operator,a,b);
+                        break;
+                    default:
+                        a = compare(operator,a,b) ? 1 : 0;
+                        break;
+                }
+                values.put(instruction.getAddress1(),a);
+            }
+        } catch(RuntimeException err) {
+            return err.getClass().getSimpleName();
+        }
+        Map<String,Object> variables = new TreeMap<>(values);
+        variables.keySet().removeIf(name -> name.startsWith("_t"));
+        return variables.toString();
+    }
+    
+    @org.junit.jupiter.api.Test
+    public void testCopyPropagation() throws Exception {
+        String source = "int a = 1;\n"
+                + "int b = (a + 2) * (a);\n"
+                + "a = ((b));\n"
+                + "for(int i = 0; i < (b + 1); i = i + 1) { a = a - (i); }\n"
+                + "string s = \"x\";\n"
+                + "s = s .. (s);\n";
+        assertEquals("[a = 1, _t1 = a ADD 2, b = _t1 MUL a, a = b, _t7 = b ADD 1, _t8 = i < _t7, JMP to label1 if _t8 is false, label0:, "
+                + "a = a SUB i, i = i ADD 1, _t13 = b ADD 1, _t14 = i < _t13, JMP to label0 if _t14 is true, label1:, s = \"x\", s = s CONCAT s]",
+                compileOptimized(source,MedusaCompiler.Optimization.COPY_PROPAGATION));
+        
+        // A copy isn't propagated past an assignment to what it copies or a label
+        List<ThreeAddressCode> code = new ArrayList<>();
+        code.add(new ThreeAddressCode("_t0",ThreeAddressCodeOperator.ASSIGN,"a"));
+        code.add(new ThreeAddressCode("a",ThreeAddressCodeOperator.ASSIGN,"5"));
+        code.add(new ThreeAddressCode("_t1",ThreeAddressCodeOperator.ASSIGN,"b"));
+        code.add(new ThreeAddressCode("label0",ThreeAddressCodeOperator.LABEL));
+        code.add(new ThreeAddressCode("x",ThreeAddressCodeOperator.ADD,"_t0","_t1"));
+        assertEquals(code.toString(),CopyPropagator.propagateCopies(code).toString());
+        
+        // and a temp is only coalesced with a copy right after it
+        code.clear();
+        code.add(new ThreeAddressCode("_t0",ThreeAddressCodeOperator.ADD,"a","1"));
+        code.add(new ThreeAddressCode("b",ThreeAddressCodeOperator.ASSIGN,"a"));
+        code.add(new ThreeAddressCode("a",ThreeAddressCodeOperator.ASSIGN,"_t0"));
+        assertEquals(code.toString(),CopyPropagator.propagateCopies(code).toString());
+        
+        // Every sample leaves the same variables behind however it's optimized
+        for(String sample : sampleSources()) {
+            if(compileSource(sample,true).startsWith("[")) {
+                String expected = runCode(new MedusaCompiler().compile(sample).getCode());
+                for(MedusaCompiler.Optimization optimization : MedusaCompiler.Optimization.values()) {
+                    assertEquals(expected,runCode(new MedusaCompiler(EnumSet.of(optimization),MedusaCompiler.Output.CODE).compile(sample).getCode()),sample);
+                }
+                assertEquals(expected,runCode(new MedusaCompiler(EnumSet.allOf(MedusaCompiler.Optimization.class),MedusaCompiler.Output.CODE).compile(sample).getCode()),sample);
+            }
+        }
+    }
 }
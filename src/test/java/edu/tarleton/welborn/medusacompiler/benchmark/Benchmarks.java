@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Timing and memory measurements shared by the benchmarks.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+class Benchmarks {
+    
+    private static final int ROUNDS = 10;
+    
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    
+    interface Round {
+        void run() throws Exception;
+    }
+    
+    static long bestNanos(Round round) throws Exception {
+        return bestNanos(ROUNDS,round);
+    }
+    
+    // The best time of a few rounds after warming up with as many again
+    static long bestNanos(int rounds, Round round) throws Exception {
+        for(int i = 0; i < rounds; i++) {
+            round.run();
+        }
+        long best = Long.MAX_VALUE;
+        for(int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            round.run();
+            best = Math.min(best,System.nanoTime() - start);
+        }
+        return best;
+    }
+    
+    // The bytes this thread allocates over one round
+    static long allocatedBytes(Round round) throws Exception {
+        long bytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        round.run();
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - bytes;
+    }
+    
+    // The heap still in use once the garbage collector has settled
+    static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.benchmark;
+
+import edu.tarleton.welborn.medusacompiler.compiler.Compiler;
+import edu.tarleton.welborn.medusacompiler.compiler.OperandKind;
+import edu.tarleton.welborn.medusacompiler.compiler.PackedCode;
+import edu.tarleton.welborn.medusacompiler.compiler.ThreeAddressCode;
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reports how many bytes of heap each instruction of a generated program costs as a
+ * List of ThreeAddressCode versus PackedCode, and how long it takes to find every
+ * temp operand in each. Run it from the project directory after a test-compile:
+ *
+ *     java -cp target/classes:target/test-classes edu.tarleton.welborn.medusacompiler.benchmark.CodeFootprintBenchmark [blocks]
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class CodeFootprintBenchmark {
+    
+    private static int countTemps(List<ThreeAddressCode> code) {
+        int temps = 0;
+        for(ThreeAddressCode instruction : code) {
+            for(int operand : new int[] {instruction.getOperand1(),instruction.getOperand2(),instruction.getOperand3()}) {
+                if(PackedCode.getOperandKind(operand) == OperandKind.TEMP) {
+                    temps++;
+                }
+            }
+        }
+        return temps;
+    }
+    
+    private static int countTemps(PackedCode code) {
+        int temps = 0;
+        for(int i = 0; i < code.size(); i++) {
+            for(int address = 1; address <= 3; address++) {
+                if(PackedCode.getOperandKind(code.getOperand(i,address)) == OperandKind.TEMP) {
+                    temps++;
+                }
+            }
+        }
+        return temps;
+    }
+    
+    // Nanoseconds per instruction
+    private static double measure(Benchmarks.Round scan, int instructions) throws Exception {
+        return (double) Benchmarks.bestNanos(scan) / instructions;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int blocks = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        ByteBuffer source = ByteBuffer.wrap(ProgramGenerator.generate(blocks).getBytes(StandardCharsets.US_ASCII));
+        SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(LexicalAnalyzer.parseByteBufferToTokenBuffer(source));
+        
+        long before = Benchmarks.usedMemory();
+        List<ThreeAddressCode> code = Compiler.generateCodeFromFlatProgramTree(syntaxAnalyzer.getFlatProgramTree());
+        long listBytes = Benchmarks.usedMemory() - before;
+        int instructions = code.size();
+        
+        before = Benchmarks.usedMemory();
+        PackedCode packedCode = PackedCode.fromThreeAddressCode(code);
+        long packedBytes = Benchmarks.usedMemory() - before;
+        
+        double listScan = measure(() -> countTemps(code),instructions);
+        double packedScan = measure(() -> countTemps(packedCode),instructions);
+        double pack = measure(() -> PackedCode.fromThreeAddressCode(code),instructions);
+        double unpack = measure(() -> packedCode.toThreeAddressCode(),instructions);
+        
+        System.out.printf("%,d instructions, %,d temp operands%n",instructions,countTemps(packedCode));
+        System.out.printf("List<ThreeAddressCode> %,14d bytes %8.1f bytes/instruction %8.2f ns/instruction to find temps%n",
+                listBytes,(double) listBytes / instructions,listScan);
+        System.out.printf("PackedCode             %,14d bytes %8.1f bytes/instruction %8.2f ns/instruction to find temps (%.1f bytes/instruction excluding names and strings)%n",
+                packedBytes,(double) packedBytes / instructions,packedScan,(double) packedCode.getFootprintInBytes() / instructions);
+        System.out.printf("packing %.1f ns/instruction, unpacking %.1f ns/instruction%n",pack,unpack);
+    }
+    
+}
@@ -0,0 +1,72 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.benchmark;
+
+import edu.tarleton.welborn.medusacompiler.compiler.Compiler;
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
+import edu.tarleton.welborn.medusacompiler.lexical.Token;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Compares the throughput of compiling tokens into three address code through the
+ * ProgramTree, through the FlatProgramTree, and in one pass, along with the bytes
+ * each allocates per token. Run it from the project directory after a test-compile:
+ *
+ *     java -cp target/classes:target/test-classes edu.tarleton.welborn.medusacompiler.benchmark.CompileBenchmark
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class CompileBenchmark {
+    
+    private static final int BLOCKS = 2_000;
+    
+    private interface Pipeline {
+        void compile(List<Token> tokens) throws Exception;
+    }
+    
+    // The best time and the bytes allocated by one round, both per token
+    private static double[] measure(List<Token> tokens, Pipeline pipeline) throws Exception {
+        long best = Benchmarks.bestNanos(() -> pipeline.compile(tokens));
+        long allocated = Benchmarks.allocatedBytes(() -> pipeline.compile(tokens));
+        return new double[] {(double) best / tokens.size(),(double) allocated / tokens.size()};
+    }
+    
+    public static void main(String[] args) throws Exception {
+        List<Token> tokens = LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap(ProgramGenerator.generate(BLOCKS).getBytes(StandardCharsets.US_ASCII)));
+        double[] objects = measure(tokens,t -> Compiler.generateCodeFromProgramTree(new SyntaxAnalyzer(t).getProgramTree()));
+        double[] flat = measure(tokens,t -> Compiler.generateCodeFromFlatProgramTree(new SyntaxAnalyzer(t).getFlatProgramTree()));
+        double[] onePass = measure(tokens,t -> Compiler.generateCodeInOnePass(new SyntaxAnalyzer(t)));
+        
+        System.out.printf("%,d tokens%n",tokens.size());
+        System.out.printf("%12s %12s %18s%n","pipeline","ns/token","allocated/token");
+        System.out.printf("%12s %12.1f %18.1f%n","ProgramTree",objects[0],objects[1]);
+        System.out.printf("%12s %12.1f %18.1f%n","flat",flat[0],flat[1]);
+        System.out.printf("%12s %12.1f %18.1f%n","one pass",onePass[0],onePass[1]);
+    }
+    
+}
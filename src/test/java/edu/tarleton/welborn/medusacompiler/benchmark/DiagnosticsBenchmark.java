@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package edu.tarleton.welborn.medusacompiler.benchmark;
+
+import edu.tarleton.welborn.medusacompiler.Diagnostics;
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzer;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzerException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validates a corpus of faulty files, every one with a handful of lexical, syntax
+ * and semantic errors, by stopping at the first error in each file and by
+ * collecting every error in one pass. Also times throwing an exception with and
+ * without its stack trace from a few dozen frames down, about where the parser
+ * throws from. Run it from the project directory after a test-compile:
+ *
+ *     java -cp target/classes:target/test-classes edu.tarleton.welborn.medusacompiler.benchmark.DiagnosticsBenchmark
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class DiagnosticsBenchmark {
+    
+    private static final int FILES = 1_000;
+    private static final int BLOCKS_PER_FILE = 5;
+    private static final int ROUNDS = 5;
+    private static final int THROWS = 200_000;
+    private static final int DEPTH = 40;
+    
+    private static final String[] FAULTS = {
+        "int x%d = 1.5;\n",
+        "y%d = 2;\n",
+        "int z%d = 1 $ 2;\n",
+        "a0 = (a0 + %d;\n",
+        "string s%d = \"open;\n"
+    };
+    
+    private interface Validation {
+        int validate(byte[] file) throws Exception;
+    }
+    
+    // Keeps the thrown messages alive so the throws can't be optimized away
+    private static int sink = 0;
+    
+    // A generated program with a fault after every third statement line
+    private static byte[] faultyFile(int file) {
+        String[] lines = ProgramGenerator.generate(BLOCKS_PER_FILE).split("\n");
+        StringBuilder source = new StringBuilder();
+        int statements = 0;
+        for(String line : lines) {
+            source.append(line).append('\n');
+            if(line.endsWith(";") && ++statements % 3 == 0) {
+                source.append(String.format(FAULTS[(file + statements) % FAULTS.length],statements));
+            }
+        }
+        return source.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+    
+    private static int failFast(byte[] file) throws Exception {
+        try {
+            new SyntaxAnalyzer(new LexicalAnalyzer(ByteBuffer.wrap(file))).getProgramTree();
+            return 0;
+        } catch(Exception err) {
+            return 1;
+        }
+    }
+    
+    private static int collect(byte[] file) throws Exception {
+        Diagnostics diagnostics = new Diagnostics();
+        new SyntaxAnalyzer(new LexicalAnalyzer(ByteBuffer.wrap(file))).getProgramTree(diagnostics);
+        return diagnostics.size();
+    }
+    
+    private static int validateAll(List<byte[]> corpus, Validation validation) throws Exception {
+        int errors = 0;
+        for(byte[] file : corpus) {
+            errors += validation.validate(file);
+        }
+        return errors;
+    }
+    
+    // The best time over the whole corpus in milliseconds, and the errors found
+    private static double[] measure(List<byte[]> corpus, Validation validation) throws Exception {
+        long best = Benchmarks.bestNanos(ROUNDS,() -> validateAll(corpus,validation));
+        return new double[] {best / 1e6,validateAll(corpus,validation)};
+    }
+    
+    private static int throwFrom(int depth, boolean writableStackTrace) {
+        if(depth > 0) {
+            return throwFrom(depth - 1,writableStackTrace) + 1;
+        }
+        try {
+            throw new SyntaxAnalyzerException("; expected",writableStackTrace);
+        } catch(SyntaxAnalyzerException err) {
+            return err.getMessage().length();
+        }
+    }
+    
+    // Nanoseconds per exception thrown and caught
+    private static double measureThrows(boolean writableStackTrace) throws Exception {
+        long best = Benchmarks.bestNanos(1,() -> {
+            for(int i = 0; i < THROWS; i++) {
+                sink += throwFrom(DEPTH,writableStackTrace);
+            }
+        });
+        return (double) best / THROWS;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        List<byte[]> corpus = new ArrayList<>(FILES);
+        for(int i = 0; i < FILES; i++) {
+            corpus.add(faultyFile(i));
+        }
+        double[] failFast = measure(corpus,DiagnosticsBenchmark::failFast);
+        double[] collect = measure(corpus,DiagnosticsBenchmark::collect);
+        
+        System.out.printf("%,d files of %,d bytes%n",FILES,corpus.get(0).length);
+        System.out.printf("%12s %10s %10s %12s %14s%n","mode","ms","errors","files/s","errors/s");
+        System.out.printf("%12s %10.1f %10.0f %,12.0f %,14.0f%n","fail fast",failFast[0],failFast[1],FILES / failFast[0] * 1e3,failFast[1] / failFast[0] * 1e3);
+        System.out.printf("%12s %10.1f %10.0f %,12.0f %,14.0f%n","collect",collect[0],collect[1],FILES / collect[0] * 1e3,collect[1] / collect[0] * 1e3);
+        System.out.printf("throwing from %d frames down: %.0f ns with a stack trace, %.0f ns without%n",DEPTH,measureThrows(true),measureThrows(false));
+    }
+    
+}
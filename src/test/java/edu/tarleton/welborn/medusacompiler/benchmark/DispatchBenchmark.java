@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.benchmark;
+
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
+import edu.tarleton.welborn.medusacompiler.syntax.AssignmentTree;
+import edu.tarleton.welborn.medusacompiler.syntax.DeclarationTree;
+import edu.tarleton.welborn.medusacompiler.syntax.ForLoopTree;
+import edu.tarleton.welborn.medusacompiler.syntax.IfTree;
+import edu.tarleton.welborn.medusacompiler.syntax.ProgramTree;
+import edu.tarleton.welborn.medusacompiler.syntax.StatementTree;
+import edu.tarleton.welborn.medusacompiler.syntax.StatementVisitor;
+import edu.tarleton.welborn.medusacompiler.syntax.StatementsTree;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares dispatching on statements through a StatementVisitor against the chain
+ * of instanceof checks the passes used before. The corpus is every top level
+ * statement of a generated program, shuffled so the four kinds are mixed and the
+ * branches can't be predicted from the order. Run it from the project directory
+ * after a test-compile:
+ *
+ *     java -cp target/classes:target/test-classes edu.tarleton.welborn.medusacompiler.benchmark.DispatchBenchmark
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class DispatchBenchmark {
+    
+    private static final int BLOCKS = 50_000;
+    private static final int ROUNDS = 50;
+    
+    private interface Dispatcher {
+        long dispatch(StatementTree[] statements);
+    }
+    
+    // Keeps the dispatched results alive so the loops can't be optimized away
+    private static long check = 0;
+    
+    private static final StatementVisitor<Integer,RuntimeException> KIND = new StatementVisitor<>() {
+        @Override
+        public Integer visitAssignment(AssignmentTree assignment) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitDeclaration(DeclarationTree declaration) {
+            return 2;
+        }
+
+        @Override
+        public Integer visitForLoop(ForLoopTree forLoop) {
+            return 3;
+        }
+
+        @Override
+        public Integer visitIf(IfTree ifTree) {
+            return 4;
+        }
+    };
+    
+    private static long visit(StatementTree[] statements) {
+        long sum = 0;
+        for(StatementTree statement : statements) {
+            sum += statement.accept(KIND);
+        }
+        return sum;
+    }
+    
+    private static long instanceOf(StatementTree[] statements) {
+        long sum = 0;
+        for(StatementTree statement : statements) {
+            if(statement instanceof AssignmentTree) {
+                sum += 1;
+            } else if (statement instanceof DeclarationTree) {
+                sum += 2;
+            } else if (statement instanceof ForLoopTree) {
+                sum += 3;
+            } else if (statement instanceof IfTree) {
+                sum += 4;
+            }
+        }
+        return sum;
+    }
+    
+    // Nanoseconds per statement
+    private static double measure(StatementTree[] statements, Dispatcher dispatcher) throws Exception {
+        check = 0;
+        long best = Benchmarks.bestNanos(ROUNDS,() -> check += dispatcher.dispatch(statements));
+        if(check == 0) {
+            throw new IllegalStateException("Nothing was dispatched");
+        }
+        return (double) best / statements.length;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        ByteBuffer source = ByteBuffer.wrap(ProgramGenerator.generate(BLOCKS).getBytes(StandardCharsets.US_ASCII));
+        ProgramTree programTree = new SyntaxAnalyzer(LexicalAnalyzer.parseByteBuffer(source)).getProgramTree();
+        List<StatementTree> corpus = new ArrayList<>();
+        for(StatementsTree statements = programTree.getStatements(); statements != null; statements = statements.getStatements()) {
+            corpus.add(statements.getStatement());
+        }
+        Collections.shuffle(corpus,new Random(42));
+        StatementTree[] statements = corpus.toArray(new StatementTree[0]);
+        
+        System.out.printf("%,d statements%n",statements.length);
+        System.out.printf("%12s %16s%n","dispatch","ns/statement");
+        System.out.printf("%12s %16.2f%n","visitor",measure(statements,DispatchBenchmark::visit));
+        System.out.printf("%12s %16.2f%n","instanceof",measure(statements,DispatchBenchmark::instanceOf));
+    }
+    
+}
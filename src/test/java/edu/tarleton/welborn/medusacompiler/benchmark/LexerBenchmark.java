@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.benchmark;
+
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares lexing throughput of the line by line BufferedReader path against the
+ * memory mapped byte path, both sequential and split across the fork join pool.
+ * Run it from the project directory after a test-compile:
+ *
+ *     java -cp target/classes:target/test-classes edu.tarleton.welborn.medusacompiler.benchmark.LexerBenchmark [blocks]
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class LexerBenchmark {
+    
+    private interface Lexer {
+        int lex(Path path) throws Exception;
+    }
+    
+    private static void measure(String name, Path path, long bytes, Lexer lexer) throws Exception {
+        int tokens = lexer.lex(path);
+        double seconds = Benchmarks.bestNanos(() -> lexer.lex(path)) / 1e9;
+        System.out.printf("%-16s %,12d tokens %10.2f ms %10.1f MB/s%n",name,tokens,seconds * 1e3,bytes / seconds / 1e6);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int blocks = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Path path = Files.createTempFile("medusa-lexer-benchmark",".med");
+        try {
+            Files.writeString(path,ProgramGenerator.generate(blocks),StandardCharsets.US_ASCII);
+            long bytes = Files.size(path);
+            System.out.printf("%,d lines, %,d bytes%n",blocks * ProgramGenerator.LINES_PER_BLOCK,bytes);
+            
+            measure("BufferedReader",path,bytes,p -> {
+                try (BufferedReader reader = Files.newBufferedReader(p,StandardCharsets.US_ASCII)) {
+                    return LexicalAnalyzer.parseBufferedReader(reader).size();
+                }
+            });
+            measure("MappedByteBuffer",path,bytes,p -> LexicalAnalyzer.parsePath(p).size());
+            measure("TokenBuffer",path,bytes,p -> LexicalAnalyzer.parsePathToTokenBuffer(p).size());
+            measure("Parallel",path,bytes,p -> LexicalAnalyzer.parsePathToTokenBufferInParallel(p).size());
+        } finally {
+            Files.delete(path);
+        }
+    }
+    
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.benchmark;
+
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
+import edu.tarleton.welborn.medusacompiler.lexical.Token;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenSource;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenType;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how parse time grows with the number of tokens, from 10k to 1M tokens.
+ * Parsing a list with a cursor should take the same time per token at every size,
+ * while popping tokens off the front of the list (the old behaviour, only run on
+ * the smaller inputs) gets slower per token as the list grows. Run it from the
+ * project directory after a test-compile:
+ *
+ *     java -cp target/classes:target/test-classes edu.tarleton.welborn.medusacompiler.benchmark.ParserScalingBenchmark
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class ParserScalingBenchmark {
+    
+    private static final int[] TOKEN_COUNTS = {10_000,100_000,1_000_000};
+    private static final int REMOVE_FIRST_LIMIT = 100_000;
+    
+    private interface Parser {
+        void parse(List<Token> tokens) throws Exception;
+    }
+    
+    // The best of a few rounds after warming up, in nanoseconds per token
+    private static double measure(List<Token> tokens, Parser parser) throws Exception {
+        return (double) Benchmarks.bestNanos(() -> parser.parse(tokens)) / tokens.size();
+    }
+    
+    private static List<Token> lex(int blocks) throws Exception {
+        return LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap(ProgramGenerator.generate(blocks).getBytes(StandardCharsets.US_ASCII)));
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int tokensPerBlock = lex(1).size();
+        System.out.printf("%12s %18s %18s%n","tokens","cursor ns/token","remove(0) ns/token");
+        for(int tokenCount : TOKEN_COUNTS) {
+            List<Token> tokens = lex((tokenCount + tokensPerBlock - 1) / tokensPerBlock);
+            double cursor = measure(tokens,t -> new SyntaxAnalyzer(t).getProgramTree());
+            String removeFirst = "-";
+            if(tokens.size() <= REMOVE_FIRST_LIMIT + tokensPerBlock) {
+                removeFirst = String.format("%.1f",measure(tokens,t -> {
+                    List<Token> copy = new ArrayList<>(t);
+                    new SyntaxAnalyzer(new TokenSource() {
+                        @Override
+                        public Token nextToken() {
+                            return copy.isEmpty() ? new Token(TokenType.EOF,0,0) : copy.remove(0);
+                        }
+                    }).getProgramTree();
+                }));
+            }
+            System.out.printf("%,12d %18.1f %18s%n",tokens.size(),cursor,removeFirst);
+        }
+    }
+    
+}
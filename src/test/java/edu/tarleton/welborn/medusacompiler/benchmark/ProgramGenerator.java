@@ -0,0 +1,63 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.benchmark;
+
+/**
+ * Generates large, semantically valid Medusa programs for the benchmarks. Each block
+ * declares its own variables, so any number of blocks can be stitched together.
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class ProgramGenerator {
+    
+    // Lines of source produced per block, used to size programs by line count
+    public static final int LINES_PER_BLOCK = 14;
+    
+    public static String generate(int blocks) {
+        StringBuilder program = new StringBuilder(blocks * 400);
+        for(int i = 0; i < blocks; i++) {
+            appendBlock(program,i);
+        }
+        return program.toString();
+    }
+    
+    private static void appendBlock(StringBuilder program, int i) {
+        program.append("int a").append(i).append(" = ").append(i).append(" + 4 * 2;\n");
+        program.append("float b").append(i).append(" = 5.5 - 4.2 / 1.5;\n");
+        program.append("string c").append(i).append(" = \"value \"..(string) a").append(i).append(";\n");
+        program.append("for(int i").append(i).append(" = 0; i").append(i).append(" < 10; i").append(i).append(" = i").append(i).append(" + 1) {\n");
+        program.append("    a").append(i).append(" = a").append(i).append(" + i").append(i).append(" ^ 2 % 7;\n");
+        program.append("}\n");
+        program.append("if(a").append(i).append(" >= 10) {\n");
+        program.append("    b").append(i).append(" = b").append(i).append(" * (float) a").append(i).append(";\n");
+        program.append("} else {\n");
+        program.append("    c").append(i).append(" = c").append(i).append("..\"!\"; // line comment\n");
+        program.append("}\n");
+        program.append("/* block comment that\n");
+        program.append("   spans two lines */\n");
+        program.append("a").append(i).append(" = (a").append(i).append(" - 1) * 3;\n");
+    }
+    
+}
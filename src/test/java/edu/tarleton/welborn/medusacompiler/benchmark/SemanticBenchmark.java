@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package edu.tarleton.welborn.medusacompiler.benchmark;
+
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
+import edu.tarleton.welborn.medusacompiler.syntax.ProgramTree;
+import edu.tarleton.welborn.medusacompiler.syntax.SemanticAnalyzer;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compares checking the semantics of large generated programs sequentially and
+ * in parallel. Each program is parsed once and then checked over and over, so
+ * only the checking is timed. Run it from the project directory after a
+ * test-compile:
+ *
+ *     java -cp target/classes:target/test-classes edu.tarleton.welborn.medusacompiler.benchmark.SemanticBenchmark
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class SemanticBenchmark {
+    
+    private static final int[] BLOCKS = {2_000, 20_000, 100_000};
+    
+    private interface Check {
+        void check(SemanticAnalyzer semanticAnalyzer) throws Exception;
+    }
+    
+    // In milliseconds
+    private static double measure(ProgramTree programTree, Check check) throws Exception {
+        return Benchmarks.bestNanos(() -> check.check(new SemanticAnalyzer(programTree))) / 1e6;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%d processors%n",Runtime.getRuntime().availableProcessors());
+        System.out.printf("%12s %14s %14s %10s%n","lines","sequential ms","parallel ms","speedup");
+        for(int blocks : BLOCKS) {
+            String program = ProgramGenerator.generate(blocks);
+            ProgramTree programTree = new SyntaxAnalyzer(LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap(program.getBytes(StandardCharsets.US_ASCII)))).getProgramTree();
+            double sequential = measure(programTree,SemanticAnalyzer::checkSemantics);
+            double parallel = measure(programTree,s -> s.checkSemanticsInParallel(SemanticAnalyzer.DEFAULT_STATEMENTS_PER_TASK));
+            System.out.printf("%,12d %14.2f %14.2f %9.2fx%n",blocks * ProgramGenerator.LINES_PER_BLOCK,sequential,parallel,sequential / parallel);
+        }
+    }
+    
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.benchmark;
+
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
+import edu.tarleton.welborn.medusacompiler.lexical.Token;
+import edu.tarleton.welborn.medusacompiler.syntax.AddTree;
+import edu.tarleton.welborn.medusacompiler.syntax.AssignmentTree;
+import edu.tarleton.welborn.medusacompiler.syntax.AtomTree;
+import edu.tarleton.welborn.medusacompiler.syntax.ConcatTree;
+import edu.tarleton.welborn.medusacompiler.syntax.ConditionTree;
+import edu.tarleton.welborn.medusacompiler.syntax.DeclarationTree;
+import edu.tarleton.welborn.medusacompiler.syntax.ExpTree;
+import edu.tarleton.welborn.medusacompiler.syntax.ExpressionTree;
+import edu.tarleton.welborn.medusacompiler.syntax.FactorTree;
+import edu.tarleton.welborn.medusacompiler.syntax.FlatProgramTree;
+import edu.tarleton.welborn.medusacompiler.syntax.ForLoopTree;
+import edu.tarleton.welborn.medusacompiler.syntax.ForLoopVariableTree;
+import edu.tarleton.welborn.medusacompiler.syntax.IfTree;
+import edu.tarleton.welborn.medusacompiler.syntax.MultiplyTree;
+import edu.tarleton.welborn.medusacompiler.syntax.PowerTree;
+import edu.tarleton.welborn.medusacompiler.syntax.ProgramTree;
+import edu.tarleton.welborn.medusacompiler.syntax.StatementsTree;
+import edu.tarleton.welborn.medusacompiler.syntax.SyntaxAnalyzer;
+import edu.tarleton.welborn.medusacompiler.syntax.TermTree;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Compares parsing and checking into the ProgramTree against the FlatProgramTree:
+ * the time per token and the bytes allocated per token, plus how many nodes each
+ * tree needs and the size of the flat tree's arrays. Run it from the project
+ * directory after a test-compile:
+ *
+ *     java -cp target/classes:target/test-classes edu.tarleton.welborn.medusacompiler.benchmark.SyntaxTreeBenchmark
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class SyntaxTreeBenchmark {
+    
+    private static final int BLOCKS = 2_000;
+    
+    private interface Parser {
+        void parse(List<Token> tokens) throws Exception;
+    }
+    
+    // The best time and the bytes allocated by one round, both per token
+    private static double[] measure(List<Token> tokens, Parser parser) throws Exception {
+        long best = Benchmarks.bestNanos(() -> parser.parse(tokens));
+        long allocated = Benchmarks.allocatedBytes(() -> parser.parse(tokens));
+        return new double[] {(double) best / tokens.size(),(double) allocated / tokens.size()};
+    }
+    
+    // Every node object of the ProgramTree, the atom values included
+    private static long countNodes(ProgramTree programTree) {
+        long count = 1;
+        Deque<Object> nodes = new ArrayDeque<>();
+        if(programTree.getStatements() != null) {
+            nodes.push(programTree.getStatements());
+        }
+        while(!nodes.isEmpty()) {
+            Object node = nodes.pop();
+            List<Object> children;
+            if(node instanceof StatementsTree) {
+                StatementsTree statements = (StatementsTree) node;
+                children = Arrays.asList(statements.getStatement(),statements.getStatements());
+            } else if(node instanceof DeclarationTree) {
+                children = Arrays.asList(((DeclarationTree) node).getOptionalExpression());
+            } else if(node instanceof AssignmentTree) {
+                children = Arrays.asList(((AssignmentTree) node).getExpression());
+            } else if(node instanceof IfTree) {
+                IfTree ifTree = (IfTree) node;
+                children = Arrays.asList(ifTree.getCondition(),ifTree.getStatements(),ifTree.getElseStatement(),
+                        ifTree.getElseStatement() == null ? null : ifTree.getElseStatement().getStatementBlock());
+            } else if(node instanceof ForLoopTree) {
+                ForLoopTree forLoop = (ForLoopTree) node;
+                ForLoopVariableTree forLoopVariable = forLoop.getForLoopVariable();
+                children = Arrays.asList(forLoopVariable,forLoopVariable.getOptionalAssignment(),
+                        forLoopVariable.getOptionalAssignment() == null ? null : forLoopVariable.getOptionalAssignment().getExpression(),
+                        forLoop.getCondition(),forLoop.getAssignment(),forLoop.getStatementBlock());
+            } else if(node instanceof ConditionTree) {
+                children = Arrays.asList(((ConditionTree) node).getExpression1(),((ConditionTree) node).getExpression2());
+            } else if(node instanceof ExpressionTree) {
+                children = Arrays.asList(((ExpressionTree) node).getTerm(),((ExpressionTree) node).getAdd());
+            } else if(node instanceof AddTree) {
+                children = Arrays.asList(((AddTree) node).getTermTree(),((AddTree) node).getAddTree());
+            } else if(node instanceof TermTree) {
+                children = Arrays.asList(((TermTree) node).getFactor(),((TermTree) node).getMultiply());
+            } else if(node instanceof MultiplyTree) {
+                children = Arrays.asList(((MultiplyTree) node).getFactor(),((MultiplyTree) node).getMultiply());
+            } else if(node instanceof FactorTree) {
+                children = Arrays.asList(((FactorTree) node).getExp(),((FactorTree) node).getPower());
+            } else if(node instanceof PowerTree) {
+                children = Arrays.asList(((PowerTree) node).getExp(),((PowerTree) node).getPower());
+            } else if(node instanceof ExpTree) {
+                children = Arrays.asList(((ExpTree) node).getAtom(),((ExpTree) node).getConcat());
+            } else if(node instanceof ConcatTree) {
+                children = Arrays.asList(((ConcatTree) node).getAtom(),((ConcatTree) node).getConcat());
+            } else if(node instanceof AtomTree) {
+                children = Arrays.asList(((AtomTree) node).getAtomValue(),((AtomTree) node).getAtomValue().getExpression());
+            } else {
+                children = List.of();
+            }
+            count++;
+            for(Object child : children) {
+                if(child != null) {
+                    nodes.push(child);
+                }
+            }
+        }
+        return count;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        List<Token> tokens = LexicalAnalyzer.parseByteBuffer(ByteBuffer.wrap(ProgramGenerator.generate(BLOCKS).getBytes(StandardCharsets.US_ASCII)));
+        double[] objects = measure(tokens,t -> new SyntaxAnalyzer(t).getProgramTree());
+        double[] flat = measure(tokens,t -> new SyntaxAnalyzer(t).getFlatProgramTree());
+        long objectNodes = countNodes(new SyntaxAnalyzer(tokens).getProgramTree());
+        FlatProgramTree flatTree = new SyntaxAnalyzer(tokens).getFlatProgramTree();
+        
+        System.out.printf("%,d tokens, flat tree arrays take %.1f bytes/token%n",tokens.size(),(double) flatTree.getFootprintInBytes() / tokens.size());
+        System.out.printf("%12s %12s %12s %18s%n","tree","nodes","ns/token","allocated/token");
+        System.out.printf("%12s %,12d %12.1f %18.1f%n","ProgramTree",objectNodes,objects[0],objects[1]);
+        System.out.printf("%12s %,12d %12.1f %18.1f%n","flat",flatTree.size(),flat[0],flat[1]);
+    }
+    
+}
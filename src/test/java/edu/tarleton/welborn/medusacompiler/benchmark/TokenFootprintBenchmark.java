@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 Ethan Welborn - ethan.welborn@go.tarleton.edu.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package edu.tarleton.welborn.medusacompiler.benchmark;
+
+import edu.tarleton.welborn.medusacompiler.lexical.LexicalAnalyzer;
+import edu.tarleton.welborn.medusacompiler.lexical.Token;
+import edu.tarleton.welborn.medusacompiler.lexical.TokenBuffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reports how many bytes of heap each token costs when a generated program is held
+ * as a List of Tokens versus a TokenBuffer. Run it from the project directory after
+ * a test-compile:
+ *
+ *     java -cp target/classes:target/test-classes edu.tarleton.welborn.medusacompiler.benchmark.TokenFootprintBenchmark [blocks]
+ *
+ * @author Ethan Welborn - ethan.welborn@go.tarleton.edu
+ */
+public class TokenFootprintBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        int blocks = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        ByteBuffer source = ByteBuffer.wrap(ProgramGenerator.generate(blocks).getBytes(StandardCharsets.US_ASCII));
+        
+        long before = Benchmarks.usedMemory();
+        List<Token> tokenList = LexicalAnalyzer.parseByteBuffer(source.duplicate());
+        long listBytes = Benchmarks.usedMemory() - before;
+        int tokens = tokenList.size();
+        tokenList = null;
+        
+        before = Benchmarks.usedMemory();
+        TokenBuffer tokenBuffer = LexicalAnalyzer.parseByteBufferToTokenBuffer(source.duplicate());
+        long bufferBytes = Benchmarks.usedMemory() - before;
+        
+        System.out.printf("%,d tokens%n",tokens);
+        System.out.printf("List<Token>  %,14d bytes %8.1f bytes/token%n",listBytes,(double) listBytes / tokens);
+        System.out.printf("TokenBuffer  %,14d bytes %8.1f bytes/token (%.1f bytes/token excluding literal strings)%n",
+                bufferBytes,(double) bufferBytes / tokenBuffer.size(),(double) tokenBuffer.getFootprintInBytes() / tokenBuffer.size());
+    }
+    
+}